@@ -0,0 +1,128 @@
+package com.astromediavault.AstroMediaVault.config;
+
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.cfg.spi.DomainDataRegionBuildingContext;
+import org.hibernate.cache.cfg.spi.DomainDataRegionConfig;
+import org.hibernate.cache.spi.access.AccessType;
+import org.hibernate.cache.spi.support.DomainDataStorageAccess;
+import org.hibernate.cache.spi.support.RegionFactoryTemplate;
+import org.hibernate.cache.spi.support.StorageAccess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Node local Hibernate second-level cache: one size bounded LRU map per region whose entries expire after a TTL.
+ * The TTL bounds how long another node's writes stay invisible here. The update timestamps region is never
+ * bounded, since a forgotten table timestamp would let the query cache return stale results.
+ * Configured with the JPA properties media.entity-cache.max-entries (per region) and media.entity-cache.ttl.
+ */
+public class EntityCacheRegionFactory extends RegionFactoryTemplate {
+
+    public static final String MAX_ENTRIES = "media.entity-cache.max-entries";
+    public static final String TTL = "media.entity-cache.ttl";
+
+    private int maxEntries;
+    private long ttlMillis;
+
+    @Override
+    protected void prepareForUse(SessionFactoryOptions settings, Map<String, Object> configValues) {
+        maxEntries = Integer.parseInt(String.valueOf(configValues.getOrDefault(MAX_ENTRIES, "10000")));
+        ttlMillis = DurationStyle.detectAndParse(String.valueOf(configValues.getOrDefault(TTL, "60s"))).toMillis();
+    }
+
+    @Override
+    protected void releaseFromUse() {
+        // Regions are plain maps, dropped with the factory
+    }
+
+    @Override
+    public AccessType getDefaultAccessType() {
+        return AccessType.READ_WRITE;
+    }
+
+    @Override
+    protected DomainDataStorageAccess createDomainDataStorageAccess(DomainDataRegionConfig regionConfig,
+            DomainDataRegionBuildingContext buildingContext) {
+        return new BoundedStorage(maxEntries, ttlMillis);
+    }
+
+    @Override
+    protected StorageAccess createQueryResultsRegionStorageAccess(String regionName,
+            SessionFactoryImplementor sessionFactory) {
+        return new BoundedStorage(maxEntries, ttlMillis);
+    }
+
+    @Override
+    protected StorageAccess createTimestampsRegionStorageAccess(String regionName,
+            SessionFactoryImplementor sessionFactory) {
+        return new BoundedStorage(Integer.MAX_VALUE, 0);
+    }
+
+    /**
+     * Entries of one region, least recently used dropped first; ttlMillis 0 keeps entries until evicted
+     */
+    static class BoundedStorage implements DomainDataStorageAccess {
+
+        private record Timed(Object value, long expiresAt) {
+        }
+
+        private final long ttlMillis;
+        private final Map<Object, Timed> entries;
+
+        BoundedStorage(int maxEntries, long ttlMillis) {
+            this.ttlMillis = ttlMillis;
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Object, Timed> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        @Override
+        public synchronized Object getFromCache(Object key, SharedSessionContractImplementor session) {
+            Timed timed = entries.get(key);
+            if (timed == null) {
+                return null;
+            }
+            if (timed.expiresAt() > 0 && timed.expiresAt() < System.currentTimeMillis()) {
+                entries.remove(key);
+                return null;
+            }
+            return timed.value();
+        }
+
+        @Override
+        public synchronized void putIntoCache(Object key, Object value, SharedSessionContractImplementor session) {
+            entries.put(key, new Timed(value, ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : 0));
+        }
+
+        @Override
+        public synchronized boolean contains(Object key) {
+            return getFromCache(key, null) != null;
+        }
+
+        @Override
+        public synchronized void evictData() {
+            entries.clear();
+        }
+
+        @Override
+        public synchronized void evictData(Object key) {
+            entries.remove(key);
+        }
+
+        @Override
+        public void release() {
+            evictData();
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+}
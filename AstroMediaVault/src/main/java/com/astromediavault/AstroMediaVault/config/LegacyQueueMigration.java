@@ -0,0 +1,79 @@
+package com.astromediavault.AstroMediaVault.config;
+
+import com.astromediavault.AstroMediaVault.service.JobPriorityPolicy;
+import com.rabbitmq.client.GetResponse;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Moves jobs left in the FIFO queues of earlier releases to the priority queues that replaced them.
+ * RabbitMQ refuses to redeclare a durable queue with x-max-priority (PRECONDITION_FAILED), so the priority
+ * queues got new names. On startup every old queue that still exists is drained into its successor, then
+ * deleted once it is empty and no node of the old release consumes it any more.
+ */
+@Component
+@RequiredArgsConstructor
+public class LegacyQueueMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(LegacyQueueMigration.class);
+
+    private static final long CONFIRM_TIMEOUT_MILLIS = 10_000;
+
+    /** Old FIFO queue and the priority queue replacing it */
+    static final Map<String, String> QUEUES = Map.of(
+            "media-ingest-queue", "media-ingest-queue.v2",
+            "video-processing-queue", "video-processing-queue.v2",
+            "video-chunk-transcode-queue", "video-chunk-transcode-queue.v2",
+            "thumbnail-generation-queue", "thumbnail-generation-queue.v2",
+            "pdf-preview-generation-queue", "pdf-preview-generation-queue.v2",
+            "image-resolution-generation-queue", "image-resolution-generation-queue.v2");
+
+    private final AmqpAdmin amqpAdmin;
+    private final RabbitTemplate rabbitTemplate;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        QUEUES.forEach((legacy, queue) -> {
+            try {
+                if (amqpAdmin.getQueueProperties(legacy) == null) {
+                    return;
+                }
+                int moved = drain(legacy, queue);
+                // Refused by the broker while an old node still consumes it; the next startup tries again
+                amqpAdmin.deleteQueue(legacy, true, true);
+                logger.info("Moved {} jobs from {} to {} and deleted it", moved, legacy, queue);
+            } catch (AmqpException e) {
+                logger.warn("Could not migrate queue {} yet: {}", legacy, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Republish every message of the old queue and ack it only once the broker confirmed the copy, so a crash
+     * leaves a duplicate at worst, which the job leases skip. The old jobs waited longest and go first.
+     */
+    private int drain(String legacy, String queue) {
+        Integer moved = rabbitTemplate.execute(channel -> {
+            int count = 0;
+            GetResponse response;
+            while ((response = channel.basicGet(legacy, false)) != null) {
+                channel.basicPublish("", queue, response.getProps().builder()
+                        .priority(JobPriorityPolicy.MAX_PRIORITY).build(), response.getBody());
+                channel.waitForConfirmsOrDie(CONFIRM_TIMEOUT_MILLIS);
+                channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
+                count++;
+            }
+            return count;
+        });
+        return moved != null ? moved : 0;
+    }
+}
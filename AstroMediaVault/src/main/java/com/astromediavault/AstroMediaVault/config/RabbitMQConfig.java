@@ -1,30 +1,86 @@
 package com.astromediavault.AstroMediaVault.config;
 
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.config.ContainerCustomizer;
 import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import com.astromediavault.AstroMediaVault.service.JobPriorityPolicy;
+import com.astromediavault.AstroMediaVault.service.MediaLookupCache;
+import com.astromediavault.AstroMediaVault.service.MediaMetrics;
+import com.astromediavault.AstroMediaVault.service.TranscodeProgressService;
+
+import java.time.Duration;
+import java.util.Date;
+
 @Configuration
 public class RabbitMQConfig {
 
     /**
      * Establishes a connection to RabbitMQ.
+     * Channels run in confirm mode so batch publishers can wait for the broker to acknowledge their messages.
      */
     @Bean
     public ConnectionFactory connectionFactory() {
-        return new CachingConnectionFactory("localhost");
+        CachingConnectionFactory connectionFactory = new CachingConnectionFactory("localhost");
+        connectionFactory.setPublisherConfirmType(CachingConnectionFactory.ConfirmType.SIMPLE);
+        return connectionFactory;
     }
     
+    /**
+     * Durable job queue with priorities 0..{@link JobPriorityPolicy#MAX_PRIORITY}.
+     * With a prefetch of 1 the broker hands each free consumer the highest priority job waiting.
+     * RabbitMQ cannot add x-max-priority to an existing queue, hence the ".v2" names; the FIFO queues of earlier
+     * releases are drained into these by {@link LegacyQueueMigration}.
+     */
+    private static Queue jobQueue(String name) {
+        return QueueBuilder.durable(name).maxPriority(JobPriorityPolicy.MAX_PRIORITY + 1).build();
+    }
+
+    /**
+     * Creates a queue for ingest of freshly stored uploads.
+     * These jobs validate the original, extract metadata and fan out the type specific work.
+     */
+    @Bean
+    public Queue mediaIngestQueue() {
+        return jobQueue("media-ingest-queue.v2");
+    }
+
     /**
      * Creates a queue for video processing tasks.
      * These jobs will transcode videos into multiple resolutions.
      */
     @Bean
     public Queue videoProcessingQueue() {
-        return new Queue("video-processing-queue", true);
+        return jobQueue("video-processing-queue.v2");
+    }
+
+    /**
+     * Creates a queue for chunked transcoding tasks.
+     * Each job encodes one keyframe aligned piece of a long video.
+     */
+    @Bean
+    public Queue videoChunkTranscodeQueue() {
+        return jobQueue("video-chunk-transcode-queue.v2");
+    }
+
+    /**
+     * Creates a queue for stitching chunked transcodes.
+     * Each job joins the encoded chunks of one video once all of them are done.
+     */
+    @Bean
+    public Queue videoStitchQueue() {
+        return jobQueue("video-stitch-queue.v2");
     }
 
     /**
@@ -33,7 +89,7 @@ public class RabbitMQConfig {
      */
     @Bean
     public Queue thumbnailGenerationQueue() {
-        return new Queue("thumbnail-generation-queue", true);
+        return jobQueue("thumbnail-generation-queue.v2");
     }
 
     /**
@@ -42,19 +98,79 @@ public class RabbitMQConfig {
      */
     @Bean
     public Queue pdfPreviewGenerationQueue() {
-        return new Queue("pdf-preview-generation-queue", true);
+        return jobQueue("pdf-preview-generation-queue.v2");
+    }
+
+    /**
+     * Fanout exchange for live transcode progress.
+     * Every node binds its own temporary queue, so progress reaches subscribers whichever node encodes.
+     */
+    @Bean
+    public FanoutExchange transcodeProgressExchange() {
+        return new FanoutExchange(TranscodeProgressService.EXCHANGE, false, false);
+    }
+
+    @Bean
+    public Queue transcodeProgressQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding transcodeProgressBinding(FanoutExchange transcodeProgressExchange, Queue transcodeProgressQueue) {
+        return BindingBuilder.bind(transcodeProgressQueue).to(transcodeProgressExchange);
+    }
+
+    /**
+     * Fanout exchange for media cache invalidations.
+     * Every node binds its own temporary queue and drops its cached lookups of the media named in a message.
+     */
+    @Bean
+    public FanoutExchange mediaCacheInvalidationExchange() {
+        return new FanoutExchange(MediaLookupCache.EXCHANGE, false, false);
+    }
+
+    @Bean
+    public Queue mediaCacheInvalidationQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public Binding mediaCacheInvalidationBinding(FanoutExchange mediaCacheInvalidationExchange,
+            Queue mediaCacheInvalidationQueue) {
+        return BindingBuilder.bind(mediaCacheInvalidationQueue).to(mediaCacheInvalidationExchange);
     }
 
     /**
      * Creates a RabbitTemplate for sending messages to queues.
+     * Every message is stamped with its publish time so consumers can measure queue wait.
      */
     @Bean
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
-        return new RabbitTemplate(connectionFactory);
+        RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
+        rabbitTemplate.setBeforePublishPostProcessors(message -> {
+            message.getMessageProperties().setTimestamp(new Date());
+            return message;
+        });
+        return rabbitTemplate;
+    }
+
+    /**
+     * Records publish to consume latency for every listener container.
+     */
+    @Bean
+    public ContainerCustomizer<SimpleMessageListenerContainer> queueWaitCustomizer(MediaMetrics mediaMetrics) {
+        return container -> container.setAfterReceivePostProcessors(message -> {
+            MessageProperties properties = message.getMessageProperties();
+            if (properties.getTimestamp() != null) {
+                long waitMillis = System.currentTimeMillis() - properties.getTimestamp().getTime();
+                mediaMetrics.recordQueueWait(properties.getConsumerQueue(), Duration.ofMillis(Math.max(0, waitMillis)));
+            }
+            return message;
+        });
     }
 
     @Bean
     public Queue imageResolutionGenerationQueue() {
-        return new Queue("image-resolution-generation-queue", true);
+        return jobQueue("image-resolution-generation-queue.v2");
     }
 }
\ No newline at end of file
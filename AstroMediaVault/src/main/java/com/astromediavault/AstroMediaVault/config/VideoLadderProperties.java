@@ -0,0 +1,44 @@
+package com.astromediavault.AstroMediaVault.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The HLS ladder of a deployment (media.video.ladder, audio-bitrate-kbps and target-crf). Rungs are capped to each source,
+ * see {@link com.astromediavault.AstroMediaVault.service.VideoLadderPlanner}.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "media.video")
+public class VideoLadderProperties {
+
+    private List<Rung> ladder = new ArrayList<>(List.of(
+            new Rung("360p", 360, 800, 30),
+            new Rung("480p", 480, 1100, 30),
+            new Rung("720p", 720, 1400, 0),
+            new Rung("1080p", 1080, 2800, 0)));
+
+    private int audioBitrateKbps = 128; // one stereo AAC rendition per source audio track, shared by every rung
+
+    private int targetCrf = 23; // quality of per-title encodes, whose rung bitrates become maxrate caps
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Rung {
+        private String name;
+        private int height; // short side, so portrait videos get the same ladder
+        private int bitrateKbps; // at 30 fps
+        private double maxFrameRate; // 0 = keep the source frame rate
+    }
+}
@@ -1,5 +1,7 @@
 package com.astromediavault.AstroMediaVault.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.server.MimeMappings;
 import org.springframework.context.annotation.Bean;
@@ -7,9 +9,16 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.List;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private static final Logger logger = LoggerFactory.getLogger(WebConfig.class);
+
+    /** Video subfolders of a user's storage that are served as static files */
+    private static final List<String> PUBLIC_FOLDERS = List.of("thumbnails", "previews", "subtitles");
+
     @Value("${storage.local.path}")
     private String localStoragePath;
 
@@ -19,8 +28,10 @@ public class WebConfig implements WebMvcConfigurer {
         String fullPath = localStoragePath.endsWith("/") ? localStoragePath : localStoragePath + "/";
         String fullHlsPath = "file:///" + fullPath.replace("\\", "/");
 
-        // Serve HLS video segments
-        registry.addResourceHandler("/users/**")
+        // Serve only the public artifacts of videos: posters, seek previews and subtitles. Originals, uploads,
+        // chunks and HLS stay private; HLS has its own endpoint (HlsController), originals go through the API
+        registry.addResourceHandler(PUBLIC_FOLDERS.stream().map(folder -> "/users/*/videos/" + folder + "/**")
+                        .toArray(String[]::new))
                 .addResourceLocations(fullHlsPath + "users/")
                 .setCachePeriod(3600); // Cache for 1 hour
 
@@ -33,7 +44,7 @@ public class WebConfig implements WebMvcConfigurer {
                 .addResourceLocations("classpath:/static/js/")
                 .setCachePeriod(3600);
 
-        System.out.println("Serving HLS files from: " + fullHlsPath + "users/");
+        logger.info("Serving video artifacts from: {}users/", fullHlsPath);
     }
 
     @Bean
@@ -7,6 +7,7 @@ import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.UUID;
 
 import javax.imageio.ImageIO;
@@ -20,6 +21,11 @@ import org.springframework.stereotype.Service;
 import com.astromediavault.AstroMediaVault.exception.MediaNotFoundException;
 import com.astromediavault.AstroMediaVault.model.Media;
 import com.astromediavault.AstroMediaVault.repository.MediaRepository;
+import com.astromediavault.AstroMediaVault.service.ImageDecodeBudget;
+import com.astromediavault.AstroMediaVault.service.ImageProbeService;
+import com.astromediavault.AstroMediaVault.service.MediaMetrics;
+import com.astromediavault.AstroMediaVault.service.ProcessRunner;
+import com.astromediavault.AstroMediaVault.service.WorkerSlots;
 
 import lombok.RequiredArgsConstructor;
 
@@ -28,84 +34,100 @@ import lombok.RequiredArgsConstructor;
 public class ImageResolutionGenerationConsumer {
 
     private final MediaRepository mediaRepository;
+    private final ImageProbeService imageProbeService;
+    private final ImageDecodeBudget imageDecodeBudget;
+    private final ProcessRunner processRunner;
+    private final MediaMetrics mediaMetrics;
 
     @Value("${storage.local.path}")
     private String localStoragePath;
 
+    @Value("${media.workers.cwebp-timeout:5m}")
+    private Duration cwebpTimeout;
+
     private static final Logger logger = LoggerFactory.getLogger(ImageResolutionGenerationConsumer.class);
 
     private static final int[] TARGET_WIDTHS = { 150, 480, 720, 1080 };
     private static final String[] RESOLUTION_NAMES = { "thumb", "480p", "720p", "1080p" };
 
-    @RabbitListener(queues = "image-resolution-generation-queue")
+    @RabbitListener(queues = "image-resolution-generation-queue.v2")
     public void generateResolutions(String mediaIdStr) {
         try {
             UUID mediaId = UUID.fromString(mediaIdStr);
             Media media = mediaRepository.findById(mediaId)
                     .orElseThrow(() -> new MediaNotFoundException("Media not found: " + mediaId));
 
-            String originalPath = Paths.get(localStoragePath, media.getStoragePath()).toString();
-            BufferedImage originalImage = ImageIO.read(new File(originalPath));
-            if (originalImage == null)
-                throw new RuntimeException("Unable to read original image");
-
-            for (int i = 0; i < TARGET_WIDTHS.length; i++) {
-                int targetWidth = TARGET_WIDTHS[i];
-                String resolutionName = RESOLUTION_NAMES[i];
-
-                String processedRelativePath = Paths.get(
-                        "users",
-                        media.getUser().getId().toString(),
-                        "images",
-                        "processed",
-                        media.getId().toString(),
-                        resolutionName + ".webp").toString();
-
-                Path fullProcessedPath = Paths.get(localStoragePath, processedRelativePath);
-
-                // Skip if already exists
-                if (Files.exists(fullProcessedPath)) {
-                    logger.info("Skipping existing resolution: {}", fullProcessedPath);
-                    continue;
-                }
-
-                Files.createDirectories(fullProcessedPath.getParent());
-
-                BufferedImage resized = resizeImage(originalImage, targetWidth);
-
-                // Save as temporary PNG file first
-                File tempPng = File.createTempFile("resized-" + resolutionName, ".png");
-                ImageIO.write(resized, "png", tempPng);
-
-                // Use cwebp CLI to convert PNG to WebP
-                String[] command = {
-                    "cwebp",
-                    "-q", "85",
-                    tempPng.getAbsolutePath(),
-                    "-o",
-                    fullProcessedPath.toString()
-                };
-                
-
-                ProcessBuilder processBuilder = new ProcessBuilder(command);
-                processBuilder.inheritIO();
-                Process process = processBuilder.start();
-                int exitCode = process.waitFor();
-
-                if (exitCode == 0) {
-                    logger.info("Generated image resolution {} for media {}", resolutionName, mediaId);
-                } else {
-                    logger.error("Failed to generate {} resolution for media {}", resolutionName, mediaId);
-                }
-
-                // Clean up temp file
-                if (!tempPng.delete()) {
-                    logger.warn("Failed to delete temp file: {}", tempPng.getAbsolutePath());
-                }
+            File originalFile = Paths.get(localStoragePath, media.getStoragePath()).toFile();
+            ImageProbeService.ImageInfo info = imageProbeService.probe(originalFile);
+
+            // Hold decode memory for as long as the original stays referenced
+            try (ImageDecodeBudget.Permit permit = imageDecodeBudget.acquire(info.getEstimatedDecodeBytes())) {
+                BufferedImage originalImage = ImageIO.read(originalFile);
+                if (originalImage == null)
+                    throw new RuntimeException("Unable to read original image");
+
+                generateResolutions(media, originalImage);
             }
 
         } catch (Exception e) {
             logger.error("Failed to generate image resolutions: {}", e.getMessage(), e);
+            mediaMetrics.recordFailure("image-resolution");
+        }
+    }
+
+    private void generateResolutions(Media media, BufferedImage originalImage) throws Exception {
+        UUID mediaId = media.getId();
+        for (int i = 0; i < TARGET_WIDTHS.length; i++) {
+            int targetWidth = TARGET_WIDTHS[i];
+            String resolutionName = RESOLUTION_NAMES[i];
+
+            String processedRelativePath = Paths.get(
+                    "users",
+                    media.getArtifactUserId().toString(),
+                    "images",
+                    "processed",
+                    media.getArtifactMediaId().toString(),
+                    resolutionName + ".webp").toString();
+
+            Path fullProcessedPath = Paths.get(localStoragePath, processedRelativePath);
+
+            // Skip if already exists
+            if (Files.exists(fullProcessedPath)) {
+                logger.info("Skipping existing resolution: {}", fullProcessedPath);
+                continue;
+            }
+
+            Files.createDirectories(fullProcessedPath.getParent());
+
+            BufferedImage resized = resizeImage(originalImage, targetWidth);
+
+            // Save as temporary PNG file first
+            File tempPng = File.createTempFile("resized-" + resolutionName, ".png");
+            ImageIO.write(resized, "png", tempPng);
+
+            // Use cwebp CLI to convert PNG to WebP
+            String[] command = {
+                "cwebp",
+                "-q", "85",
+                tempPng.getAbsolutePath(),
+                "-o",
+                fullProcessedPath.toString()
+            };
+
+            int exitCode = processRunner.run(WorkerSlots.Resource.CWEBP, cwebpTimeout, command);
+
+            if (exitCode == 0) {
+                mediaMetrics.recordOutput(Media.FileType.IMAGE, resolutionName, Files.size(fullProcessedPath));
+                logger.info("Generated image resolution {} for media {}", resolutionName, mediaId);
+            } else {
+                mediaMetrics.recordFailure("image-resolution");
+                logger.error("Failed to generate {} resolution for media {}", resolutionName, mediaId);
+            }
+
+            // Clean up temp file
+            if (!tempPng.delete()) {
+                logger.warn("Failed to delete temp file: {}", tempPng.getAbsolutePath());
+            }
         }
     }
 
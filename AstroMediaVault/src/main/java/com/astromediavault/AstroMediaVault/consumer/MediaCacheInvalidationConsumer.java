@@ -0,0 +1,36 @@
+package com.astromediavault.AstroMediaVault.consumer;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Service;
+
+import com.astromediavault.AstroMediaVault.service.HlsDeliveryService;
+import com.astromediavault.AstroMediaVault.service.MediaLookupCache;
+
+import java.util.List;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+public class MediaCacheInvalidationConsumer {
+
+    private final MediaLookupCache mediaLookupCache;
+    private final HlsDeliveryService hlsDeliveryService;
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaCacheInvalidationConsumer.class);
+
+    // Invalidations of every node, this one included
+    @RabbitListener(queues = "#{mediaCacheInvalidationQueue.name}", concurrency = "1")
+    public void invalidate(String message) {
+        try {
+            List<UUID> mediaIds = mediaLookupCache.parse(message);
+            // The HLS index first, a stream lookup reloaded in between would otherwise get the old URL
+            mediaIds.forEach(hlsDeliveryService::evict);
+            mediaLookupCache.evict(mediaIds);
+        } catch (Exception e) {
+            logger.warn("Dropping cache invalidation message: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.astromediavault.AstroMediaVault.consumer;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Service;
+
+import com.astromediavault.AstroMediaVault.exception.MediaNotFoundException;
+import com.astromediavault.AstroMediaVault.model.Media;
+import com.astromediavault.AstroMediaVault.repository.MediaRepository;
+import com.astromediavault.AstroMediaVault.service.ImageService;
+import com.astromediavault.AstroMediaVault.service.MediaMetrics;
+import com.astromediavault.AstroMediaVault.service.MediaStorageService;
+import com.astromediavault.AstroMediaVault.service.PDFService;
+import com.astromediavault.AstroMediaVault.service.ProcessingStateService;
+import com.astromediavault.AstroMediaVault.service.VideoService;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Validation, metadata extraction and fan-out of stored uploads, off the request thread
+ */
+@Service
+@RequiredArgsConstructor
+public class MediaIngestConsumer {
+
+    private final MediaRepository mediaRepository;
+    private final MediaStorageService mediaStorageService;
+    private final ProcessingStateService processingStateService;
+    private final PDFService pdfService;
+    private final ImageService imageService;
+    private final VideoService videoService;
+    private final MediaMetrics mediaMetrics;
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaIngestConsumer.class);
+
+    @RabbitListener(queues = "media-ingest-queue.v2")
+    public void ingest(String mediaIdStr) {
+        UUID mediaId = UUID.fromString(mediaIdStr);
+        Media media = mediaRepository.findById(mediaId)
+                .orElseThrow(() -> new MediaNotFoundException("Media not found: " + mediaId));
+
+        if (media.getProcessingState() != Media.ProcessingState.RECEIVED) {
+            logger.info("Skipping ingest of media {} in state {}", mediaId, media.getProcessingState());
+            return;
+        }
+
+        processingStateService.markProcessing(media);
+        String fullPath = mediaStorageService.resolve(media.getStoragePath()).toString();
+        long started = System.nanoTime();
+
+        try {
+            switch (media.getFileType()) {
+                case PDF -> {
+                    pdfService.processPdfUpload(media, fullPath);
+                    processingStateService.markReady(media);
+                }
+                case IMAGE -> {
+                    imageService.processImageUpload(media, fullPath);
+                    processingStateService.markReady(media);
+                }
+                // Videos become READY once VideoProcessingConsumer has produced the HLS ladder
+                case VIDEO -> videoService.processVideoUpload(media);
+            }
+            mediaMetrics.recordIngest(media.getFileType(), Duration.ofNanos(System.nanoTime() - started), true);
+            logger.info("Ingested media {} ({})", mediaId, media.getFileType());
+        } catch (Exception e) {
+            logger.error("Ingest failed for media {}: {}", mediaId, e.getMessage(), e);
+            mediaMetrics.recordIngest(media.getFileType(), Duration.ofNanos(System.nanoTime() - started), false);
+            mediaMetrics.recordFailure("ingest");
+            processingStateService.markFailed(media, e.getMessage());
+        }
+    }
+}
@@ -5,6 +5,8 @@ import org.springframework.stereotype.Service;
 import com.astromediavault.AstroMediaVault.exception.MediaNotFoundException;
 import com.astromediavault.AstroMediaVault.model.Media;
 import com.astromediavault.AstroMediaVault.repository.MediaRepository;
+import com.astromediavault.AstroMediaVault.service.MediaMetrics;
+import com.astromediavault.AstroMediaVault.service.WorkerSlots;
 
 import lombok.RequiredArgsConstructor;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -21,6 +23,7 @@ import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.UUID;
 
 
@@ -31,11 +34,13 @@ public class PDFPreviewGeneartionConsumer {
     private static final Logger logger = LoggerFactory.getLogger(PDFPreviewGeneartionConsumer.class);
 
     private final MediaRepository mediaRepository;
+    private final WorkerSlots workerSlots;
+    private final MediaMetrics mediaMetrics;
 
     @Value("${storage.local.path}")
     private String localStoragePath;
 
-    @RabbitListener(queues = "pdf-preview-generation-queue")
+    @RabbitListener(queues = "pdf-preview-generation-queue.v2")
     public void generatePreview(String mediaIdStr) {
         try {
             UUID mediaId = UUID.fromString(mediaIdStr);
@@ -43,23 +48,28 @@ public class PDFPreviewGeneartionConsumer {
                     .orElseThrow(() -> new MediaNotFoundException("Media not found: " + mediaId));
 
             String pdfPath = Paths.get(localStoragePath, media.getStoragePath()).toString();
-            try (PDDocument document = PDDocument.load(new File(pdfPath))) {
+            try (WorkerSlots.Slot slot = workerSlots.acquire(WorkerSlots.Resource.PDF_RENDER);
+                    PDDocument document = PDDocument.load(new File(pdfPath))) {
+                long started = System.nanoTime();
                 PDFRenderer pdfRenderer = new PDFRenderer(document);
                 BufferedImage image = pdfRenderer.renderImageWithDPI(0, 150); // first page, 150 DPI
+                mediaMetrics.recordPdfRender(Duration.ofNanos(System.nanoTime() - started));
 
-                String previewPath = Paths.get("users", media.getUser().getId().toString(), "pdfs", "previews").toString();
+                String previewPath = Paths.get("users", media.getArtifactUserId().toString(), "pdfs", "previews").toString();
                 Path fullPreviewDir = Paths.get(localStoragePath, previewPath);
                 Files.createDirectories(fullPreviewDir);
 
-                String previewFileName = media.getId().toString() + ".png";
+                String previewFileName = media.getArtifactMediaId().toString() + ".png";
                 Path previewFilePath = fullPreviewDir.resolve(previewFileName);
 
                 ImageIO.write(image, "png", previewFilePath.toFile());
+                mediaMetrics.recordOutput(Media.FileType.PDF, "preview", Files.size(previewFilePath));
 
                 logger.info("Generated PDF preview for mediaId={} at {}", mediaId, previewFilePath);
             }
         } catch (Exception e) {
             logger.error("Failed to generate PDF preview: {}", e.getMessage(), e);
+            mediaMetrics.recordFailure("pdf-preview");
         }
     }
 }
@@ -1,6 +1,7 @@
 package com.astromediavault.AstroMediaVault.consumer;
 
 import lombok.RequiredArgsConstructor;
+import org.apache.tomcat.util.http.fileupload.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
@@ -8,10 +9,22 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.astromediavault.AstroMediaVault.model.Media;
+import com.astromediavault.AstroMediaVault.model.VideoMetadata;
 import com.astromediavault.AstroMediaVault.repository.MediaRepository;
+import com.astromediavault.AstroMediaVault.repository.VideoMetadataRepository;
+import com.astromediavault.AstroMediaVault.service.MediaLookupCache;
+import com.astromediavault.AstroMediaVault.service.MediaMetrics;
+import com.astromediavault.AstroMediaVault.service.ProcessRunner;
+import com.astromediavault.AstroMediaVault.service.SeekPreviewService;
+import com.astromediavault.AstroMediaVault.service.VideoTranscodeService;
+import com.astromediavault.AstroMediaVault.service.WorkerSlots;
 
 import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -19,13 +32,22 @@ import java.util.UUID;
 public class ThumbnailGenerationConsumer {
 
     private final MediaRepository mediaRepository;
+    private final ProcessRunner processRunner;
+    private final MediaMetrics mediaMetrics;
+    private final VideoMetadataRepository videoMetadataRepository;
+    private final VideoTranscodeService videoTranscodeService;
+    private final SeekPreviewService seekPreviewService;
+    private final MediaLookupCache mediaLookupCache;
 
     @Value("${storage.local.path}")
     private String localStoragePath;
 
+    @Value("${media.workers.thumbnail-timeout:2m}")
+    private Duration thumbnailTimeout;
+
     private static final Logger logger = LoggerFactory.getLogger(ThumbnailGenerationConsumer.class);
 
-    @RabbitListener(queues = "thumbnail-generation-queue")
+    @RabbitListener(queues = "thumbnail-generation-queue.v2")
     public void generateThumbnail(String mediaId) {
         UUID id = UUID.fromString(mediaId);
         Media media = mediaRepository.findById(id)
@@ -42,30 +64,77 @@ public class ThumbnailGenerationConsumer {
 
         // 📂 Store thumbnails in a separate directory
         String thumbnailDir = Paths
-                .get(localStoragePath, "users", media.getUser().getId().toString(), "videos", "thumbnails").toString();
+                .get(localStoragePath, "users", media.getArtifactUserId().toString(), "videos", "thumbnails").toString();
         File thumbnailFolder = new File(thumbnailDir);
         if (!thumbnailFolder.exists() && !thumbnailFolder.mkdirs()) {
             logger.error("Failed to create thumbnail folder: {}", thumbnailDir);
             return;
         }
 
-        String thumbnailPath = Paths.get(thumbnailDir, media.getId().toString() + ".jpg").toString();
+        String thumbnailPath = Paths.get(thumbnailDir, media.getArtifactMediaId().toString() + ".jpg").toString();
 
+        // -ss before -i seeks in the input instead of decoding everything up to the poster frame
         String[] command = {
-                "ffmpeg", "-i", videoFile.getPath(),
-                "-ss", "00:00:05", "-vframes", "1",
+                "ffmpeg", "-y", "-ss", "00:00:05", "-i", videoFile.getPath(),
+                "-vframes", "1",
                 thumbnailPath
         };
 
         try {
-            ProcessBuilder processBuilder = new ProcessBuilder(command);
-            processBuilder.inheritIO();
-            Process process = processBuilder.start();
-            process.waitFor();
+            int exitCode = processRunner.run(WorkerSlots.Resource.FFMPEG, thumbnailTimeout, command);
+            File thumbnail = new File(thumbnailPath);
+            if (exitCode != 0 || !thumbnail.exists()) {
+                logger.error("Thumbnail generation failed with exit code {}: {}", exitCode, media.getId());
+                mediaMetrics.recordFailure("thumbnail");
+                return;
+            }
 
+            mediaMetrics.recordOutput(Media.FileType.VIDEO, "thumbnail", thumbnail.length());
             logger.info("Thumbnail generated: {}", thumbnailPath);
         } catch (Exception e) {
             logger.error("Thumbnail generation failed: {}", e.getMessage(), e);
+            mediaMetrics.recordFailure("thumbnail");
+        }
+
+        generateSeekPreview(media, videoFile);
+    }
+
+    /**
+     * Sprite sheets and WebVTT track for scrubbing, staged next to the preview folder and published in one rename
+     */
+    private void generateSeekPreview(Media media, File videoFile) {
+        Optional<VideoMetadata> metadata = videoMetadataRepository.findByMediaId(media.getId());
+        if (metadata.isEmpty()) {
+            logger.warn("No video metadata yet, skipping seek preview for media: {}", media.getId());
+            return;
+        }
+
+        Path previewDirectory = seekPreviewService.previewDirectory(media);
+        Path staging = previewDirectory.resolveSibling(previewDirectory.getFileName() + ".staging");
+        try {
+            if (Files.exists(staging)) {
+                FileUtils.deleteDirectory(staging.toFile());
+            }
+            Files.createDirectories(staging);
+
+            int tileHeight = videoTranscodeService.previewTileHeight(videoTranscodeService.plan(media));
+            int exitCode = processRunner.run(WorkerSlots.Resource.FFMPEG, thumbnailTimeout,
+                    seekPreviewService.spriteCommand(videoFile.getPath(), staging, tileHeight));
+            if (exitCode != 0) {
+                logger.error("Seek preview generation failed with exit code {}: {}", exitCode, media.getId());
+                mediaMetrics.recordFailure("preview");
+                FileUtils.deleteDirectory(staging.toFile());
+                return;
+            }
+
+            seekPreviewService.writeTrack(staging, metadata.get().getDurationSeconds(), tileHeight);
+            seekPreviewService.publish(media, staging);
+            // Stream lookups cached before the preview existed have no thumbnail track
+            mediaLookupCache.invalidate(media.getId());
+            logger.info("Seek preview generated for media: {}", media.getId());
+        } catch (Exception e) {
+            logger.error("Seek preview generation failed: {}", e.getMessage(), e);
+            mediaMetrics.recordFailure("preview");
         }
     }
 }
\ No newline at end of file
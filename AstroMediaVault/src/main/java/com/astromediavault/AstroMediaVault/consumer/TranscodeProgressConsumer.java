@@ -0,0 +1,28 @@
+package com.astromediavault.AstroMediaVault.consumer;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Service;
+
+import com.astromediavault.AstroMediaVault.service.TranscodeProgressService;
+
+@Service
+@RequiredArgsConstructor
+public class TranscodeProgressConsumer {
+
+    private final TranscodeProgressService transcodeProgressService;
+
+    private static final Logger logger = LoggerFactory.getLogger(TranscodeProgressConsumer.class);
+
+    // A single consumer keeps the samples of a media in publish order
+    @RabbitListener(queues = "#{transcodeProgressQueue.name}", concurrency = "1")
+    public void relayProgress(String message) {
+        try {
+            transcodeProgressService.onSample(message);
+        } catch (Exception e) {
+            logger.warn("Dropping progress message: {}", e.getMessage());
+        }
+    }
+}
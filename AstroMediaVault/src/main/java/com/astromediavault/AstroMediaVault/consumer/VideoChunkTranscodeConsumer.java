@@ -0,0 +1,34 @@
+package com.astromediavault.AstroMediaVault.consumer;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Service;
+
+import com.astromediavault.AstroMediaVault.service.ChunkedTranscodeService;
+
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+public class VideoChunkTranscodeConsumer {
+
+    private final ChunkedTranscodeService chunkedTranscodeService;
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoChunkTranscodeConsumer.class);
+
+    @RabbitListener(queues = "video-chunk-transcode-queue.v2")
+    public void transcodeChunk(String chunkId) {
+        try {
+            chunkedTranscodeService.encode(UUID.fromString(chunkId));
+        } catch (Exception e) {
+            logger.error("Chunk transcoding failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @RabbitListener(queues = "video-stitch-queue.v2")
+    public void stitchChunks(String mediaId) {
+        chunkedTranscodeService.stitch(UUID.fromString(mediaId));
+    }
+}
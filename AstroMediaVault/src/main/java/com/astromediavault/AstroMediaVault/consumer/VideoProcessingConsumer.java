@@ -1,25 +1,39 @@
 package com.astromediavault.AstroMediaVault.consumer;
 
 import lombok.RequiredArgsConstructor;
+import org.apache.tomcat.util.http.fileupload.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.astromediavault.AstroMediaVault.model.Media;
-import com.astromediavault.AstroMediaVault.model.TranscodedVideo;
+import com.astromediavault.AstroMediaVault.model.ProcessingJob;
 import com.astromediavault.AstroMediaVault.model.VideoMetadata;
-import com.astromediavault.AstroMediaVault.model.VideoSegment;
 import com.astromediavault.AstroMediaVault.repository.MediaRepository;
-import com.astromediavault.AstroMediaVault.repository.TranscodedVideoRepository;
 import com.astromediavault.AstroMediaVault.repository.VideoMetadataRepository;
-import com.astromediavault.AstroMediaVault.repository.VideoSegmentRepository;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.astromediavault.AstroMediaVault.service.ChunkedTranscodeService;
+import com.astromediavault.AstroMediaVault.service.ComplexityAnalysisService;
+import com.astromediavault.AstroMediaVault.service.JobLeaseService;
+import com.astromediavault.AstroMediaVault.service.JobPriorityPolicy;
+import com.astromediavault.AstroMediaVault.service.MediaMetrics;
+import com.astromediavault.AstroMediaVault.service.ProcessRunner;
+import com.astromediavault.AstroMediaVault.service.VideoLadderPlanner;
+import com.astromediavault.AstroMediaVault.service.ProcessingStateService;
+import com.astromediavault.AstroMediaVault.service.SeekPreviewService;
+import com.astromediavault.AstroMediaVault.service.TranscodeProgressService;
+import com.astromediavault.AstroMediaVault.service.VideoService;
+import com.astromediavault.AstroMediaVault.service.VideoTranscodeService;
+import com.astromediavault.AstroMediaVault.service.WorkerSlots;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.List;
 import java.util.UUID;
 
@@ -29,156 +43,222 @@ public class VideoProcessingConsumer {
 
     private final MediaRepository mediaRepository;
     private final VideoMetadataRepository videoMetadataRepository;
-    private final TranscodedVideoRepository transcodedVideoRepository;
-    private final VideoSegmentRepository videoSegmentRepository;
+    private final ProcessingStateService processingStateService;
+    private final ProcessRunner processRunner;
+    private final VideoTranscodeService videoTranscodeService;
+    private final ChunkedTranscodeService chunkedTranscodeService;
+    private final VideoLadderPlanner videoLadderPlanner;
+    private final MediaMetrics mediaMetrics;
+    private final SeekPreviewService seekPreviewService;
+    private final TranscodeProgressService transcodeProgressService;
+    private final VideoService videoService;
+    private final RabbitTemplate rabbitTemplate;
+    private final JobLeaseService jobLeaseService;
+    private final ComplexityAnalysisService complexityAnalysisService;
 
     @Value("${storage.local.path}")
     private String localStoragePath;
 
+    @Value("${media.workers.transcode-timeout:2h}")
+    private Duration transcodeTimeout;
+
     private static final Logger logger = LoggerFactory.getLogger(VideoProcessingConsumer.class);
 
-    @RabbitListener(queues = "video-processing-queue")
+    @RabbitListener(queues = "video-processing-queue.v2")
     public void processVideo(String mediaId) {
         UUID id = UUID.fromString(mediaId);
         Media media = mediaRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Media not found: " + id));
 
+        // Redelivered messages of a job that is done or running elsewhere are skipped
+        JobLeaseService.Lease lease = jobLeaseService.acquire(ProcessingJob.Kind.VIDEO_TRANSCODE, media, mediaId);
+        if (lease == null) {
+            return;
+        }
+
         String fullPath = Paths.get(localStoragePath, media.getStoragePath()).toString();
         File originalVideo = new File(fullPath);
 
         if (!originalVideo.exists()) {
             logger.error("Video file not found for processing: {}", fullPath);
+            jobLeaseService.fail(lease, media, "Original video file not found", false);
             return;
         }
 
-        // 🔍 Extract metadata from video
-        VideoMetadata metadata = extractVideoMetadata(originalVideo, media);
-        videoMetadataRepository.save(metadata);
+        // 🔍 Metadata is probed at ingest; jobs queued before that still probe here
+        VideoMetadata metadata = videoMetadataRepository.findByMediaId(media.getId()).orElse(null);
+        if (metadata == null) {
+            try {
+                metadata = videoMetadataRepository.save(videoService.probe(media));
+            } catch (RuntimeException e) {
+                jobLeaseService.fail(lease, media, e.getMessage(), true);
+                return;
+            }
+        }
+
+        // Per-title ladder: analysed once, before the ladder of a whole-file or chunked transcode is planned
+        if (metadata.getComplexity() == null && complexityAnalysisService.isEnabled()) {
+            Double complexity = complexityAnalysisService.analyse(originalVideo.getPath(), metadata);
+            if (complexity != null) {
+                videoMetadataRepository.updateComplexity(media.getId(), complexity);
+                metadata.setComplexity(complexity);
+            }
+        }
 
         // 📂 Organize HLS storage path
-        String hlsDirectory = Paths.get(localStoragePath, "users", media.getUser().getId().toString(), "videos", "hls",
-                media.getId().toString()).toString();
+        String hlsDirectory = videoTranscodeService.hlsDirectory(media).toString();
         File hlsFolder = new File(hlsDirectory);
         if (!hlsFolder.exists() && !hlsFolder.mkdirs()) {
             logger.error("Failed to create HLS folder: {}", hlsDirectory);
+            jobLeaseService.fail(lease, media, "Failed to create HLS folder", true);
             return;
         }
 
-        logger.info("Processing video for HLS: {}", originalVideo.getPath());
+        logger.info("Processing video for HLS: {} (attempt {})", originalVideo.getPath(), lease.getAttempt());
 
+        Path staging = videoTranscodeService.stagingDirectory(media);
+        boolean early = videoTranscodeService.isEarlyPlayback();
+        // Outputs are staged and only become visible once all of them were written. With early playback
+        // the HLS output goes straight to its final folder as growing event playlists instead.
+        Path hlsOutput = early ? Paths.get(hlsDirectory) : staging;
         try {
+            boolean chunked = chunkedTranscodeService.shouldChunk(metadata.getDurationSeconds());
+            if (chunked || !videoTranscodeService.isFused()) {
+                // Poster and seek preview come from their own job; queued once the metadata they need is saved
+                JobPriorityPolicy.publish(rabbitTemplate, "thumbnail-generation-queue.v2", media);
+            }
+            if (chunked) {
+                // Long videos are encoded piece by piece across the worker fleet and stitched afterwards
+                chunkedTranscodeService.split(media, originalVideo.getPath());
+                jobLeaseService.complete(lease);
+                return;
+            }
+
             // 🔥 FFmpeg command for HLS generation
-            String[] command = {
-                    "ffmpeg", "-i", originalVideo.getPath(),
-                    "-preset", "veryfast", "-g", "48", "-sc_threshold", "0",
-
-                    "-map", "0:v", "-map", "0:a", "-c:v:0", "libx264", "-b:v:0", "800k", "-s:v:0", "640x360",
-                    "-map", "0:v", "-map", "0:a", "-c:v:1", "libx264", "-b:v:1", "1400k", "-s:v:1", "1280x720",
-                    "-map", "0:v", "-map", "0:a", "-c:v:2", "libx264", "-b:v:2", "2800k", "-s:v:2", "1920x1080",
-
-                    "-f", "hls",
-                    "-hls_time", "6",
-                    "-hls_playlist_type", "vod",
-                    "-hls_segment_filename", hlsDirectory + "/stream_%v_%03d.ts",
-                    "-master_pl_name", "master.m3u8",
-                    "-var_stream_map", "v:0,a:0 v:1,a:1 v:2,a:2",
-                    hlsDirectory + "/stream_%v.m3u8"
-            };
-
-            ProcessBuilder processBuilder = new ProcessBuilder(command);
-            processBuilder.inheritIO();
-            Process process = processBuilder.start();
-            int exitCode = process.waitFor();
+            List<VideoLadderPlanner.Rendition> renditions = videoLadderPlanner.plan(metadata);
+            List<VideoLadderPlanner.AudioTrack> audioTracks = videoLadderPlanner.audioTracks(metadata);
+            List<String> playlists = VideoTranscodeService.playlistNames(renditions, audioTracks);
+            logger.info("Ladder for media {}: {}, {} audio track(s)", media.getId(),
+                    renditions.stream().map(r -> r.getResolution() + "@" + r.getBitrateKbps() + "k").toList(),
+                    audioTracks.size());
+
+            // A retry picks up after the last segment every playlist of the previous attempt fully wrote
+            double resumeSeconds = lease.isRetry()
+                    ? videoTranscodeService.resumePoint(hlsOutput, playlists, videoTranscodeService.getPackaging())
+                    : 0;
+            boolean resumed = resumeSeconds > 0;
+            Path stagedPreview = staging.resolve(VideoTranscodeService.STAGED_PREVIEW);
+            String[] command;
+            if (resumed) {
+                logger.info("Resuming media {} at {}s of {}s", media.getId(), resumeSeconds,
+                        metadata.getDurationSeconds());
+                deleteFolder(hlsOutput.resolve(VideoTranscodeService.RESUME_DIRECTORY));
+                Files.createDirectories(hlsOutput.resolve(VideoTranscodeService.RESUME_DIRECTORY));
+                if (videoTranscodeService.isFused()) {
+                    // The resumed part alone cannot make the poster and seek preview of the whole video
+                    deleteFolder(stagedPreview);
+                    Files.deleteIfExists(staging.resolve(VideoTranscodeService.STAGED_POSTER));
+                    JobPriorityPolicy.publish(rabbitTemplate, "thumbnail-generation-queue.v2", media);
+                }
+                command = videoTranscodeService.resumeCommand(originalVideo.getPath(), hlsOutput, renditions,
+                        audioTracks, resumeSeconds);
+            } else {
+                deleteFolder(staging);
+                if (early) {
+                    deleteFolder(hlsOutput);
+                    Files.createDirectories(hlsOutput);
+                }
+                Files.createDirectories(stagedPreview);
+                command = videoTranscodeService.isFused()
+                        ? videoTranscodeService.fusedCommand(originalVideo.getPath(), hlsOutput.toString(),
+                                renditions, audioTracks,
+                                videoTranscodeService.posterSeconds(metadata.getDurationSeconds()),
+                                staging.resolve(VideoTranscodeService.STAGED_POSTER), stagedPreview, early,
+                                videoTranscodeService.getPackaging())
+                        : videoTranscodeService.hlsLadderCommand(originalVideo.getPath(), hlsOutput.toString(),
+                                renditions, audioTracks, null, early, videoTranscodeService.getPackaging());
+            }
+
+            int exitCode;
+            try (TranscodeProgressService.Tracking progress = transcodeProgressService.track(media,
+                    metadata.getDurationSeconds())) {
+                ProcessRunner.ProgressListener listener = progress.andThen(lease);
+                if (early) {
+                    listener = listener.andThen(videoTranscodeService.masterWhenPlayable(hlsOutput, renditions,
+                            audioTracks));
+                }
+                exitCode = processRunner.run(WorkerSlots.Resource.FFMPEG, transcodeTimeout, listener, command);
+            }
 
             if (exitCode == 0) {
                 logger.info("Video processing completed successfully: {}", media.getId());
+                // A reclaimed job is published by the attempt that took it over
+                if (!jobLeaseService.renew(lease)) {
+                    logger.warn("Dropping outputs of media {}, its job was taken over", media.getId());
+                    return;
+                }
+
+                if (resumed) {
+                    videoTranscodeService.appendResumed(hlsOutput, playlists, resumeSeconds);
+                }
+                if (videoTranscodeService.isFused() && !resumed) {
+                    seekPreviewService.writeTrack(stagedPreview, metadata.getDurationSeconds(),
+                            videoTranscodeService.previewTileHeight(renditions));
+                } else {
+                    deleteFolder(stagedPreview);
+                }
+                if (early) {
+                    videoTranscodeService.finalizeEventPlaylists(media, renditions, audioTracks);
+                    videoTranscodeService.publishSidecars(media, staging);
+                    deleteFolder(staging);
+                } else {
+                    videoTranscodeService.writeMasterPlaylist(staging, renditions, audioTracks);
+                    videoTranscodeService.publishStaged(media, staging);
+                }
+                if (videoTranscodeService.isFused() && Files.exists(videoTranscodeService.posterPath(media))) {
+                    mediaMetrics.recordOutput(Media.FileType.VIDEO, "thumbnail",
+                            Files.size(videoTranscodeService.posterPath(media)));
+                }
 
                 // Store transcoded videos in DB
-                saveTranscodedVideo(media, hlsDirectory, metadata);
-                saveVideoSegments(media, hlsDirectory);
+                videoTranscodeService.saveRenditions(media, renditions, audioTracks,
+                        videoTranscodeService.getPackaging());
+                jobLeaseService.complete(lease);
+                processingStateService.markReady(media);
             } else {
                 logger.error("Video processing failed with exit code {}: {}", exitCode, media.getId());
+                mediaMetrics.recordFailure("transcode");
+                fail(lease, media, "ffmpeg exited with code " + exitCode, staging, hlsOutput);
             }
         } catch (Exception e) {
+            if (lease.isLost()) {
+                logger.warn("Stopped processing media {}, its job was taken over: {}", media.getId(), e.getMessage());
+                return;
+            }
             logger.error("Video processing failed: {}", e.getMessage(), e);
+            mediaMetrics.recordFailure("transcode");
+            fail(lease, media, e.getMessage(), staging, hlsOutput);
         }
     }
 
     /**
-     * Extract video metadata using FFmpeg
+     * Outputs of a failed attempt are kept while the job will be retried, so the retry can resume them,
+     * and when the job was taken over, since the new attempt is writing them
      */
-    private VideoMetadata extractVideoMetadata(File videoFile, Media media) {
-        try {
-            String[] command = { "ffprobe", "-v", "error", "-select_streams", "v:0", "-show_entries",
-                    "stream=width,height,codec_name,r_frame_rate,bit_rate,duration", "-of", "json",
-                    videoFile.getAbsolutePath() };
-
-            ProcessBuilder processBuilder = new ProcessBuilder(command);
-            processBuilder.redirectErrorStream(true);
-            Process process = processBuilder.start();
-
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode jsonNode = objectMapper.readTree(process.getInputStream());
-
-            JsonNode stream = jsonNode.get("streams").get(0);
-            return VideoMetadata.builder()
-                    .media(media)
-                    .title(media.getFileName())
-                    .description("Extracted via FFmpeg")
-                    .resolution(stream.get("width").asInt() + "x" + stream.get("height").asInt())
-                    .frameRate(stream.get("r_frame_rate").asText())
-                    .codec(stream.get("codec_name").asText())
-                    .bitrate(stream.get("bit_rate").asInt())
-                    .durationSeconds(stream.get("duration").asInt())
-                    .build();
-
-        } catch (Exception e) {
-            logger.error("Failed to extract video metadata: {}", e.getMessage(), e);
-            throw new RuntimeException("Metadata extraction failed");
+    private void fail(JobLeaseService.Lease lease, Media media, String error, Path staging, Path hlsOutput) {
+        if (jobLeaseService.fail(lease, media, error, true) == JobLeaseService.Outcome.FAILED) {
+            deleteFolder(staging);
+            deleteFolder(hlsOutput);
         }
     }
 
-    /**
-     * Save transcoded video details
-     */
-    private void saveTranscodedVideo(Media media, String hlsDirectory, VideoMetadata metadata) {
-        String relativeHlsDirectory = Paths.get("users", media.getUser().getId().toString(), "videos", "hls",
-                media.getId().toString()).toString(); // ✅ Store as relative path
-
-        List<String> resolutions = List.of("640x360", "1280x720", "1920x1080");
-        List<String> bitrates = List.of("800k", "1400k", "2800k");
-
-        for (int i = 0; i < resolutions.size(); i++) {
-            TranscodedVideo transcodedVideo = new TranscodedVideo();
-            transcodedVideo.setMedia(media);
-            transcodedVideo.setResolution(resolutions.get(i));
-            transcodedVideo.setBitrate(Integer.parseInt(bitrates.get(i).replace("k", "000")));
-            transcodedVideo.setFilePath(Paths.get(relativeHlsDirectory, "stream_" + i + ".m3u8").toString()); // ✅ Store
-                                                                                                              // relative
-            transcodedVideoRepository.save(transcodedVideo);
-        }
-    }
-
-    /**
-     * Save video segments in database
-     */
-    private void saveVideoSegments(Media media, String hlsDirectory) {
-        String relativeHlsDirectory = Paths.get("users", media.getUser().getId().toString(), "videos", "hls",
-                media.getId().toString()).toString(); // ✅ Store as relative path
-
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 10; j++) { // Assuming 10 segments per resolution
-                VideoSegment segment = new VideoSegment();
-                segment.setMedia(media);
-                segment.setSegmentIndex(j);
-                segment.setResolution(i == 0 ? "360p" : i == 1 ? "720p" : "1080p");
-                segment.setSegmentPath(
-                        Paths.get(relativeHlsDirectory, "stream_" + i + "_" + String.format("%03d.ts", j)).toString()); // ✅
-                                                                                                                        // Store
-                                                                                                                        // relative
-                videoSegmentRepository.save(segment);
+    private void deleteFolder(Path folder) {
+        try {
+            if (Files.isDirectory(folder)) {
+                FileUtils.deleteDirectory(folder.toFile());
             }
+        } catch (IOException e) {
+            logger.warn("Failed to delete folder: {} - {}", folder, e.getMessage());
         }
     }
-
 }
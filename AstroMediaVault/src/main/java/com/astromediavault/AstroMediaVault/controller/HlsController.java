@@ -0,0 +1,29 @@
+package com.astromediavault.AstroMediaVault.controller;
+
+import com.astromediavault.AstroMediaVault.service.HlsDeliveryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.UUID;
+
+/**
+ * HLS playlists and segments of a video: /hls/{mediaId}/{version}/master.m3u8 and the files it references
+ */
+@RestController
+@RequestMapping("/hls")
+@RequiredArgsConstructor
+public class HlsController {
+
+    private final HlsDeliveryService hlsDeliveryService;
+
+    @GetMapping("/{mediaId}/{version}/{file:.+}")
+    public ResponseEntity<Resource> serve(@PathVariable UUID mediaId, @PathVariable String version,
+            @PathVariable String file) {
+        return hlsDeliveryService.serve(mediaId, version, file);
+    }
+}
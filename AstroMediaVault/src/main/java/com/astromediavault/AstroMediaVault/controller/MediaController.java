@@ -1,21 +1,29 @@
 package com.astromediavault.AstroMediaVault.controller;
 
 import com.astromediavault.AstroMediaVault.dto.ApiResponse;
+import com.astromediavault.AstroMediaVault.dto.BulkUploadResponse;
 import com.astromediavault.AstroMediaVault.dto.MediaResponse;
+import com.astromediavault.AstroMediaVault.dto.MediaStatusResponse;
 import com.astromediavault.AstroMediaVault.dto.MediaUploadRequest;
 import com.astromediavault.AstroMediaVault.dto.StreamingResponse;
 import com.astromediavault.AstroMediaVault.repository.MediaRepository;
+import com.astromediavault.AstroMediaVault.service.BulkIngestService;
 import com.astromediavault.AstroMediaVault.service.ImageService;
 import com.astromediavault.AstroMediaVault.service.MediaService;
 import com.astromediavault.AstroMediaVault.service.PDFService;
+import com.astromediavault.AstroMediaVault.service.TranscodeProgressService;
 
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import java.io.IOException;
@@ -34,6 +42,8 @@ public class MediaController {
     private final MediaRepository mediaRepository;
     private final PDFService pdfService;
     private final ImageService imageService;
+    private final BulkIngestService bulkIngestService;
+    private final TranscodeProgressService transcodeProgressService;
 
     private static final Logger logger = LoggerFactory.getLogger(MediaController.class);
 
@@ -44,7 +54,7 @@ public class MediaController {
      * @param description The description of the media
      * @param fileType    The type of media (VIDEO, IMAGE, PDF)
      * @param file        The media file
-     * @return ResponseEntity containing success message and media path
+     * @return 202 Accepted with the media id once the file is stored; poll the status endpoint for processing
      */
     @PostMapping("/upload")
     public ResponseEntity<ApiResponse<String>> uploadMedia(
@@ -69,7 +79,82 @@ public class MediaController {
         request.setGenerateImgRes(Boolean.parseBoolean(generateImgResolution));
 
         ApiResponse<String> response = mediaService.uploadMedia(request, userId);
-        return ResponseEntity.ok(response);
+        return accepted(response);
+    }
+
+    /**
+     * Upload a media file as a raw request body (application/octet-stream).
+     * The body is read incrementally and written straight to its final location,
+     * so large videos are never spooled to a multipart temp file first.
+     *
+     * @param fileName The original file name of the media
+     * @return 202 Accepted with the media id once the file is stored
+     */
+    @PutMapping("/upload/stream")
+    public ResponseEntity<ApiResponse<String>> uploadMediaStream(
+            @RequestParam("userId") UUID userId,
+            @RequestParam("title") String title,
+            @RequestParam("description") String description,
+            @RequestParam("fileType") String fileType,
+            @RequestParam("fileName") String fileName,
+            @RequestParam(value = "generateImgResolution", required = false) String generateImgResolution,
+            HttpServletRequest httpRequest) throws IOException {
+
+        logger.info("Received streaming upload: userId={}, title={}, fileType={}, contentLength={}", userId, title,
+                fileType, httpRequest.getContentLengthLong());
+
+        MediaUploadRequest request = new MediaUploadRequest();
+        request.setTitle(title);
+        request.setDescription(description);
+        request.setFileType(fileType);
+        request.setGenerateImgRes(Boolean.parseBoolean(generateImgResolution));
+
+        ApiResponse<String> response = mediaService.uploadMediaStream(request, userId, fileName,
+                httpRequest.getInputStream());
+        return accepted(response);
+    }
+
+    /**
+     * Upload many files in one multipart request. The media type is detected from each file name
+     * unless fileType is given.
+     *
+     * @return 202 Accepted with the ids of the stored media and the files that were skipped
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<ApiResponse<BulkUploadResponse>> uploadBulk(
+            @RequestParam("userId") UUID userId,
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(value = "fileType", required = false) String fileType,
+            @RequestParam(value = "generateImgResolution", required = false) String generateImgResolution) {
+
+        logger.info("Received bulk upload: userId={}, files={}", userId, files.size());
+
+        BulkUploadResponse response = bulkIngestService.ingestFiles(userId, files, fileType,
+                Boolean.parseBoolean(generateImgResolution));
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Bulk upload received, processing queued", response));
+    }
+
+    /**
+     * Upload a ZIP archive as a raw request body. Entries are extracted on the fly
+     * straight into their final location.
+     *
+     * @return 202 Accepted with the ids of the stored media and the entries that were skipped
+     */
+    @PutMapping("/bulk/archive")
+    public ResponseEntity<ApiResponse<BulkUploadResponse>> uploadArchive(
+            @RequestParam("userId") UUID userId,
+            @RequestParam(value = "fileType", required = false) String fileType,
+            @RequestParam(value = "generateImgResolution", required = false) String generateImgResolution,
+            HttpServletRequest httpRequest) throws IOException {
+
+        logger.info("Received archive upload: userId={}, contentLength={}", userId,
+                httpRequest.getContentLengthLong());
+
+        BulkUploadResponse response = bulkIngestService.ingestArchive(userId, httpRequest.getInputStream(),
+                fileType, Boolean.parseBoolean(generateImgResolution));
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Archive received, processing queued", response));
     }
 
     /**
@@ -115,6 +200,23 @@ public class MediaController {
         return ResponseEntity.ok(mediaService.deleteMedia(mediaId));
     }
 
+    /**
+     * Get the processing state of a media (RECEIVED, PROCESSING, READY, FAILED)
+     */
+    @GetMapping("/{mediaId}/status")
+    public ResponseEntity<ApiResponse<MediaStatusResponse>> getMediaStatus(@PathVariable UUID mediaId) {
+        return ResponseEntity.ok(mediaService.fetchMediaStatus(mediaId));
+    }
+
+    /**
+     * Live transcode progress as Server-Sent Events: percent complete, speed (x realtime) and ETA.
+     * The stream ends with an event carrying READY or FAILED.
+     */
+    @GetMapping(value = "/{mediaId}/progress", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamProgress(@PathVariable UUID mediaId) {
+        return transcodeProgressService.subscribe(mediaId);
+    }
+
     /**
      * Get video streaming URL
      */
@@ -133,7 +235,16 @@ public class MediaController {
             @PathVariable UUID mediaId,
             @RequestParam(value = "resolution", required = false) String resolution,
             @RequestParam(value = "format", defaultValue = "webp") String format,
-            @RequestParam(value = "download", defaultValue = "false") boolean download) {
+            @RequestParam(value = "download", defaultValue = "false") boolean download) throws IOException {
         return imageService.streamImage(mediaId, resolution, format, download);
     }
+
+    /**
+     * Stored uploads are acknowledged with 202, processing continues asynchronously
+     */
+    private ResponseEntity<ApiResponse<String>> accepted(ApiResponse<String> response) {
+        return response.isSuccess()
+                ? ResponseEntity.status(HttpStatus.ACCEPTED).body(response)
+                : ResponseEntity.ok(response);
+    }
 }
@@ -34,7 +34,8 @@ public class PdfViewerController {
             throw new MediaNotFoundException("Media is not a PDF: " + mediaId);
         }
 
-        String pdfUrl = serverHost + "/" + media.getStoragePath().replace("\\", "/");
+        // Originals are not served as static files
+        String pdfUrl = serverHost + "/api/media/" + media.getId() + "/pdf-stream";
 
         logger.info("Rendering PDF Viewer for URL: {}", pdfUrl);
         model.addAttribute("pdfUrl", pdfUrl);
@@ -0,0 +1,104 @@
+package com.astromediavault.AstroMediaVault.controller;
+
+import com.astromediavault.AstroMediaVault.dto.ApiResponse;
+import com.astromediavault.AstroMediaVault.dto.MediaUploadRequest;
+import com.astromediavault.AstroMediaVault.dto.UploadSessionResponse;
+import com.astromediavault.AstroMediaVault.service.UploadSessionService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Resumable, chunked uploads for large media:
+ * create a session, PUT numbered chunks (in any order, possibly in parallel), then complete it.
+ */
+@RestController
+@RequestMapping("/api/media/uploads")
+@RequiredArgsConstructor
+public class UploadSessionController {
+
+    private final UploadSessionService uploadSessionService;
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadSessionController.class);
+
+    /**
+     * Open an upload session
+     *
+     * @param fileName  The original file name of the media
+     * @param totalSize The total size of the file in bytes
+     * @return ResponseEntity containing the session id and the chunk size to use
+     */
+    @PostMapping
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> createSession(
+            @RequestParam("userId") UUID userId,
+            @RequestParam("title") String title,
+            @RequestParam("description") String description,
+            @RequestParam("fileType") String fileType,
+            @RequestParam("fileName") String fileName,
+            @RequestParam("totalSize") long totalSize,
+            @RequestParam(value = "generateImgResolution", required = false) String generateImgResolution)
+            throws IOException {
+
+        logger.info("Opening upload session: userId={}, fileName={}, totalSize={}", userId, fileName, totalSize);
+
+        MediaUploadRequest request = new MediaUploadRequest();
+        request.setTitle(title);
+        request.setDescription(description);
+        request.setFileType(fileType);
+        request.setGenerateImgRes(Boolean.parseBoolean(generateImgResolution));
+
+        UploadSessionResponse session = uploadSessionService.createSession(userId, request, fileName, totalSize);
+        return ResponseEntity.ok(ApiResponse.success("Upload session created", session));
+    }
+
+    /**
+     * Upload one chunk as a raw request body
+     */
+    @PutMapping("/{sessionId}/chunks/{chunkIndex}")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> uploadChunk(
+            @PathVariable UUID sessionId,
+            @PathVariable int chunkIndex,
+            HttpServletRequest httpRequest) throws IOException {
+        UploadSessionResponse session = uploadSessionService.writeChunk(sessionId, chunkIndex,
+                httpRequest.getInputStream());
+        return ResponseEntity.ok(ApiResponse.success("Chunk " + chunkIndex + " received", session));
+    }
+
+    /**
+     * Fetch the received and missing chunks of a session
+     */
+    @GetMapping("/{sessionId}")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> getSession(@PathVariable UUID sessionId) {
+        UploadSessionResponse session = uploadSessionService.getSession(sessionId);
+        return ResponseEntity.ok(ApiResponse.success("Upload session retrieved", session));
+    }
+
+    /**
+     * Complete a session once all chunks are received; answers 202 with the media id
+     */
+    @PostMapping("/{sessionId}/complete")
+    public ResponseEntity<ApiResponse<String>> completeSession(@PathVariable UUID sessionId) throws IOException {
+        ApiResponse<String> response = uploadSessionService.completeSession(sessionId);
+        return response.isSuccess()
+                ? ResponseEntity.status(HttpStatus.ACCEPTED).body(response)
+                : ResponseEntity.ok(response);
+    }
+
+    /**
+     * Abort a session and discard its chunks
+     */
+    @DeleteMapping("/{sessionId}")
+    public ResponseEntity<ApiResponse<String>> abortSession(@PathVariable UUID sessionId) {
+        uploadSessionService.abortSession(sessionId);
+        return ResponseEntity.ok(ApiResponse.success("Upload session aborted", null));
+    }
+}
@@ -4,18 +4,18 @@ import com.astromediavault.AstroMediaVault.dto.SubtitleResponse;
 import com.astromediavault.AstroMediaVault.exception.MediaNotFoundException;
 import com.astromediavault.AstroMediaVault.model.Media;
 import com.astromediavault.AstroMediaVault.repository.MediaRepository;
+import com.astromediavault.AstroMediaVault.service.HlsDeliveryService;
+import com.astromediavault.AstroMediaVault.service.SeekPreviewService;
 import com.astromediavault.AstroMediaVault.service.SubtitleService;
 
 import lombok.RequiredArgsConstructor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
-import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -27,9 +27,8 @@ public class VideoPlayerController {
 
     private final MediaRepository mediaRepository;
     private final SubtitleService subtitleService;
-
-    @Value("${server.host}") // Backend URL from application.yml
-    private String serverHost;
+    private final SeekPreviewService seekPreviewService;
+    private final HlsDeliveryService hlsDeliveryService;
 
     private static final Logger logger = LoggerFactory.getLogger(VideoPlayerController.class);
 
@@ -38,13 +37,8 @@ public class VideoPlayerController {
         Media media = mediaRepository.findById(mediaId)
                 .orElseThrow(() -> new MediaNotFoundException("Media not found: " + mediaId));
 
-        // ✅ OS-independent HLS URL
-        String streamUrl = Paths.get("users", media.getUser().getId().toString(), "videos", "hls",
-                media.getId().toString(), "master.m3u8")
-                .toString()
-                .replace("\\", "/"); // Ensure proper URL format
-
-        streamUrl = serverHost + "/" + streamUrl;
+        // ✅ Versioned URL on the HLS endpoint
+        String streamUrl = hlsDeliveryService.masterUrl(media);
 
         // ✅ Fetch subtitles (ensure non-null)
         List<SubtitleResponse> subtitles = subtitleService.getSubtitlesForMedia(media.getId());
@@ -60,6 +54,7 @@ public class VideoPlayerController {
         // ✅ Add data to model
         model.addAttribute("streamUrl", streamUrl);
         model.addAttribute("subtitles", subtitles);
+        model.addAttribute("thumbnailTrackUrl", seekPreviewService.trackUrl(media));
 
         return "video-player"; // 🎥 Thymeleaf template
     }
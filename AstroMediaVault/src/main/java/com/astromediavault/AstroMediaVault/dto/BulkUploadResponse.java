@@ -0,0 +1,24 @@
+package com.astromediavault.AstroMediaVault.dto;
+
+import lombok.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkUploadResponse {
+    private int received;
+    private int stored;
+    private int deduplicated;
+    @Builder.Default
+    private List<UUID> mediaIds = new ArrayList<>();
+    @Builder.Default
+    private List<String> skipped = new ArrayList<>();
+    @Builder.Default
+    private List<UUID> notQueued = new ArrayList<>();
+}
@@ -18,5 +18,6 @@ public class MediaResponse {
     private long fileSize;
     private String storagePath;
     private Instant uploadTimestamp;
+    private String processingState;
     private List<SubtitleResponse> subtitles;
 }
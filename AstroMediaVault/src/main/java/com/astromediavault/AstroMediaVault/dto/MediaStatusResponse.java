@@ -0,0 +1,20 @@
+package com.astromediavault.AstroMediaVault.dto;
+
+import com.astromediavault.AstroMediaVault.model.Media;
+
+import lombok.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MediaStatusResponse {
+    private UUID id;
+    private Media.FileType fileType;
+    private Media.ProcessingState processingState;
+    private String processingError;
+    private Instant uploadTimestamp;
+}
@@ -16,5 +16,7 @@ import lombok.Setter;
 public class StreamingResponse {
     private String streamUrl;
     private List<SubtitleResponse> subtitles;
+    private String thumbnailTrackUrl; // WebVTT seek preview track, null until generated
+    private List<String> thumbnailSpriteUrls;
 }
 
@@ -0,0 +1,22 @@
+package com.astromediavault.AstroMediaVault.dto;
+
+import com.astromediavault.AstroMediaVault.model.Media;
+
+import lombok.*;
+
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TranscodeProgressResponse {
+    private UUID mediaId;
+    private Media.ProcessingState processingState;
+    private double percentComplete;
+    private double speed; // x realtime, summed over the chunks encoding in parallel
+    private Long etaSeconds; // null while the speed is unknown
+    private double encodedSeconds;
+    private double durationSeconds;
+}
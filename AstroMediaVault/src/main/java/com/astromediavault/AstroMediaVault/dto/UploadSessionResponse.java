@@ -0,0 +1,26 @@
+package com.astromediavault.AstroMediaVault.dto;
+
+import lombok.*;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadSessionResponse {
+    private UUID sessionId;
+    private String fileName;
+    private String fileType;
+    private String status;
+    private long totalSize;
+    private int chunkSize;
+    private int totalChunks;
+    private long receivedBytes;
+    private List<Integer> receivedChunks;
+    private List<Integer> missingChunks;
+    private Instant expiresAt;
+}
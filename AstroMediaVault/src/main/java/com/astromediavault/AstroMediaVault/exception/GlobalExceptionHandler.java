@@ -30,6 +30,13 @@ public class GlobalExceptionHandler {
                 .body(ApiResponse.error(ex.getMessage()));
     }
 
+    @ExceptionHandler(InvalidUploadException.class)
+    public ResponseEntity<ApiResponse<String>> handleInvalidUploadException(InvalidUploadException ex) {
+        logger.warn("Invalid Upload: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(ApiResponse.error(ex.getMessage()));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ApiResponse<String>> handleGenericException(Exception ex) {
         logger.error("Unexpected Error: {}", ex.getMessage(), ex);
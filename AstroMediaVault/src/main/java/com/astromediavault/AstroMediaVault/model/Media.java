@@ -2,6 +2,8 @@ package com.astromediavault.AstroMediaVault.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -16,7 +18,9 @@ import java.time.Instant;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "media")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "media", indexes = @Index(name = "idx_media_content_hash", columnList = "contentHash"))
 public class Media {
 
     @Id
@@ -43,12 +47,34 @@ public class Media {
     @Column(nullable = false)
     private String storagePath;
 
+    @Column(length = 64)
+    private String contentHash;
+
+    @Enumerated(EnumType.STRING)
+    private ProcessingState processingState = ProcessingState.RECEIVED;
+
+    @Column(length = 1000)
+    private String processingError;
+
+    private boolean generateImageResolutions;
+
+    // AMQP priority of this media's processing jobs, see JobPriorityPolicy
+    @Column(nullable = false, columnDefinition = "integer default 5")
+    private int priority = 5;
+
+    @ManyToOne
+    @JoinColumn(name = "content_id")
+    @JsonIgnore
+    private MediaContent content;
+
     @OneToMany(mappedBy = "media", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private List<Subtitle> subtitles;
 
     @OneToMany(mappedBy = "media", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     private List<TranscodedVideo> transcodedVideos;
 
     @OneToMany(mappedBy = "media", cascade = CascadeType.ALL, orphanRemoval = true)
@@ -77,7 +103,32 @@ public class Media {
     @Column(nullable = false, updatable = false)
     private Instant uploadTimestamp = Instant.now();
 
+    /**
+     * Owner of the folders holding this media's files (differs from user for deduplicated uploads)
+     */
+    public UUID getArtifactUserId() {
+        return content != null ? content.getOwnerUserId() : user.getId();
+    }
+
+    /**
+     * Media id under which this media's derived files were generated
+     */
+    public UUID getArtifactMediaId() {
+        return content != null ? content.getOwnerMediaId() : id;
+    }
+
+    /**
+     * Media whose metadata, rendition and segment rows describe this media's files
+     */
+    public UUID getPrimaryMediaId() {
+        return content != null ? content.getPrimaryMediaId() : id;
+    }
+
     public enum FileType {
         VIDEO, IMAGE, PDF
     }
+
+    public enum ProcessingState {
+        RECEIVED, PROCESSING, READY, FAILED
+    }
 }
@@ -0,0 +1,63 @@
+package com.astromediavault.AstroMediaVault.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import java.util.UUID;
+import java.time.Instant;
+
+/**
+ * Bytes shared by every Media row with the same SHA-256. The original and all derived
+ * artifacts live under the owner's folders and are deleted once the last reference goes away.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "media_contents", uniqueConstraints = @UniqueConstraint(columnNames = { "contentHash", "fileType" }))
+public class MediaContent {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(nullable = false, length = 64)
+    private String contentHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Media.FileType fileType;
+
+    @Column(nullable = false)
+    private String storagePath;
+
+    @Column(nullable = false)
+    private long fileSize;
+
+    @Column(nullable = false)
+    private UUID ownerUserId;
+
+    // Names the folders of the derived files; kept when the owner is deleted
+    @Column(nullable = false)
+    private UUID ownerMediaId;
+
+    // Media holding the derived rows (metadata, renditions, segments) once the owner has been deleted
+    private UUID primaryMediaId;
+
+    @Column(nullable = false)
+    private int referenceCount = 1;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt = Instant.now();
+
+    /**
+     * Media the derived rows of this content belong to: the owner, or the upload it was handed to
+     */
+    public UUID getPrimaryMediaId() {
+        return primaryMediaId != null ? primaryMediaId : ownerMediaId;
+    }
+}
@@ -0,0 +1,70 @@
+package com.astromediavault.AstroMediaVault.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.util.UUID;
+import java.time.Instant;
+
+/**
+ * Durable record of a transcode job. A worker holds a lease on the job while it runs and renews it with
+ * heartbeats; jobs whose lease expires are reclaimed and queued again, failed jobs are retried.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "processing_jobs", uniqueConstraints = @UniqueConstraint(columnNames = { "kind", "payload" }))
+public class ProcessingJob {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @ManyToOne
+    @JoinColumn(name = "media_id", nullable = false)
+    private Media media;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Kind kind;
+
+    @Column(nullable = false)
+    private String payload; // the queue message: media id, or chunk id of chunk jobs
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.QUEUED;
+
+    private String owner; // worker holding the lease
+
+    private Instant leaseExpiresAt;
+
+    private Instant retryAt;
+
+    private int attempts;
+
+    private double progressSeconds; // encoded position at the last heartbeat
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt = Instant.now();
+
+    private Instant updatedAt;
+
+    @Getter
+    @AllArgsConstructor
+    public enum Kind {
+        VIDEO_TRANSCODE("video-processing-queue.v2"),
+        CHUNK_TRANSCODE("video-chunk-transcode-queue.v2"),
+        CHUNK_STITCH("video-stitch-queue.v2");
+
+        private final String queue;
+    }
+
+    public enum Status {
+        QUEUED, RUNNING, RETRYING, DONE, FAILED
+    }
+}
@@ -0,0 +1,48 @@
+package com.astromediavault.AstroMediaVault.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.util.UUID;
+import java.time.Instant;
+
+/**
+ * One keyframe aligned piece of a video that is encoded as its own job in chunked transcoding
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "transcode_chunks", uniqueConstraints = @UniqueConstraint(columnNames = { "media_id", "chunkIndex" }))
+public class TranscodeChunk {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @ManyToOne
+    @JoinColumn(name = "media_id", nullable = false)
+    private Media media;
+
+    @Column(nullable = false)
+    private int chunkIndex;
+
+    @Column(nullable = false)
+    private String sourcePath;
+
+    @Column(nullable = false)
+    private double startSeconds;
+
+    private double durationSeconds;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt = Instant.now();
+
+    public enum Status {
+        PENDING, ENCODING, DONE, FAILED, STITCHED
+    }
+}
@@ -2,6 +2,8 @@ package com.astromediavault.AstroMediaVault.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.UUID;
 import java.time.Instant;
 
@@ -10,6 +12,8 @@ import java.time.Instant;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "transcoded_videos")
 public class TranscodedVideo {
 
@@ -31,6 +35,17 @@ public class TranscodedVideo {
 
     private int bitrate;
 
+    @Enumerated(EnumType.STRING)
+    private Container container; // null on rows written before fMP4 packaging existed, which are TS
+
     @Column(nullable = false, updatable = false)
     private Instant createdAt = Instant.now();
+
+    /**
+     * Packaging of a rendition: one MPEG-TS file per segment, or one fragmented MP4 (CMAF) file
+     * addressed by byte ranges
+     */
+    public enum Container {
+        TS, FMP4
+    }
 }
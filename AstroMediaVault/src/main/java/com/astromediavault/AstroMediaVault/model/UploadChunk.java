@@ -0,0 +1,35 @@
+package com.astromediavault.AstroMediaVault.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.util.UUID;
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "upload_chunks", uniqueConstraints = @UniqueConstraint(columnNames = { "session_id", "chunkIndex" }))
+public class UploadChunk {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @ManyToOne
+    @JoinColumn(name = "session_id", nullable = false)
+    private UploadSession session;
+
+    @Column(nullable = false)
+    private int chunkIndex;
+
+    @Column(nullable = false)
+    private long byteOffset;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(nullable = false, updatable = false)
+    private Instant receivedAt = Instant.now();
+}
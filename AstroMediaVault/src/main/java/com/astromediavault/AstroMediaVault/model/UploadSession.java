@@ -0,0 +1,63 @@
+package com.astromediavault.AstroMediaVault.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.util.UUID;
+import java.time.Instant;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "upload_sessions")
+public class UploadSession {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @ManyToOne
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(nullable = false)
+    private String originalFileName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Media.FileType fileType;
+
+    private String title;
+
+    private String description;
+
+    private boolean generateImgRes;
+
+    @Column(nullable = false)
+    private long totalSize;
+
+    @Column(nullable = false)
+    private int chunkSize;
+
+    @Column(nullable = false)
+    private String partPath;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.OPEN;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt = Instant.now();
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    public int getTotalChunks() {
+        return (int) ((totalSize + chunkSize - 1) / chunkSize);
+    }
+
+    public enum Status {
+        OPEN, COMPLETED, ABORTED
+    }
+}
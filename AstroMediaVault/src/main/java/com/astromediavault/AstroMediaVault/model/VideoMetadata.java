@@ -2,6 +2,8 @@ package com.astromediavault.AstroMediaVault.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.util.UUID;
 import java.time.Instant;
 
@@ -10,6 +12,8 @@ import java.time.Instant;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Builder
 @Table(name = "video_metadata")
 public class VideoMetadata {
@@ -36,4 +40,8 @@ public class VideoMetadata {
     private String codec;
 
     private int bitrate;
+
+    private String audioLanguages; // per audio stream, comma separated ("und" if untagged); empty when silent
+
+    private Double complexity; // probe encode bitrate relative to typical content; null until analysed
 }
\ No newline at end of file
@@ -32,6 +32,11 @@ public class VideoSegment {
 
     private float durationSeconds;
 
+    // Range of the segment inside segmentPath; null when the segment is a file of its own
+    private Long byteOffset;
+
+    private Long byteLength;
+
     @Column(nullable = false, updatable = false)
     private Instant createdAt = Instant.now();
 }
@@ -1,8 +1,12 @@
 package com.astromediavault.AstroMediaVault.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.astromediavault.AstroMediaVault.model.Media;
 import com.astromediavault.AstroMediaVault.model.ImageMetadata;
 
 import java.util.Optional;
@@ -13,4 +17,11 @@ public interface ImageMetadataRepository extends JpaRepository<ImageMetadata, UU
     Optional<ImageMetadata> findByMediaId(UUID mediaId);
 
     void deleteByMediaId(UUID mediaId);
-}
\ No newline at end of file
+
+    /**
+     * Hand the rows of a deleted media to another media sharing its content
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update ImageMetadata m set m.media = :to where m.media.id = :from")
+    int reassign(@Param("from") UUID from, @Param("to") Media to);
+}
@@ -0,0 +1,33 @@
+package com.astromediavault.AstroMediaVault.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.astromediavault.AstroMediaVault.model.Media;
+import com.astromediavault.AstroMediaVault.model.MediaContent;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface MediaContentRepository extends JpaRepository<MediaContent, UUID> {
+    Optional<MediaContent> findByContentHashAndFileType(String contentHash, Media.FileType fileType);
+
+    List<MediaContent> findByContentHashIn(Collection<String> contentHashes);
+
+    @Modifying
+    @Query("update MediaContent c set c.referenceCount = c.referenceCount + :delta where c.id = :id")
+    int adjustReferenceCount(@Param("id") UUID id, @Param("delta") int delta);
+
+    @Modifying
+    @Query("update MediaContent c set c.primaryMediaId = :mediaId where c.id = :id")
+    int updatePrimaryMedia(@Param("id") UUID id, @Param("mediaId") UUID mediaId);
+
+    @Query("select c.referenceCount from MediaContent c where c.id = :id")
+    int findReferenceCount(@Param("id") UUID id);
+}
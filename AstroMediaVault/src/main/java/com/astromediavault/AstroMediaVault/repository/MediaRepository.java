@@ -1,12 +1,20 @@
 package com.astromediavault.AstroMediaVault.repository;
 
+import jakarta.transaction.Transactional;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.astromediavault.AstroMediaVault.dto.MediaStatusResponse;
 import com.astromediavault.AstroMediaVault.model.Media;
 import com.astromediavault.AstroMediaVault.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -15,4 +23,32 @@ public interface MediaRepository extends JpaRepository<Media, UUID> {
     List<Media> findByFileType(Media.FileType fileType);
     List<Media> findByUser(User user);
 
+    long countByUserIdAndProcessingStateIn(UUID userId, Collection<Media.ProcessingState> states);
+
+    @Query("select new com.astromediavault.AstroMediaVault.dto.MediaStatusResponse("
+            + "m.id, m.fileType, m.processingState, m.processingError, m.uploadTimestamp) "
+            + "from Media m where m.id = :id")
+    Optional<MediaStatusResponse> findStatusById(@Param("id") UUID id);
+
+    @Query("select m.id from Media m where m.id in :ids and m.processingState = :state")
+    List<UUID> findIdsInState(@Param("ids") Collection<UUID> ids, @Param("state") Media.ProcessingState state);
+
+    @Query("select m.id from Media m where m.content.id = :contentId")
+    List<UUID> findIdsByContentId(@Param("contentId") UUID contentId);
+
+    @Modifying
+    @Query("update Media m set m.processingState = :state, m.processingError = :error where m.id = :id")
+    int updateProcessingState(@Param("id") UUID id, @Param("state") Media.ProcessingState state,
+            @Param("error") String error);
+
+    @Modifying
+    @Query("update Media m set m.processingState = :state, m.processingError = :error "
+            + "where m.content.id = :contentId")
+    int updateProcessingStateByContentId(@Param("contentId") UUID contentId,
+            @Param("state") Media.ProcessingState state, @Param("error") String error);
+
+    @Modifying
+    @Transactional
+    @Query("update Media m set m.priority = :priority where m.id = :id")
+    int updatePriority(@Param("id") UUID id, @Param("priority") int priority);
 }
\ No newline at end of file
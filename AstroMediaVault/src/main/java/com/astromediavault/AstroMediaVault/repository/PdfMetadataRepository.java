@@ -1,8 +1,12 @@
 package com.astromediavault.AstroMediaVault.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.astromediavault.AstroMediaVault.model.Media;
 import com.astromediavault.AstroMediaVault.model.PdfMetadata;
 
 import java.util.Optional;
@@ -13,4 +17,11 @@ public interface PdfMetadataRepository extends JpaRepository<PdfMetadata, UUID>
     Optional<PdfMetadata> findByMediaId(UUID mediaId);
 
     void deleteByMediaId(UUID mediaId);
+
+    /**
+     * Hand the rows of a deleted media to another media sharing its content
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update PdfMetadata m set m.media = :to where m.media.id = :from")
+    int reassign(@Param("from") UUID from, @Param("to") Media to);
 }
@@ -0,0 +1,107 @@
+package com.astromediavault.AstroMediaVault.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.astromediavault.AstroMediaVault.model.ProcessingJob;
+
+import jakarta.transaction.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Every state change of a job is a conditional update, so concurrent workers and reapers on several nodes
+ * can race for a job and exactly one of them wins
+ */
+@Repository
+public interface ProcessingJobRepository extends JpaRepository<ProcessingJob, UUID> {
+
+    String STATUS = "com.astromediavault.AstroMediaVault.model.ProcessingJob.Status.";
+
+    Optional<ProcessingJob> findByKindAndPayload(ProcessingJob.Kind kind, String payload);
+
+    List<ProcessingJob> findByStatusAndLeaseExpiresAtBefore(ProcessingJob.Status status, Instant now);
+
+    List<ProcessingJob> findByStatusAndRetryAtBefore(ProcessingJob.Status status, Instant now);
+
+    /**
+     * Take a queued job, or a running one whose worker stopped heartbeating
+     */
+    @Modifying
+    @Transactional
+    @Query("update ProcessingJob j set j.status = " + STATUS + "RUNNING, j.owner = :owner, "
+            + "j.leaseExpiresAt = :leaseUntil, j.attempts = j.attempts + 1, j.updatedAt = :now "
+            + "where j.id = :id and (j.status = " + STATUS + "QUEUED "
+            + "or (j.status = " + STATUS + "RUNNING and j.leaseExpiresAt < :now))")
+    int claim(@Param("id") UUID id, @Param("owner") String owner, @Param("now") Instant now,
+            @Param("leaseUntil") Instant leaseUntil);
+
+    @Modifying
+    @Transactional
+    @Query("update ProcessingJob j set j.leaseExpiresAt = :leaseUntil, j.progressSeconds = :progressSeconds, "
+            + "j.updatedAt = :now "
+            + "where j.id = :id and j.owner = :owner and j.status = " + STATUS + "RUNNING")
+    int heartbeat(@Param("id") UUID id, @Param("owner") String owner, @Param("now") Instant now,
+            @Param("leaseUntil") Instant leaseUntil, @Param("progressSeconds") double progressSeconds);
+
+    /**
+     * End the lease of a running job with DONE, RETRYING or FAILED
+     */
+    @Modifying
+    @Transactional
+    @Query("update ProcessingJob j set j.status = :status, j.lastError = :error, j.retryAt = :retryAt, "
+            + "j.owner = null, j.leaseExpiresAt = null, j.updatedAt = :now "
+            + "where j.id = :id and j.owner = :owner and j.status = " + STATUS + "RUNNING")
+    int finish(@Param("id") UUID id, @Param("owner") String owner, @Param("status") ProcessingJob.Status status,
+            @Param("error") String error, @Param("retryAt") Instant retryAt, @Param("now") Instant now);
+
+    /**
+     * Expire the lease right away, so a job interrupted by a shutdown is reclaimed without waiting
+     */
+    @Modifying
+    @Transactional
+    @Query("update ProcessingJob j set j.leaseExpiresAt = :now "
+            + "where j.id = :id and j.owner = :owner and j.status = " + STATUS + "RUNNING")
+    int expire(@Param("id") UUID id, @Param("owner") String owner, @Param("now") Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("update ProcessingJob j set j.status = " + STATUS + "QUEUED, j.owner = null, j.leaseExpiresAt = null, "
+            + "j.updatedAt = :now "
+            + "where j.id = :id and j.status = " + STATUS + "RUNNING and j.leaseExpiresAt < :now")
+    int reclaim(@Param("id") UUID id, @Param("now") Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("update ProcessingJob j set j.status = " + STATUS + "FAILED, j.lastError = :error, j.owner = null, "
+            + "j.leaseExpiresAt = null, j.updatedAt = :now "
+            + "where j.id = :id and j.status = " + STATUS + "RUNNING and j.leaseExpiresAt < :now")
+    int abandon(@Param("id") UUID id, @Param("error") String error, @Param("now") Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("update ProcessingJob j set j.status = " + STATUS + "QUEUED, j.retryAt = null, j.updatedAt = :now "
+            + "where j.id = :id and j.status = " + STATUS + "RETRYING and j.retryAt < :now")
+    int release(@Param("id") UUID id, @Param("now") Instant now);
+
+    /**
+     * Start a finished job over, for media that are processed again
+     */
+    @Modifying
+    @Transactional
+    @Query("update ProcessingJob j set j.status = " + STATUS + "QUEUED, j.attempts = 0, j.lastError = null, "
+            + "j.progressSeconds = 0, j.updatedAt = :now "
+            + "where j.id = :id and j.status in (" + STATUS + "DONE, " + STATUS + "FAILED)")
+    int reset(@Param("id") UUID id, @Param("now") Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("delete from ProcessingJob j where j.media.id = :mediaId")
+    int deleteByMediaId(@Param("mediaId") UUID mediaId);
+}
@@ -1,15 +1,21 @@
 package com.astromediavault.AstroMediaVault.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import org.hibernate.jpa.HibernateHints;
+
 import com.astromediavault.AstroMediaVault.model.Subtitle;
 
+import jakarta.persistence.QueryHint;
+
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface SubtitleRepository extends JpaRepository<Subtitle, UUID> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Subtitle> findByMediaId(UUID mediaId);
 
     void deleteByMediaId(UUID mediaId);
@@ -0,0 +1,56 @@
+package com.astromediavault.AstroMediaVault.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.astromediavault.AstroMediaVault.model.TranscodeChunk;
+
+import jakarta.transaction.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface TranscodeChunkRepository extends JpaRepository<TranscodeChunk, UUID> {
+    List<TranscodeChunk> findByMediaIdOrderByChunkIndex(UUID mediaId);
+
+    long countByMediaIdAndStatusNot(UUID mediaId, TranscodeChunk.Status status);
+
+    @Modifying
+    @Transactional
+    @Query("update TranscodeChunk c set c.status = :to where c.id = :id and c.status = :from")
+    int transition(@Param("id") UUID id, @Param("from") TranscodeChunk.Status from,
+            @Param("to") TranscodeChunk.Status to);
+
+    /**
+     * Move a chunk to ENCODING for its leased attempt; chunks that are DONE or STITCHED are left alone
+     */
+    @Modifying
+    @Transactional
+    @Query("update TranscodeChunk c "
+            + "set c.status = com.astromediavault.AstroMediaVault.model.TranscodeChunk.Status.ENCODING "
+            + "where c.id = :id and c.status in ("
+            + "com.astromediavault.AstroMediaVault.model.TranscodeChunk.Status.PENDING, "
+            + "com.astromediavault.AstroMediaVault.model.TranscodeChunk.Status.ENCODING, "
+            + "com.astromediavault.AstroMediaVault.model.TranscodeChunk.Status.FAILED)")
+    int restart(@Param("id") UUID id);
+
+    /**
+     * Elects the worker that queues the stitch job: only one moves chunk 0 from DONE to STITCHED
+     */
+    @Modifying
+    @Transactional
+    @Query("update TranscodeChunk c "
+            + "set c.status = com.astromediavault.AstroMediaVault.model.TranscodeChunk.Status.STITCHED "
+            + "where c.media.id = :mediaId and c.chunkIndex = 0 "
+            + "and c.status = com.astromediavault.AstroMediaVault.model.TranscodeChunk.Status.DONE")
+    int claimStitch(@Param("mediaId") UUID mediaId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from TranscodeChunk c where c.media.id = :mediaId")
+    int deleteByMediaId(@Param("mediaId") UUID mediaId);
+}
@@ -3,11 +3,16 @@ package com.astromediavault.AstroMediaVault.repository;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import org.hibernate.jpa.HibernateHints;
+
+import com.astromediavault.AstroMediaVault.model.Media;
 import com.astromediavault.AstroMediaVault.model.TranscodedVideo;
 
+import jakarta.persistence.QueryHint;
 import jakarta.transaction.Transactional;
 
 import java.util.List;
@@ -15,7 +20,15 @@ import java.util.UUID;
 
 @Repository
 public interface TranscodedVideoRepository extends JpaRepository<TranscodedVideo, UUID> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<TranscodedVideo> findByMediaId(UUID mediaId);
 
     void deleteByMediaId(UUID mediaId);
+
+    /**
+     * Hand the rows of a deleted media to another media sharing its content
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update TranscodedVideo t set t.media = :to where t.media.id = :from")
+    int reassign(@Param("from") UUID from, @Param("to") Media to);
 }
@@ -0,0 +1,23 @@
+package com.astromediavault.AstroMediaVault.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.astromediavault.AstroMediaVault.model.UploadChunk;
+
+import jakarta.transaction.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface UploadChunkRepository extends JpaRepository<UploadChunk, UUID> {
+    List<UploadChunk> findBySessionIdOrderByChunkIndex(UUID sessionId);
+
+    boolean existsBySessionIdAndChunkIndex(UUID sessionId, int chunkIndex);
+
+    long countBySessionId(UUID sessionId);
+
+    @Transactional
+    void deleteBySessionId(UUID sessionId);
+}
@@ -0,0 +1,26 @@
+package com.astromediavault.AstroMediaVault.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.astromediavault.AstroMediaVault.model.UploadSession;
+
+import jakarta.transaction.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, UUID> {
+    List<UploadSession> findByStatusAndExpiresAtBefore(UploadSession.Status status, Instant expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("update UploadSession s set s.status = :to where s.id = :id and s.status = :from")
+    int transition(@Param("id") UUID id, @Param("from") UploadSession.Status from,
+            @Param("to") UploadSession.Status to);
+}
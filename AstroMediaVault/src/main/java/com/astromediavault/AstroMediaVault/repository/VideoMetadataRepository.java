@@ -1,16 +1,39 @@
 package com.astromediavault.AstroMediaVault.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import org.hibernate.jpa.HibernateHints;
+
+import com.astromediavault.AstroMediaVault.model.Media;
 import com.astromediavault.AstroMediaVault.model.VideoMetadata;
 
+import jakarta.persistence.QueryHint;
+import jakarta.transaction.Transactional;
+
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface VideoMetadataRepository extends JpaRepository<VideoMetadata, UUID> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<VideoMetadata> findByMediaId(UUID mediaId);
 
     void deleteByMediaId(UUID mediaId);
+
+    @Modifying
+    @Transactional
+    @Query("update VideoMetadata m set m.complexity = :complexity where m.media.id = :mediaId")
+    int updateComplexity(@Param("mediaId") UUID mediaId, @Param("complexity") Double complexity);
+
+    /**
+     * Hand the rows of a deleted media to another media sharing its content
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update VideoMetadata m set m.media = :to where m.media.id = :from")
+    int reassign(@Param("from") UUID from, @Param("to") Media to);
 }
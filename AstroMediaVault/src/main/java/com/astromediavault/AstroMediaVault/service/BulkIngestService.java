@@ -0,0 +1,317 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import com.astromediavault.AstroMediaVault.dto.BulkUploadResponse;
+import com.astromediavault.AstroMediaVault.exception.InvalidFileTypeException;
+import com.astromediavault.AstroMediaVault.exception.MediaNotFoundException;
+import com.astromediavault.AstroMediaVault.model.Media;
+import com.astromediavault.AstroMediaVault.model.MediaContent;
+import com.astromediavault.AstroMediaVault.model.User;
+import com.astromediavault.AstroMediaVault.repository.MediaRepository;
+import com.astromediavault.AstroMediaVault.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.apache.tika.Tika;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Bulk ingest of many files at once, either as a multipart batch or as a ZIP archive
+ * that is extracted on the fly. Rows are inserted in JDBC batches and the ingest messages
+ * of each batch are published together under publisher confirms.
+ */
+@Service
+@RequiredArgsConstructor
+public class BulkIngestService {
+
+    private final UserRepository userRepository;
+    private final MediaRepository mediaRepository;
+    private final MediaStorageService mediaStorageService;
+    private final MediaContentService mediaContentService;
+    private final RabbitTemplate rabbitTemplate;
+    private final MediaMetrics mediaMetrics;
+    private final JobPriorityPolicy jobPriorityPolicy;
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkIngestService.class);
+
+    private static final Tika TIKA = new Tika();
+
+    @Value("${media.upload.bulk-batch-size:500}")
+    private int batchSize;
+
+    @Value("${media.upload.publish-confirm-timeout:30s}")
+    private Duration publishConfirmTimeout;
+
+    /**
+     * Ingest the files of a multipart request
+     */
+    public BulkUploadResponse ingestFiles(UUID userId, List<MultipartFile> files, String fileType,
+            boolean generateImgRes) {
+        Batch batch = new Batch(findUser(userId), parseFileType(fileType), generateImgRes);
+        for (MultipartFile file : files) {
+            batch.add(file.getOriginalFilename(), target -> {
+                try (InputStream inputStream = file.getInputStream()) {
+                    return mediaStorageService.write(inputStream, target);
+                }
+            });
+        }
+        return batch.finish();
+    }
+
+    /**
+     * Ingest every file of a ZIP archive read straight from the request body.
+     * Entries are written to their final location as they are inflated, nothing is spooled to disk first.
+     */
+    public BulkUploadResponse ingestArchive(UUID userId, InputStream body, String fileType, boolean generateImgRes)
+            throws IOException {
+        Batch batch = new Batch(findUser(userId), parseFileType(fileType), generateImgRes);
+        try (ZipInputStream zip = new ZipInputStream(body)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory() || isIgnored(entry.getName())) {
+                    continue;
+                }
+                // ZipInputStream reports end of stream at the end of each entry
+                batch.add(entry.getName(), target -> mediaStorageService.write(zip, target));
+            }
+        }
+        return batch.finish();
+    }
+
+    private User findUser(UUID userId) {
+        return userRepository.findById(userId)
+                .orElseThrow(() -> new MediaNotFoundException("User not found with ID: " + userId));
+    }
+
+    private Media.FileType parseFileType(String fileType) {
+        if (fileType == null || fileType.isBlank()) {
+            return null;
+        }
+        try {
+            return Media.FileType.valueOf(fileType.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFileTypeException("Invalid file type! Must be VIDEO, IMAGE, or PDF.");
+        }
+    }
+
+    /**
+     * Media type from the file name, null when the file is not a supported media
+     */
+    private Media.FileType detectFileType(String fileName) {
+        String mimeType = TIKA.detect(fileName);
+        if (mimeType.startsWith("image/")) {
+            return Media.FileType.IMAGE;
+        }
+        if (mimeType.startsWith("video/")) {
+            return Media.FileType.VIDEO;
+        }
+        if (mimeType.equals("application/pdf")) {
+            return Media.FileType.PDF;
+        }
+        return null;
+    }
+
+    private boolean isIgnored(String entryName) {
+        String name = mediaStorageService.sanitizeFileName(entryName);
+        return entryName.startsWith("__MACOSX/") || name.startsWith(".");
+    }
+
+    /**
+     * Publish the ingest messages of a batch on one channel and wait for the broker to confirm all of them
+     */
+    private void publishIngest(List<Media> media) {
+        if (media.isEmpty()) {
+            return;
+        }
+        rabbitTemplate.invoke(operations -> {
+            for (Media m : media) {
+                JobPriorityPolicy.publish(operations, "media-ingest-queue.v2", m);
+            }
+            operations.waitForConfirmsOrDie(publishConfirmTimeout.toMillis());
+            return null;
+        });
+    }
+
+    /**
+     * Files stored so far that still need their rows and ingest messages
+     */
+    private class Batch {
+        private final User user;
+        private final Media.FileType forcedType;
+        private final boolean generateImgRes;
+        private final Map<Media.FileType, String> folders = new EnumMap<>(Media.FileType.class);
+        private final List<Media> pending = new ArrayList<>();
+        private final BulkUploadResponse response = BulkUploadResponse.builder().build();
+        private long inFlight;
+
+        Batch(User user, Media.FileType forcedType, boolean generateImgRes) {
+            this.user = user;
+            this.forcedType = forcedType;
+            this.generateImgRes = generateImgRes;
+            this.inFlight = jobPriorityPolicy.inFlight(user.getId());
+        }
+
+        void add(String originalFileName, MediaStorageService.ContentSource source) {
+            response.setReceived(response.getReceived() + 1);
+            String cleanFileName = mediaStorageService.sanitizeFileName(originalFileName);
+            Media.FileType fileType = forcedType != null ? forcedType : detectFileType(cleanFileName);
+            if (fileType == null) {
+                response.getSkipped().add(cleanFileName + ": unsupported file type");
+                return;
+            }
+
+            String fileName = UUID.randomUUID() + "_" + cleanFileName;
+            Path fullPath = null;
+            try {
+                String relativePath = Paths.get(folder(fileType), fileName).toString();
+                fullPath = mediaStorageService.resolve(relativePath);
+                long started = System.nanoTime();
+                MediaStorageService.StoredFile storedFile = source.writeTo(fullPath);
+                mediaMetrics.recordUpload(fileType, storedFile.getSize(),
+                        Duration.ofNanos(System.nanoTime() - started));
+
+                Media media = new Media();
+                media.setUser(user);
+                media.setOriginalFileName(cleanFileName);
+                media.setFileName(fileName);
+                media.setFileSize(storedFile.getSize());
+                media.setContentHash(storedFile.getSha256());
+                media.setFileType(fileType);
+                media.setStoragePath(relativePath);
+                media.setUploadTimestamp(Instant.now());
+                media.setGenerateImageResolutions(generateImgRes);
+                media.setProcessingState(Media.ProcessingState.RECEIVED);
+                // Every file of the batch counts towards the user's backlog, later files queue lower
+                media.setPriority(jobPriorityPolicy.priority(jobPriorityPolicy.expectedSeconds(media, null),
+                        inFlight++));
+                pending.add(media);
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Skipping bulk upload entry {}: {}", cleanFileName, e.getMessage());
+                response.getSkipped().add(cleanFileName + ": " + e.getMessage());
+                mediaMetrics.recordFailure("upload");
+                return;
+            }
+
+            if (pending.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        BulkUploadResponse finish() {
+            flush();
+            logger.info("Bulk upload for user {}: {} received, {} stored, {} deduplicated, {} skipped",
+                    user.getId(), response.getReceived(), response.getStored(), response.getDeduplicated(),
+                    response.getSkipped().size());
+            return response;
+        }
+
+        private String folder(Media.FileType fileType) throws IOException {
+            String folder = folders.get(fileType);
+            if (folder == null) {
+                folder = mediaStorageService.originalFolder(user.getId(), fileType);
+                Files.createDirectories(mediaStorageService.resolve(folder));
+                folders.put(fileType, folder);
+            }
+            return folder;
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            Set<String> hashes = pending.stream().map(Media::getContentHash).collect(Collectors.toSet());
+            Map<String, MediaContent> existing = new HashMap<>();
+            List<MediaContent> found = mediaContentService.findExisting(hashes);
+            Set<UUID> shareable = mediaContentService.shareable(found);
+            for (MediaContent content : found) {
+                existing.put(contentKey(content.getContentHash(), content.getFileType()), content);
+            }
+
+            List<Media> fresh = new ArrayList<>();
+            List<Media> duplicates = new ArrayList<>();
+            Map<String, Media> firstOfBatch = new HashMap<>();
+            for (Media media : pending) {
+                String key = contentKey(media.getContentHash(), media.getFileType());
+                MediaContent content = existing.get(key);
+                if (content != null && shareable.contains(content.getId())) {
+                    share(media, content);
+                } else if (content != null || firstOfBatch.putIfAbsent(key, media) != null) {
+                    // Bytes held by an upload that is not READY yet, kept and processed as a private copy
+                    duplicates.add(media);
+                } else {
+                    fresh.add(media);
+                }
+            }
+
+            List<Media> saved = persist(fresh);
+            saved.addAll(mediaRepository.saveAll(duplicates));
+
+            for (Media media : saved) {
+                response.getMediaIds().add(media.getId());
+            }
+            response.setStored(response.getStored() + saved.size());
+
+            try {
+                publishIngest(saved);
+            } catch (AmqpException e) {
+                // Rows stay RECEIVED and can be re-queued; the client learns which ones from the response
+                logger.error("Failed to queue {} bulk uploaded media: {}", saved.size(), e.getMessage(), e);
+                saved.forEach(media -> response.getNotQueued().add(media.getId()));
+            }
+            pending.clear();
+        }
+
+        private List<Media> persist(List<Media> fresh) {
+            if (fresh.isEmpty()) {
+                return new ArrayList<>();
+            }
+            try {
+                return new ArrayList<>(mediaContentService.registerBatch(fresh));
+            } catch (DataIntegrityViolationException e) {
+                logger.info("Content of the batch was registered concurrently, saving {} media one by one",
+                        fresh.size());
+                List<Media> saved = new ArrayList<>();
+                for (Media media : fresh) {
+                    media.setId(null);
+                    media.setContent(null);
+                    saved.add(mediaContentService.register(mediaRepository.save(media)));
+                }
+                return saved;
+            }
+        }
+
+        private void share(Media media, MediaContent content) {
+            mediaStorageService.deleteQuietly(mediaStorageService.resolve(media.getStoragePath()));
+            Media attached = mediaContentService.attach(media, content);
+            response.getMediaIds().add(attached.getId());
+            response.setDeduplicated(response.getDeduplicated() + 1);
+        }
+
+        private String contentKey(String contentHash, Media.FileType fileType) {
+            return contentHash + ":" + fileType;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import com.astromediavault.AstroMediaVault.model.Media;
+import com.astromediavault.AstroMediaVault.model.ProcessingJob;
+import com.astromediavault.AstroMediaVault.model.TranscodeChunk;
+import com.astromediavault.AstroMediaVault.model.TranscodedVideo;
+import com.astromediavault.AstroMediaVault.repository.MediaRepository;
+import com.astromediavault.AstroMediaVault.repository.TranscodeChunkRepository;
+import lombok.RequiredArgsConstructor;
+import org.apache.tomcat.util.http.fileupload.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Chunked transcoding: the source is cut at keyframes into pieces that any worker can encode,
+ * then the per-chunk playlists are stitched into one continuous playlist per rendition by a leased job of its own.
+ * Only video is chunked. Audio is encoded once over the whole source while it is split, since AAC priming
+ * at every chunk boundary would leave gaps and drift; the ladder shares those audio renditions anyway.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChunkedTranscodeService {
+
+    private final TranscodeChunkRepository transcodeChunkRepository;
+    private final MediaRepository mediaRepository;
+    private final VideoTranscodeService videoTranscodeService;
+    private final HlsPlaylistService hlsPlaylistService;
+    private final ProcessRunner processRunner;
+    private final ProcessingStateService processingStateService;
+    private final MediaMetrics mediaMetrics;
+    private final JobLeaseService jobLeaseService;
+    private final TranscodeProgressService transcodeProgressService;
+
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedTranscodeService.class);
+
+    @Value("${storage.local.path}")
+    private String localStoragePath;
+
+    @Value("${media.video.chunked.enabled:false}")
+    private boolean enabled;
+
+    @Value("${media.video.chunked.min-duration-seconds:600}")
+    private int minDurationSeconds;
+
+    @Value("${media.video.chunked.chunk-seconds:60}")
+    private int chunkSeconds;
+
+    @Value("${media.workers.transcode-timeout:2h}")
+    private Duration transcodeTimeout;
+
+    @Value("${media.workers.chunk-timeout:20m}")
+    private Duration chunkTimeout;
+
+    /**
+     * Whether a video of this length is worth splitting across workers
+     */
+    public boolean shouldChunk(int durationSeconds) {
+        return enabled && durationSeconds >= minDurationSeconds;
+    }
+
+    /**
+     * Split the video of the original at keyframes without re-encoding and queue one job per piece.
+     * The same ffmpeg run encodes the audio renditions straight into the HLS folder, so they are complete
+     * before any chunk can be stitched.
+     */
+    public void split(Media media, String sourcePath) throws IOException, InterruptedException {
+        // A retried split starts from a clean slate
+        cleanup(media);
+        Path chunkDirectory = chunkDirectory(media);
+        Files.createDirectories(chunkDirectory);
+        Path hlsDirectory = videoTranscodeService.hlsDirectory(media);
+        Files.createDirectories(hlsDirectory);
+        Path chunkList = chunkDirectory.resolve("chunks.csv");
+
+        List<String> command = new ArrayList<>(List.of(
+                "ffmpeg", "-i", sourcePath,
+                "-map", "0:v:0", "-c", "copy",
+                "-f", "segment",
+                "-segment_time", String.valueOf(chunkSeconds),
+                "-reset_timestamps", "1",
+                "-segment_list", chunkList.toString(),
+                "-segment_list_type", "csv",
+                chunkDirectory.resolve("chunk_%04d.mkv").toString()));
+        command.addAll(videoTranscodeService.audioOutput(hlsDirectory.toString(),
+                videoTranscodeService.audioTracks(media)));
+        int exitCode = processRunner.run(WorkerSlots.Resource.FFMPEG, transcodeTimeout,
+                command.toArray(String[]::new));
+        if (exitCode != 0) {
+            throw new IOException("ffmpeg split exited with code " + exitCode);
+        }
+
+        // Each line is "file,start,end" with the real keyframe cut points
+        List<TranscodeChunk> chunks = new ArrayList<>();
+        for (String line : Files.readAllLines(chunkList)) {
+            String[] fields = line.split(",");
+            if (fields.length < 3) {
+                continue;
+            }
+            TranscodeChunk chunk = new TranscodeChunk();
+            chunk.setMedia(media);
+            chunk.setChunkIndex(chunks.size());
+            chunk.setSourcePath(Paths.get(relativeChunkDirectory(media), fields[0].trim()).toString());
+            chunk.setStartSeconds(Double.parseDouble(fields[1]));
+            chunk.setDurationSeconds(Double.parseDouble(fields[2]) - Double.parseDouble(fields[1]));
+            chunks.add(chunk);
+        }
+        if (chunks.isEmpty()) {
+            throw new IOException("ffmpeg split produced no chunks");
+        }
+
+        transcodeChunkRepository.saveAll(chunks);
+        for (TranscodeChunk chunk : chunks) {
+            // Chunks inherit the priority of the whole video, so a long film cannot jump the queue piece by piece
+            jobLeaseService.enqueue(ProcessingJob.Kind.CHUNK_TRANSCODE, media, chunk.getId().toString());
+        }
+        logger.info("Split media {} into {} chunks of ~{}s", media.getId(), chunks.size(), chunkSeconds);
+    }
+
+    /**
+     * Encode one chunk into its own part folder; the last chunk to finish queues the stitch job.
+     * Chunks are short, so a retried chunk starts over instead of resuming.
+     */
+    public void encode(UUID chunkId) throws IOException, InterruptedException {
+        TranscodeChunk chunk = transcodeChunkRepository.findById(chunkId).orElse(null);
+        if (chunk == null) {
+            logger.info("Skipping chunk {}, it is gone", chunkId);
+            return;
+        }
+        Media media = chunk.getMedia();
+        JobLeaseService.Lease lease = jobLeaseService.acquire(ProcessingJob.Kind.CHUNK_TRANSCODE, media,
+                chunkId.toString());
+        if (lease == null) {
+            return;
+        }
+        if (transcodeChunkRepository.restart(chunkId) == 0) {
+            logger.info("Skipping chunk {}, it is already encoded", chunkId);
+            jobLeaseService.complete(lease);
+            return;
+        }
+
+        Path partDirectory = partDirectory(media, chunk.getChunkIndex());
+        deleteFolder(partDirectory);
+        Files.createDirectories(partDirectory);
+        String[] command = videoTranscodeService.hlsLadderCommand(
+                Paths.get(localStoragePath, chunk.getSourcePath()).toString(), partDirectory.toString(),
+                videoTranscodeService.plan(media), List.of(), chunk.getStartSeconds(), false,
+                TranscodedVideo.Container.TS);
+        double totalSeconds = videoTranscodeService.metadata(media).getDurationSeconds();
+
+        int exitCode;
+        try (TranscodeProgressService.Tracking progress = transcodeProgressService.track(media,
+                chunk.getChunkIndex(), chunk.getStartSeconds(), chunk.getDurationSeconds(), totalSeconds)) {
+            exitCode = processRunner.run(WorkerSlots.Resource.FFMPEG, chunkTimeout, progress.andThen(lease),
+                    command);
+        } catch (IOException | InterruptedException | CancellationException e) {
+            if (lease.isLost()) {
+                logger.warn("Stopped chunk {} of media {}, its job was taken over", chunk.getChunkIndex(),
+                        media.getId());
+                return;
+            }
+            fail(chunk, lease, e.getMessage());
+            throw e;
+        }
+        if (exitCode != 0) {
+            fail(chunk, lease, "ffmpeg exited with code " + exitCode + " on chunk " + chunk.getChunkIndex());
+            return;
+        }
+        // The attempt that took the job over owns the part folder and the chunk's status
+        if (!jobLeaseService.renew(lease)) {
+            logger.warn("Dropping chunk {} of media {}, its job was taken over", chunk.getChunkIndex(), media.getId());
+            return;
+        }
+
+        transcodeChunkRepository.transition(chunkId, TranscodeChunk.Status.ENCODING, TranscodeChunk.Status.DONE);
+        jobLeaseService.complete(lease);
+        logger.info("Encoded chunk {} of media {}", chunk.getChunkIndex(), media.getId());
+
+        // Every worker checks after its own DONE is committed, so the last one always sees all chunks done
+        if (transcodeChunkRepository.countByMediaIdAndStatusNot(media.getId(), TranscodeChunk.Status.DONE) == 0
+                && transcodeChunkRepository.claimStitch(media.getId()) == 1) {
+            jobLeaseService.enqueue(ProcessingJob.Kind.CHUNK_STITCH, media, media.getId().toString());
+        }
+    }
+
+    /**
+     * Run the stitch job of a video whose chunks are all encoded. A failed attempt is retried like any other
+     * job until it runs out of attempts; segments it already moved are found in place.
+     */
+    public void stitch(UUID mediaId) {
+        Media media = mediaRepository.findById(mediaId).orElse(null);
+        if (media == null) {
+            logger.info("Skipping stitch of media {}, it is gone", mediaId);
+            return;
+        }
+        JobLeaseService.Lease lease = jobLeaseService.acquire(ProcessingJob.Kind.CHUNK_STITCH, media,
+                mediaId.toString());
+        if (lease == null) {
+            return;
+        }
+        try {
+            stitch(media);
+            jobLeaseService.complete(lease);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Stitching media {} failed: {}", mediaId, e.getMessage(), e);
+            mediaMetrics.recordFailure("stitch");
+            jobLeaseService.fail(lease, media, "Stitching failed: " + e.getMessage(), true);
+        }
+    }
+
+    /**
+     * Join the part playlists of every video rendition in chunk order. Timestamps are already continuous
+     * thanks to -output_ts_offset, so segments are renumbered and moved next to the final playlists, where
+     * the audio renditions of the split already are. Every step can run again after a failed attempt.
+     */
+    private void stitch(Media media) throws IOException {
+        Path hlsDirectory = videoTranscodeService.hlsDirectory(media);
+        List<TranscodeChunk> chunks = transcodeChunkRepository.findByMediaIdOrderByChunkIndex(media.getId());
+        if (chunks.isEmpty()) {
+            // An earlier attempt got as far as dropping the chunks
+            processingStateService.markReady(media);
+            return;
+        }
+        List<VideoLadderPlanner.Rendition> renditions = videoTranscodeService.plan(media);
+        List<VideoLadderPlanner.AudioTrack> audioTracks = videoTranscodeService.audioTracks(media);
+
+        for (String playlist : VideoTranscodeService.playlistNames(renditions, List.of())) {
+            List<HlsPlaylistService.Segment> stitched = new ArrayList<>();
+            for (TranscodeChunk chunk : chunks) {
+                Path partDirectory = partDirectory(media, chunk.getChunkIndex());
+                for (HlsPlaylistService.Segment segment : hlsPlaylistService.parse(
+                        partDirectory.resolve(playlist + ".m3u8"))) {
+                    String name = String.format("%s_%03d.ts", playlist, stitched.size());
+                    moveSegment(partDirectory.resolve(segment.getUri()), hlsDirectory.resolve(name));
+                    stitched.add(new HlsPlaylistService.Segment(stitched.size(), name, segment.getDurationSeconds()));
+                }
+            }
+            hlsPlaylistService.writeVodPlaylist(hlsDirectory.resolve(playlist + ".m3u8"), stitched);
+        }
+        videoTranscodeService.writeMasterPlaylist(hlsDirectory, renditions, audioTracks);
+
+        videoTranscodeService.saveRenditions(media, renditions, audioTracks, TranscodedVideo.Container.TS);
+        cleanup(media);
+        processingStateService.markReady(media);
+        logger.info("Stitched {} chunks of media {}", chunks.size(), media.getId());
+    }
+
+    /**
+     * Move a segment to its stitched name; one that an earlier attempt already moved is left where it is
+     */
+    private static void moveSegment(Path from, Path to) throws IOException {
+        if (Files.exists(from)) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        } else if (!Files.exists(to)) {
+            throw new NoSuchFileException(from.toString());
+        }
+    }
+
+    private void fail(TranscodeChunk chunk, JobLeaseService.Lease lease, String error) {
+        logger.error("Chunk {} of media {} failed: {}", chunk.getChunkIndex(), chunk.getMedia().getId(), error);
+        if (lease.isLost()) {
+            return;
+        }
+        transcodeChunkRepository.transition(chunk.getId(), TranscodeChunk.Status.ENCODING,
+                TranscodeChunk.Status.FAILED);
+        mediaMetrics.recordFailure("chunk-transcode");
+        // The media only fails once the chunk is out of attempts
+        jobLeaseService.fail(lease, chunk.getMedia(), error, true);
+    }
+
+    /**
+     * Remove chunk sources, part folders and chunk rows of a video
+     */
+    public void cleanup(Media media) {
+        transcodeChunkRepository.deleteByMediaId(media.getId());
+        deleteFolder(chunkDirectory(media));
+        deleteFolder(videoTranscodeService.hlsDirectory(media).resolve("parts"));
+    }
+
+    private void deleteFolder(Path folder) {
+        try {
+            if (Files.isDirectory(folder)) {
+                FileUtils.deleteDirectory(folder.toFile());
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to delete folder: {} - {}", folder, e.getMessage());
+        }
+    }
+
+    private String relativeChunkDirectory(Media media) {
+        return Paths.get("users", media.getArtifactUserId().toString(), "videos", "chunks",
+                media.getArtifactMediaId().toString()).toString();
+    }
+
+    private Path chunkDirectory(Media media) {
+        return Paths.get(localStoragePath, relativeChunkDirectory(media));
+    }
+
+    private Path partDirectory(Media media, int chunkIndex) {
+        return videoTranscodeService.hlsDirectory(media).resolve("parts").resolve(String.valueOf(chunkIndex));
+    }
+}
@@ -0,0 +1,148 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import com.astromediavault.AstroMediaVault.config.VideoLadderProperties;
+import com.astromediavault.AstroMediaVault.model.VideoMetadata;
+import lombok.RequiredArgsConstructor;
+import org.apache.tomcat.util.http.fileupload.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Per-title encoding: how many bits a video needs compared to typical content. A few short windows spread
+ * over the video are encoded at the ladder's target quality and small size; the bitrate they come out at,
+ * relative to a reference, scales the bitrates of every rung. Talking heads and screen recordings get
+ * smaller files, grain and fast motion the bits they need to look as good.
+ */
+@Service
+@RequiredArgsConstructor
+public class ComplexityAnalysisService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ComplexityAnalysisService.class);
+
+    private final ProcessRunner processRunner;
+    private final VideoLadderProperties videoLadderProperties;
+
+    @Value("${media.video.complexity.enabled:true}")
+    private boolean enabled;
+
+    @Value("${media.video.complexity.windows:4}")
+    private int windows;
+
+    @Value("${media.video.complexity.window-seconds:4}")
+    private int windowSeconds;
+
+    @Value("${media.video.complexity.probe-height:360}")
+    private int probeHeight;
+
+    @Value("${media.video.complexity.reference-kbps:800}")
+    private double referenceKbps;
+
+    @Value("${media.video.complexity.min-factor:0.5}")
+    private double minFactor;
+
+    @Value("${media.video.complexity.max-factor:1.5}")
+    private double maxFactor;
+
+    @Value("${media.video.complexity.timeout:5m}")
+    private Duration timeout;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Complexity of a video, or null when the probe encodes failed and the fixed ladder should be used
+     */
+    public Double analyse(String input, VideoMetadata metadata) {
+        Path directory = null;
+        try {
+            directory = Files.createTempDirectory("complexity");
+            int duration = metadata.getDurationSeconds();
+            // Short videos are probed whole
+            int length = duration <= windows * windowSeconds ? Math.max(1, duration) : windowSeconds;
+            long bytes = 0;
+            double seconds = 0;
+            for (double start : windowStarts(duration)) {
+                Path sample = directory.resolve(String.format(Locale.ROOT, "sample_%.0f.mp4", start));
+                if (processRunner.run(WorkerSlots.Resource.FFMPEG, timeout,
+                        probeCommand(input, metadata, start, length, sample)) != 0 || !Files.exists(sample)) {
+                    logger.warn("Complexity probe of {} at {}s failed", input, start);
+                    return null;
+                }
+                bytes += Files.size(sample);
+                seconds += length;
+            }
+            double frameRate = VideoLadderPlanner.parseFrameRate(metadata.getFrameRate());
+            double kbps = bytes * 8 / seconds / 1000 / VideoLadderPlanner.frameRateFactor(frameRate);
+            double complexity = complexity(kbps);
+            logger.info("Complexity of {}: {} kbps at {}p, factor {}", input, Math.round(kbps), probeHeight,
+                    complexity);
+            return complexity;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Complexity analysis of {} failed: {}", input, e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            if (directory != null) {
+                try {
+                    FileUtils.deleteDirectory(directory.toFile());
+                } catch (IOException e) {
+                    logger.warn("Failed to delete complexity samples {}", directory);
+                }
+            }
+        }
+    }
+
+    /**
+     * Ladder scale of a probe bitrate (normalised to 30 fps), clamped and rounded to two decimals
+     */
+    double complexity(double probeKbps) {
+        double factor = Math.max(minFactor, Math.min(maxFactor, probeKbps / referenceKbps));
+        return Math.round(factor * 100) / 100.0;
+    }
+
+    /**
+     * Start of each probe window, centred in equal parts of the video
+     */
+    List<Double> windowStarts(int durationSeconds) {
+        List<Double> starts = new ArrayList<>();
+        if (durationSeconds <= windows * windowSeconds) {
+            starts.add(0.0);
+            return starts;
+        }
+        double part = (double) durationSeconds / windows;
+        for (int i = 0; i < windows; i++) {
+            starts.add(Math.floor(part * i + (part - windowSeconds) / 2));
+        }
+        return starts;
+    }
+
+    private String[] probeCommand(String input, VideoMetadata metadata, double start, int length, Path sample) {
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-y",
+                "-ss", String.format(Locale.ROOT, "%.3f", start), "-i", input, "-t", String.valueOf(length),
+                "-map", "0:v:0", "-an", "-sn"));
+        String[] size = metadata.getResolution().split("x");
+        int width = Integer.parseInt(size[0]);
+        int height = Integer.parseInt(size[1]);
+        // Scaled on the short side like the ladder, so every source is measured at the same rung
+        if (Math.min(width, height) > probeHeight) {
+            command.addAll(List.of("-vf",
+                    width >= height ? "scale=-2:" + probeHeight : "scale=" + probeHeight + ":-2"));
+        }
+        command.addAll(List.of("-c:v", "libx264", "-preset", "veryfast", "-pix_fmt", "yuv420p",
+                "-crf", String.valueOf(videoLadderProperties.getTargetCrf()), sample.toString()));
+        return command.toArray(String[]::new);
+    }
+}
@@ -0,0 +1,68 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Hits, misses and puts of every second-level cache region and of the query cache, from Hibernate's statistics
+ * (hibernate.generate_statistics), as media.entity-cache.* meters.
+ */
+@Component
+@RequiredArgsConstructor
+public class EntityCacheMetrics implements MeterBinder {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return;
+        }
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics stats = statistics.getCacheRegionStatistics(region);
+            if (stats == null) {
+                continue;
+            }
+            counter(registry, "media.entity-cache.requests", "Second-level cache lookups", region, stats,
+                    "result", "hit", CacheRegionStatistics::getHitCount);
+            counter(registry, "media.entity-cache.requests", "Second-level cache lookups", region, stats,
+                    "result", "miss", CacheRegionStatistics::getMissCount);
+            counter(registry, "media.entity-cache.puts", "Entries put into the cache", region, stats,
+                    null, null, CacheRegionStatistics::getPutCount);
+        }
+        query(registry, "hit", Statistics::getQueryCacheHitCount, statistics);
+        query(registry, "miss", Statistics::getQueryCacheMissCount, statistics);
+        FunctionCounter.builder("media.query-cache.puts", statistics, Statistics::getQueryCachePutCount)
+                .description("Query results put into the cache")
+                .register(registry);
+    }
+
+    private static void counter(MeterRegistry registry, String name, String description, String region,
+            CacheRegionStatistics stats, String tag, String value, ToDoubleFunction<CacheRegionStatistics> count) {
+        FunctionCounter.Builder<CacheRegionStatistics> builder = FunctionCounter.builder(name, stats, count)
+                .description(description)
+                .tag("region", region);
+        if (tag != null) {
+            builder.tag(tag, value);
+        }
+        builder.register(registry);
+    }
+
+    private static void query(MeterRegistry registry, String result, ToDoubleFunction<Statistics> count,
+            Statistics statistics) {
+        FunctionCounter.builder("media.query-cache.requests", statistics, count)
+                .description("Query cache lookups")
+                .tag("result", result)
+                .register(registry);
+    }
+}
@@ -0,0 +1,261 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Serves stored files for every download and stream endpoint: Content-Length and Accept-Ranges, single and
+ * multipart byte ranges (206), an ETag and Last-Modified with If-None-Match, If-Modified-Since, If-Range and
+ * If-Match. The whole file or a single range is handed to Tomcat's sendfile, so the kernel copies it to the
+ * socket; multipart ranges and servers without sendfile are written by Spring's resource converters.
+ */
+@Service
+public class FileDeliveryService {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    @Value("${media.delivery.sendfile-min-bytes:49152}") // Smaller files are cheaper to copy than to sendfile
+    private long sendfileMinBytes;
+
+    /**
+     * Response for the file in the current request
+     */
+    public ResponseEntity<Resource> deliver(Path file, MediaType contentType, ContentDisposition disposition)
+            throws IOException {
+        return deliver(file, contentType, disposition, null);
+    }
+
+    /**
+     * Response for the file in the current request with a Cache-Control policy; the disposition may be null
+     */
+    public ResponseEntity<Resource> deliver(Path file, MediaType contentType, ContentDisposition disposition,
+            CacheControl cacheControl) throws IOException {
+        HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes())
+                .getRequest();
+        return deliver(request, file, contentType, disposition, cacheControl);
+    }
+
+    /**
+     * Response for file content held in memory, e.g. by the segment cache
+     */
+    public ResponseEntity<Resource> deliver(ByteBuffer content, long lastModified, MediaType contentType,
+            ContentDisposition disposition, CacheControl cacheControl) throws IOException {
+        HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.currentRequestAttributes())
+                .getRequest();
+        return deliver(request, new Body(null, content, content.remaining(), lastModified), contentType,
+                disposition, cacheControl);
+    }
+
+    ResponseEntity<Resource> deliver(HttpServletRequest request, Path file, MediaType contentType,
+            ContentDisposition disposition, CacheControl cacheControl) throws IOException {
+        return deliver(request, new Body(file, null, Files.size(file), Files.getLastModifiedTime(file).toMillis()),
+                contentType, disposition, cacheControl);
+    }
+
+    /**
+     * A file on disk, which can be sent with sendfile, or its content in memory
+     */
+    private record Body(Path file, ByteBuffer content, long length, long lastModified) {
+
+        /**
+         * Resource Spring may serve ranges of
+         */
+        Resource resource() {
+            return file != null ? new FileSystemResource(file) : new ByteBufferResource(content);
+        }
+
+        /**
+         * The whole body as a resource Spring never serves ranges of
+         */
+        Resource whole() throws IOException {
+            return new InputStreamResource(file != null ? Files.newInputStream(file)
+                    : new ByteBufferBackedInputStream(content.duplicate()));
+        }
+    }
+
+    /**
+     * Re-readable view of a buffer; Spring reads it once per requested range
+     */
+    private static class ByteBufferResource extends AbstractResource {
+        private final ByteBuffer content;
+
+        ByteBufferResource(ByteBuffer content) {
+            this.content = content;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteBufferBackedInputStream(content.duplicate());
+        }
+
+        @Override
+        public long contentLength() {
+            return content.remaining();
+        }
+
+        @Override
+        public String getDescription() {
+            return "Cached file content";
+        }
+    }
+
+    private ResponseEntity<Resource> deliver(HttpServletRequest request, Body body, MediaType contentType,
+            ContentDisposition disposition, CacheControl cacheControl) throws IOException {
+        long length = body.length();
+        long lastModified = body.lastModified() / 1000 * 1000; // HTTP dates have seconds
+        String etag = etag(length, lastModified);
+        HttpHeaders requestHeaders = new ServletServerHttpRequest(request).getHeaders();
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        headers.setLastModified(lastModified);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (cacheControl != null) {
+            headers.setCacheControl(cacheControl);
+        }
+        if (preconditionFailed(requestHeaders, etag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).headers(headers).build();
+        }
+        if (notModified(requestHeaders, etag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+        headers.setContentType(contentType);
+        if (disposition != null) {
+            headers.setContentDisposition(disposition);
+        }
+
+        // A range of an older version of the file is worthless, If-Range asks for the whole file then
+        String rangeHeader = requestHeaders.getFirst(HttpHeaders.RANGE);
+        boolean ranged = rangeHeader != null && ifRangeMatches(requestHeaders, etag, lastModified);
+        List<HttpRange> ranges;
+        try {
+            ranges = ranged ? HttpRange.parseRanges(rangeHeader) : List.of();
+        } catch (IllegalArgumentException e) {
+            ranges = List.of();
+            ranged = false;
+        }
+        if (ranges.size() > 1) {
+            // Multipart/byteranges body, written by Spring for a 200 resource response to a Range request
+            return ResponseEntity.ok().headers(headers).body(body.resource());
+        }
+
+        long start = 0;
+        long end = length - 1;
+        HttpStatus status = HttpStatus.OK;
+        if (ranges.size() == 1) {
+            try {
+                start = ranges.get(0).getRangeStart(length);
+                end = ranges.get(0).getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                start = length; // Suffix range of an empty file
+            }
+            if (start >= length || end < start) {
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).headers(headers).build();
+            }
+            status = HttpStatus.PARTIAL_CONTENT;
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        headers.setContentLength(end - start + 1);
+
+        if (HttpMethod.HEAD.matches(request.getMethod())) {
+            return ResponseEntity.status(status).headers(headers).build();
+        }
+        if (body.file() != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))
+                && end - start + 1 >= sendfileMinBytes) {
+            // No body: Tomcat sends the region when it commits the response
+            request.setAttribute(SENDFILE_FILENAME, body.file().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return ResponseEntity.status(status).headers(headers).build();
+        }
+        if (ranged) {
+            headers.remove(HttpHeaders.CONTENT_RANGE);
+            headers.remove(HttpHeaders.CONTENT_LENGTH);
+            return ResponseEntity.ok().headers(headers).body(body.resource());
+        }
+        // Spring serves ranges of any resource but this type, which makes it ignore a failed If-Range
+        return ResponseEntity.ok().headers(headers).body(body.whole());
+    }
+
+    /**
+     * Strong validator of a file version: its size and modification time
+     */
+    static String etag(long length, long lastModified) {
+        return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    private boolean preconditionFailed(HttpHeaders requestHeaders, String etag, long lastModified) {
+        List<String> ifMatch = requestHeaders.getIfMatch();
+        if (!ifMatch.isEmpty()) {
+            return ifMatch.stream().noneMatch(tag -> tag.equals("*") || tag.equals(etag));
+        }
+        try {
+            long ifUnmodifiedSince = requestHeaders.getIfUnmodifiedSince();
+            return ifUnmodifiedSince >= 0 && lastModified > ifUnmodifiedSince;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private boolean notModified(HttpHeaders requestHeaders, String etag, long lastModified) {
+        List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+        if (!ifNoneMatch.isEmpty()) {
+            // Weak comparison; If-Modified-Since is ignored when If-None-Match is present
+            return ifNoneMatch.stream().anyMatch(tag -> tag.equals("*") || stripWeak(tag).equals(etag));
+        }
+        try {
+            long ifModifiedSince = requestHeaders.getIfModifiedSince();
+            return ifModifiedSince >= 0 && lastModified <= ifModifiedSince;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private boolean ifRangeMatches(HttpHeaders requestHeaders, String etag, long lastModified) {
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            // Strong comparison, a weak tag never matches
+            return ifRange.equals(etag);
+        }
+        try {
+            return requestHeaders.getFirstDate(HttpHeaders.IF_RANGE) == lastModified;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -0,0 +1,250 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import com.astromediavault.AstroMediaVault.model.Media;
+import com.astromediavault.AstroMediaVault.model.TranscodedVideo;
+import com.astromediavault.AstroMediaVault.model.VideoSegment;
+import com.astromediavault.AstroMediaVault.repository.MediaRepository;
+import com.astromediavault.AstroMediaVault.repository.TranscodedVideoRepository;
+import com.astromediavault.AstroMediaVault.repository.VideoSegmentRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Playlists and segments of the HLS endpoint. Files are looked up in an in-memory index per media, built from
+ * the segment and rendition rows once a video is READY, so a request costs no database query or directory
+ * walk. URLs carry a version (the master playlist's modification time): segments of the current version never
+ * change and are cached for a year, playlists for a short TTL. Videos still transcoding are served from their
+ * folder with caching disabled, as their event playlists grow and a retry may rewrite segments. Files of a
+ * finished version are served from the {@link SegmentCache}.
+ */
+@Service
+@RequiredArgsConstructor
+public class HlsDeliveryService {
+
+    public static final String MASTER_PLAYLIST = "master.m3u8";
+
+    private static final MediaType PLAYLIST_TYPE = MediaType.parseMediaType("application/vnd.apple.mpegurl");
+    private static final MediaType TS_TYPE = MediaType.parseMediaType("video/mp2t");
+    private static final MediaType MP4_TYPE = MediaType.parseMediaType("video/mp4");
+
+    // Names ffmpeg and the stitcher write: playlists, TS segments and single-file fMP4 renditions
+    private static final Pattern HLS_FILE = Pattern.compile(
+            "master\\.m3u8|stream_(audio_)?\\d+(\\.m3u8|_\\d+\\.ts|\\.mp4)");
+    private static final Pattern TS_SEGMENT = Pattern.compile("(stream_(?:audio_)?\\d+_)(\\d+)\\.ts");
+
+    private final MediaRepository mediaRepository;
+    private final VideoSegmentRepository videoSegmentRepository;
+    private final TranscodedVideoRepository transcodedVideoRepository;
+    private final VideoTranscodeService videoTranscodeService;
+    private final FileDeliveryService fileDeliveryService;
+    private final MediaMetrics mediaMetrics;
+    private final SegmentCache segmentCache;
+
+    @Value("${storage.local.path}")
+    private String localStoragePath;
+
+    @Value("${server.host}")
+    private String serverHost;
+
+    @Value("${media.hls.index-max-entries:10000}")
+    private int indexMaxEntries;
+
+    @Value("${media.hls.index-ttl:10m}") // Until a READY video is indexed again, e.g. after a reprocess
+    private Duration indexTtl;
+
+    @Value("${media.hls.index-refresh:5s}") // Until a video still transcoding is checked again
+    private Duration indexRefresh;
+
+    @Value("${media.hls.playlist-max-age:60s}")
+    private Duration playlistMaxAge;
+
+    @Value("${media.hls.segment-max-age:365d}")
+    private Duration segmentMaxAge;
+
+    @Value("${media.hls.cache.read-ahead:2}") // Segments loaded ahead of a client reading sequentially
+    private int readAhead;
+
+    private Map<UUID, Index> index;
+
+    /**
+     * Files of one video. Complete indexes know every file by name; others resolve valid names in the folder.
+     */
+    private record Index(Path directory, String version, boolean complete, Map<String, Path> files, long builtAt) {
+
+        Path resolve(String name) {
+            if (files != null) {
+                return files.get(name);
+            }
+            return HLS_FILE.matcher(name).matches() ? directory.resolve(name) : null;
+        }
+    }
+
+    @PostConstruct
+    void createIndex() {
+        // Least recently used entries go first once the index is full
+        index = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Index> eldest) {
+                return size() > indexMaxEntries;
+            }
+        });
+    }
+
+    /**
+     * URL of the master playlist of a video on this endpoint
+     */
+    public String masterUrl(Media media) {
+        return serverHost + "/hls/" + media.getId() + "/" + index(media).version() + "/" + MASTER_PLAYLIST;
+    }
+
+    /**
+     * Forget the files of a video, e.g. once it is reprocessed or deleted
+     */
+    public void evict(UUID mediaId) {
+        index.remove(mediaId);
+    }
+
+    public ResponseEntity<Resource> serve(UUID mediaId, String version, String name) {
+        long start = System.nanoTime();
+        String kind = name.equals(MASTER_PLAYLIST) ? "master" : name.endsWith(".m3u8") ? "playlist" : "segment";
+        ResponseEntity<Resource> response = resolve(mediaId, version, name, kind);
+        mediaMetrics.recordHlsRequest(kind, response.getStatusCode().value(),
+                Duration.ofNanos(System.nanoTime() - start));
+        return response;
+    }
+
+    private ResponseEntity<Resource> resolve(UUID mediaId, String version, String name, String kind) {
+        Index entry = index.get(mediaId);
+        if (!fresh(entry)) {
+            Media media = mediaRepository.findById(mediaId).orElse(null);
+            if (media == null || media.getFileType() != Media.FileType.VIDEO) {
+                index.remove(mediaId);
+                return ResponseEntity.notFound().build();
+            }
+            entry = index(media);
+        }
+
+        Path file = entry.resolve(name);
+        if (file == null) {
+            return ResponseEntity.notFound().build();
+        }
+        boolean current = entry.complete() && entry.version().equals(version);
+        CacheControl cacheControl;
+        if (!current) {
+            cacheControl = CacheControl.noCache();
+        } else if (kind.equals("segment")) {
+            cacheControl = CacheControl.maxAge(segmentMaxAge).cachePublic().immutable();
+        } else {
+            cacheControl = CacheControl.maxAge(playlistMaxAge).cachePublic();
+        }
+        MediaType type = kind.equals("segment") ? name.endsWith(".mp4") ? MP4_TYPE : TS_TYPE : PLAYLIST_TYPE;
+        try {
+            // Only files of a finished version are cached, their content never changes under the key
+            SegmentCache.Entry cached = current && segmentCache.isEnabled()
+                    ? segmentCache.get(file + "@" + entry.version(), file) : null;
+            if (cached == null) {
+                return fileDeliveryService.deliver(file, type, null, cacheControl);
+            }
+            if (kind.equals("segment")) {
+                readAhead(entry, name);
+            }
+            return fileDeliveryService.deliver(cached.open(), cached.lastModified(), type, null, cacheControl);
+        } catch (NoSuchFileException e) {
+            // Deleted or reprocessed since it was indexed
+            index.remove(mediaId);
+            return ResponseEntity.notFound().build();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read HLS file " + file, e);
+        }
+    }
+
+    /**
+     * Prefetch the next segments of a rendition once a client requests them in order
+     */
+    private void readAhead(Index entry, String name) {
+        Matcher segment = TS_SEGMENT.matcher(name);
+        if (readAhead <= 0 || !segment.matches()) {
+            return;
+        }
+        String prefix = segment.group(1);
+        String digits = segment.group(2);
+        int number = Integer.parseInt(digits);
+        Path previous = entry.resolve(segmentName(prefix, number - 1, digits.length()));
+        if (number == 0 || previous == null || !segmentCache.contains(previous + "@" + entry.version())) {
+            return;
+        }
+        for (int next = number + 1; next <= number + readAhead; next++) {
+            Path file = entry.resolve(segmentName(prefix, next, digits.length()));
+            if (file == null) {
+                return;
+            }
+            segmentCache.prefetch(file + "@" + entry.version(), file);
+        }
+    }
+
+    private static String segmentName(String prefix, int number, int digits) {
+        return prefix + String.format("%0" + digits + "d", number) + ".ts";
+    }
+
+    private Index index(Media media) {
+        Index entry = index.get(media.getId());
+        if (fresh(entry)) {
+            return entry;
+        }
+        entry = build(media);
+        index.put(media.getId(), entry);
+        return entry;
+    }
+
+    private boolean fresh(Index entry) {
+        return entry != null && System.currentTimeMillis() - entry.builtAt()
+                <= (entry.complete() ? indexTtl : indexRefresh).toMillis();
+    }
+
+    private Index build(Media media) {
+        Path directory = videoTranscodeService.hlsDirectory(media);
+        String version;
+        try {
+            version = Long.toHexString(Files.getLastModifiedTime(directory.resolve(MASTER_PLAYLIST)).toMillis());
+        } catch (IOException e) {
+            version = "0";
+        }
+        if (media.getProcessingState() != Media.ProcessingState.READY) {
+            return new Index(directory, version, false, null, System.currentTimeMillis());
+        }
+
+        UUID primaryMediaId = media.getPrimaryMediaId();
+        Map<String, Path> files = new HashMap<>();
+        files.put(MASTER_PLAYLIST, directory.resolve(MASTER_PLAYLIST));
+        for (TranscodedVideo rendition : transcodedVideoRepository.findByMediaId(primaryMediaId)) {
+            Path playlist = Paths.get(localStoragePath, rendition.getFilePath());
+            files.put(playlist.getFileName().toString(), playlist);
+        }
+        for (VideoSegment segment : videoSegmentRepository.findByMediaId(primaryMediaId)) {
+            Path path = Paths.get(localStoragePath, segment.getSegmentPath());
+            files.putIfAbsent(path.getFileName().toString(), path);
+        }
+        // Videos transcoded before segments were recorded are resolved by name
+        return new Index(directory, version, true, files.size() > 1 ? files : null, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,210 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Reads the media playlists written by ffmpeg so segment rows reflect what is really on disk,
+ * and writes the playlists ffmpeg cannot: stitched, finalized and early master playlists
+ */
+@Service
+public class HlsPlaylistService {
+
+    private static final String AUDIO_GROUP = "audio";
+
+    /**
+     * One media segment of a playlist, in playlist order
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Segment {
+        private final int index;
+        private final String uri;
+        private final float durationSeconds;
+        private final Long byteOffset; // set for #EXT-X-BYTERANGE segments sharing one file
+        private final Long byteLength;
+
+        public Segment(int index, String uri, float durationSeconds) {
+            this(index, uri, durationSeconds, null, null);
+        }
+    }
+
+    public List<Segment> parse(Path playlist) throws IOException {
+        return parse(Files.readString(playlist, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parse the #EXTINF entries of a media playlist, resolving #EXT-X-BYTERANGE offsets that continue
+     * from the previous range of the same file
+     */
+    public List<Segment> parse(String playlist) throws IOException {
+        List<Segment> segments = new ArrayList<>();
+        Float duration = null;
+        Long length = null;
+        Long offset = null;
+        Map<String, Long> nextOffsets = new HashMap<>();
+
+        try (BufferedReader reader = new BufferedReader(new StringReader(playlist))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                if (line.startsWith("#EXTINF:")) {
+                    String value = line.substring("#EXTINF:".length());
+                    int comma = value.indexOf(',');
+                    duration = Float.parseFloat(comma >= 0 ? value.substring(0, comma) : value);
+                } else if (line.startsWith("#EXT-X-BYTERANGE:")) {
+                    String value = line.substring("#EXT-X-BYTERANGE:".length());
+                    int at = value.indexOf('@');
+                    length = Long.parseLong(at >= 0 ? value.substring(0, at) : value);
+                    offset = at >= 0 ? Long.parseLong(value.substring(at + 1)) : null;
+                } else if (!line.startsWith("#")) {
+                    if (duration == null) {
+                        throw new IOException("Segment without #EXTINF: " + line);
+                    }
+                    if (length != null) {
+                        if (offset == null) {
+                            offset = nextOffsets.get(line);
+                            if (offset == null) {
+                                throw new IOException("Byte range without offset: " + line);
+                            }
+                        }
+                        nextOffsets.put(line, offset + length);
+                    }
+                    segments.add(new Segment(segments.size(), line, duration, offset, length));
+                    duration = null;
+                    length = null;
+                    offset = null;
+                }
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Attributes of the #EXT-X-MAP tag (the fMP4 initialization section), or null for TS playlists
+     */
+    public String initSection(Path playlist) throws IOException {
+        for (String line : Files.readAllLines(playlist, StandardCharsets.UTF_8)) {
+            if (line.startsWith("#EXT-X-MAP:")) {
+                return line.substring("#EXT-X-MAP:".length()).trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether a media playlist lists at least one segment; false while ffmpeg has not written it yet
+     */
+    public boolean hasSegments(Path playlist) {
+        try {
+            return Files.exists(playlist) && !parse(playlist).isEmpty();
+        } catch (IOException | NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Write the master playlist of a ladder, replacing the target atomically. Video variants are stream_N.m3u8,
+     * the audio tracks one shared group of stream_audio_N.m3u8 renditions.
+     */
+    public void writeMasterPlaylist(Path target, List<VideoLadderPlanner.Rendition> renditions,
+            List<VideoLadderPlanner.AudioTrack> audioTracks) throws IOException {
+        StringBuilder playlist = new StringBuilder()
+                .append("#EXTM3U\n")
+                .append("#EXT-X-VERSION:3\n")
+                .append("#EXT-X-INDEPENDENT-SEGMENTS\n");
+
+        int audioBandwidth = 0;
+        for (VideoLadderPlanner.AudioTrack track : audioTracks) {
+            boolean tagged = !track.getLanguage().equals(VideoLadderPlanner.AudioTrack.UNDETERMINED);
+            String name = (tagged ? track.getLanguage() : "Audio")
+                    + (audioTracks.size() > 1 ? " " + (track.getIndex() + 1) : "");
+            playlist.append("#EXT-X-MEDIA:TYPE=AUDIO,GROUP-ID=\"").append(AUDIO_GROUP).append('"');
+            if (tagged) {
+                playlist.append(",LANGUAGE=\"").append(track.getLanguage()).append('"');
+            }
+            playlist.append(",NAME=\"").append(name).append('"')
+                    .append(",DEFAULT=").append(track.getIndex() == 0 ? "YES" : "NO")
+                    .append(",AUTOSELECT=YES,CHANNELS=\"2\"")
+                    .append(",URI=\"stream_").append(track.getName()).append(".m3u8\"\n");
+            audioBandwidth = Math.max(audioBandwidth, track.getBitrateKbps() * 1000);
+        }
+
+        for (int i = 0; i < renditions.size(); i++) {
+            VideoLadderPlanner.Rendition rendition = renditions.get(i);
+            // Peak of the video (maxrate is 110% of the target) plus the largest audio rendition it plays with
+            long bandwidth = Math.round(rendition.getBitrateKbps() * 1.1) * 1000 + audioBandwidth;
+            String codecs = audioTracks.isEmpty() ? rendition.getCodecs()
+                    : rendition.getCodecs() + "," + VideoLadderPlanner.AudioTrack.CODECS;
+            playlist.append(String.format(Locale.ROOT,
+                    "#EXT-X-STREAM-INF:BANDWIDTH=%d,CODECS=\"%s\",RESOLUTION=%s,FRAME-RATE=%.3f",
+                    bandwidth, codecs, rendition.getResolution(), rendition.getFrameRate()));
+            if (!audioTracks.isEmpty()) {
+                playlist.append(",AUDIO=\"").append(AUDIO_GROUP).append('"');
+            }
+            playlist.append('\n').append("stream_").append(i).append(".m3u8\n");
+        }
+        write(target, playlist);
+    }
+
+    /**
+     * Write a complete VOD media playlist, replacing the target atomically
+     */
+    public void writeVodPlaylist(Path target, List<Segment> segments) throws IOException {
+        writeVodPlaylist(target, null, segments);
+    }
+
+    /**
+     * Write a complete VOD media playlist with an optional #EXT-X-MAP initialization section
+     */
+    public void writeVodPlaylist(Path target, String initSection, List<Segment> segments) throws IOException {
+        double targetDuration = segments.stream().mapToDouble(Segment::getDurationSeconds).max().orElse(0);
+        boolean byteRanges = segments.stream().anyMatch(segment -> segment.getByteLength() != null);
+        // EXT-X-MAP in a media playlist needs version 6, fMP4 segments version 7; byte ranges need 4
+        int version = initSection != null ? 7 : byteRanges ? 4 : 3;
+
+        StringBuilder playlist = new StringBuilder()
+                .append("#EXTM3U\n")
+                .append("#EXT-X-VERSION:").append(version).append('\n')
+                .append("#EXT-X-TARGETDURATION:").append((int) Math.ceil(targetDuration)).append('\n')
+                .append("#EXT-X-MEDIA-SEQUENCE:0\n")
+                .append("#EXT-X-PLAYLIST-TYPE:VOD\n");
+        if (initSection != null) {
+            playlist.append("#EXT-X-MAP:").append(initSection).append('\n');
+        }
+        for (Segment segment : segments) {
+            playlist.append(String.format(Locale.ROOT, "#EXTINF:%.6f,\n", segment.getDurationSeconds()));
+            if (segment.getByteLength() != null) {
+                playlist.append("#EXT-X-BYTERANGE:").append(segment.getByteLength())
+                        .append('@').append(segment.getByteOffset()).append('\n');
+            }
+            playlist.append(segment.getUri()).append('\n');
+        }
+        playlist.append("#EXT-X-ENDLIST\n");
+        write(target, playlist);
+    }
+
+    private void write(Path target, CharSequence playlist) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.writeString(temp, playlist, StandardCharsets.UTF_8);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,65 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import jakarta.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Node wide heap budget for pixel decodes. Uploads and consumers acquire the estimated
+ * pixel bytes before decoding, so concurrent large images queue instead of exhausting the heap.
+ */
+@Service
+public class ImageDecodeBudget {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageDecodeBudget.class);
+
+    private static final long UNIT = 1024; // permits are counted in KiB
+
+    @Value("${media.img.decode-budget-bytes:0}") // 0 = a quarter of the max heap
+    private long budgetBytes;
+
+    @Value("${media.img.decode-wait:60s}")
+    private Duration maxWait;
+
+    private Semaphore permits;
+    private int totalPermits;
+
+    public class Permit implements AutoCloseable {
+        private final int amount;
+
+        private Permit(int amount) {
+            this.amount = amount;
+        }
+
+        @Override
+        public void close() {
+            permits.release(amount);
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        long bytes = budgetBytes > 0 ? budgetBytes : Runtime.getRuntime().maxMemory() / 4;
+        totalPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, bytes / UNIT));
+        permits = new Semaphore(totalPermits, true);
+        logger.info("Image decode budget: {} MB", (long) totalPermits * UNIT / (1024 * 1024));
+    }
+
+    /**
+     * Block until the estimated bytes fit in the budget. Requests larger than the whole budget run alone.
+     */
+    public Permit acquire(long estimatedBytes) throws InterruptedException {
+        int amount = (int) Math.min(totalPermits, Math.max(1, (estimatedBytes + UNIT - 1) / UNIT));
+        if (!permits.tryAcquire(amount, maxWait.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Timed out waiting for " + estimatedBytes + " bytes of decode memory");
+        }
+        return new Permit(amount);
+    }
+}
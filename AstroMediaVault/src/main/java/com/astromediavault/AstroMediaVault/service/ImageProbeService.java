@@ -0,0 +1,88 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import org.apache.tika.Tika;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Iterator;
+
+import com.astromediavault.AstroMediaVault.exception.InvalidFileTypeException;
+
+/**
+ * Reads image dimensions and format from the file header only, without decoding any pixels
+ */
+@Service
+public class ImageProbeService {
+
+    // Tika facades are thread safe, share one detector instead of building it per upload
+    private static final Tika TIKA = new Tika();
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    @Getter
+    @AllArgsConstructor
+    public static class ImageInfo {
+        private final int width;
+        private final int height;
+        private final String formatName;
+        private final String mimeType;
+        private final boolean alpha;
+        private final String colorModel;
+
+        /**
+         * Heap needed to decode the image, plus an opaque copy when the alpha channel has to be flattened
+         */
+        public long getEstimatedDecodeBytes() {
+            long pixelBytes = (long) width * height * BYTES_PER_PIXEL;
+            return alpha ? pixelBytes * 2 : pixelBytes;
+        }
+    }
+
+    public ImageInfo probe(File file) throws IOException {
+        String mimeType;
+        try (InputStream is = Files.newInputStream(file.toPath())) {
+            mimeType = TIKA.detect(is);
+        }
+
+        try (ImageInputStream iis = ImageIO.createImageInputStream(file)) {
+            Iterator<ImageReader> readers = iis == null ? null : ImageIO.getImageReaders(iis);
+            if (readers == null || !readers.hasNext()) {
+                throw new InvalidFileTypeException("Invalid image file");
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, true, true);
+                ImageTypeSpecifier rawType = rawImageType(reader);
+                return new ImageInfo(
+                        reader.getWidth(0),
+                        reader.getHeight(0),
+                        reader.getFormatName().toLowerCase(),
+                        mimeType,
+                        rawType != null && rawType.getColorModel().hasAlpha(),
+                        rawType != null ? rawType.getColorModel().toString() : "unknown");
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private ImageTypeSpecifier rawImageType(ImageReader reader) {
+        try {
+            return reader.getRawImageType(0);
+        } catch (IOException | RuntimeException e) {
+            // Some readers (e.g. CMYK JPEG) can't describe the raw type without decoding
+            return null;
+        }
+    }
+}
@@ -2,25 +2,21 @@ package com.astromediavault.AstroMediaVault.service;
 
 import lombok.RequiredArgsConstructor;
 
-import org.apache.tika.Tika;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.InputStream;
+import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.UUID;
 
-import com.astromediavault.AstroMediaVault.dto.MediaUploadRequest;
 import com.astromediavault.AstroMediaVault.exception.InvalidFileTypeException;
 import com.astromediavault.AstroMediaVault.exception.MediaNotFoundException;
 import com.astromediavault.AstroMediaVault.model.ImageMetadata;
@@ -29,7 +25,7 @@ import com.astromediavault.AstroMediaVault.repository.ImageMetadataRepository;
 import com.astromediavault.AstroMediaVault.repository.MediaRepository;
 
 import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.MediaType;
 
 import java.nio.file.Files;
@@ -42,6 +38,9 @@ public class ImageService {
     private final ImageMetadataRepository imageMetadataRepository;
     private final RabbitTemplate rabbitTemplate;
     private final MediaRepository mediaRepository;
+    private final ImageProbeService imageProbeService;
+    private final ImageDecodeBudget imageDecodeBudget;
+    private final FileDeliveryService fileDeliveryService;
 
     @Value("${storage.local.path}")
     private String localStoragePath;
@@ -52,34 +51,39 @@ public class ImageService {
     private static final int MAX_WIDTH = 10000;
     private static final int MAX_HEIGHT = 10000;
 
-    public void processImageUpload(Media media, MediaUploadRequest request, String fullPath) throws Exception {
-        MultipartFile file = request.getFile();
+    public void processImageUpload(Media media, String fullPath) throws Exception {
+        File storedFile = new File(fullPath);
 
-        if (file.getSize() > MAX_FILE_SIZE) {
+        if (media.getFileSize() > MAX_FILE_SIZE) {
             throw new InvalidFileTypeException("Image file size exceeds maximum allowed (10MB)");
         }
 
-        BufferedImage bufferedImage;
-        try (InputStream is = file.getInputStream()) {
-            bufferedImage = ImageIO.read(is);
-            if (bufferedImage == null) {
-                throw new InvalidFileTypeException("Invalid image file");
-            }
-        }
-
-        int width = bufferedImage.getWidth();
-        int height = bufferedImage.getHeight();
+        // Validate from the header before paying for a full decode
+        ImageProbeService.ImageInfo info = imageProbeService.probe(storedFile);
+        int width = info.getWidth();
+        int height = info.getHeight();
 
         if (width > MAX_WIDTH || height > MAX_HEIGHT) {
             throw new InvalidFileTypeException("Image dimensions exceed allowed limits");
         }
 
-        BufferedImage sanitizedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
-        sanitizedImage.getGraphics().drawImage(bufferedImage, 0, 0, null);
+        String extension = getExtension(info.getMimeType());
 
-        String extension = getExtension(file);
+        try (ImageDecodeBudget.Permit permit = imageDecodeBudget.acquire(info.getEstimatedDecodeBytes())) {
+            BufferedImage bufferedImage = ImageIO.read(storedFile);
+            if (bufferedImage == null) {
+                throw new InvalidFileTypeException("Invalid image file");
+            }
 
-        ImageIO.write(sanitizedImage, extension, new File(fullPath)); // ✅ Save sanitized image
+            // Re-encoding drops embedded metadata; only flatten when there is an alpha channel to remove
+            BufferedImage sanitizedImage = bufferedImage;
+            if (bufferedImage.getColorModel().hasAlpha()) {
+                sanitizedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+                sanitizedImage.getGraphics().drawImage(bufferedImage, 0, 0, null);
+            }
+
+            ImageIO.write(sanitizedImage, extension, storedFile); // ✅ Overwrite with sanitized image
+        }
 
         media.setStoragePath(Paths
                 .get("users", media.getUser().getId().toString(), "images", "original", new File(fullPath).getName())
@@ -89,21 +93,19 @@ public class ImageService {
         metadata.setMedia(media);
         metadata.setWidth(width);
         metadata.setHeight(height);
-        metadata.setColorMode(bufferedImage.getColorModel().toString());
+        metadata.setColorMode(info.getColorModel());
         metadata.setFormat(extension);
         imageMetadataRepository.save(metadata);
 
         logger.info("Saved original image and metadata for media: {}", media.getId());
 
-        if (request.isGenerateImgRes()) {
-            rabbitTemplate.convertAndSend("image-resolution-generation-queue", media.getId().toString());
+        if (media.isGenerateImageResolutions()) {
+            JobPriorityPolicy.publish(rabbitTemplate, "image-resolution-generation-queue.v2", media);
             logger.info("Queued image for resolution processing: {}", media.getId());
         }
     }
 
-    private String getExtension(MultipartFile file) throws Exception {
-        Tika tika = new Tika();
-        String mimeType = tika.detect(file.getInputStream());
+    private String getExtension(String mimeType) {
         return switch (mimeType) {
             case "image/jpeg" -> "jpg";
             case "image/png" -> "png";
@@ -112,7 +114,8 @@ public class ImageService {
         };
     }
 
-    public ResponseEntity<Resource> streamImage(UUID mediaId, String resolution, String format, boolean download) {
+    public ResponseEntity<Resource> streamImage(UUID mediaId, String resolution, String format, boolean download)
+            throws IOException {
         Media media = mediaRepository.findById(mediaId)
                 .orElseThrow(() -> new MediaNotFoundException("Media not found: " + mediaId));
 
@@ -127,10 +130,10 @@ public class ImageService {
             filePath = Paths.get(
                     localStoragePath,
                     "users",
-                    media.getUser().getId().toString(),
+                    media.getArtifactUserId().toString(),
                     "images",
                     "processed",
-                    media.getId().toString(),
+                    media.getArtifactMediaId().toString(),
                     resolution + "." + format).toString();
         }
 
@@ -140,20 +143,12 @@ public class ImageService {
             return ResponseEntity.notFound().build();
         }
 
-        Resource resource = new FileSystemResource(file);
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentLength(file.length());
-        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-        if (download) {
-            headers.setContentDispositionFormData("attachment", file.getName());
-        } else {
-            headers.setContentDispositionFormData("inline", file.getName());
-        }
-
-        return ResponseEntity.ok().headers(headers).body(resource);
+        ContentDisposition disposition = (download ? ContentDisposition.attachment() : ContentDisposition.inline())
+                .filename(file.getName()).build();
+        return fileDeliveryService.deliver(file.toPath(), MediaType.APPLICATION_OCTET_STREAM, disposition);
     }
 
-    public ResponseEntity<Resource> downloadImage(UUID mediaId) {
+    public ResponseEntity<Resource> downloadImage(UUID mediaId) throws IOException {
         Media media = mediaRepository.findById(mediaId)
                 .orElseThrow(() -> new MediaNotFoundException("Media not found with ID: " + mediaId));
 
@@ -168,13 +163,8 @@ public class ImageService {
             throw new RuntimeException("Image file does not exist at: " + fullPath);
         }
 
-        Resource resource = new FileSystemResource(file);
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentLength(file.length());
-        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-        headers.setContentDispositionFormData("attachment", file.getName());
-
-        return ResponseEntity.ok().headers(headers).body(resource);
+        return fileDeliveryService.deliver(file.toPath(), MediaType.APPLICATION_OCTET_STREAM,
+                ContentDisposition.attachment().filename(file.getName()).build());
     }
 
     public void deleteImageFiles(UUID mediaId) {
@@ -195,10 +185,10 @@ public class ImageService {
         Path processedDir = Paths.get(
                 localStoragePath,
                 "users",
-                media.getUser().getId().toString(),
+                media.getArtifactUserId().toString(),
                 "images",
                 "processed",
-                media.getId().toString());
+                media.getArtifactMediaId().toString());
 
         if (Files.exists(processedDir)) {
             try {
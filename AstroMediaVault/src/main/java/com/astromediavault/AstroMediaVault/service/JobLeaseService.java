@@ -0,0 +1,270 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import com.astromediavault.AstroMediaVault.model.Media;
+import com.astromediavault.AstroMediaVault.model.ProcessingJob;
+import com.astromediavault.AstroMediaVault.repository.ProcessingJobRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Leases on transcode jobs. A worker claims the job row before it starts, heartbeats while ffmpeg runs and
+ * ends the lease with the outcome. Redelivered messages of leased or finished jobs are skipped, so a job runs
+ * once however often its message arrives. The reaper queues jobs again whose worker died, and failed jobs
+ * once their backoff elapsed, until they run out of attempts. A worker whose lease was reclaimed is told so:
+ * its ffmpeg is cancelled and it must neither publish nor clean up what the new attempt now owns.
+ */
+@Service
+@RequiredArgsConstructor
+public class JobLeaseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobLeaseService.class);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final ProcessingJobRepository processingJobRepository;
+    private final ProcessingStateService processingStateService;
+    private final MediaMetrics mediaMetrics;
+    private final RabbitTemplate rabbitTemplate;
+
+    @Value("${media.jobs.lease-duration:2m}")
+    private Duration leaseDuration;
+
+    @Value("${media.jobs.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${media.jobs.retry-backoff:30s}")
+    private Duration retryBackoff;
+
+    /** Unique per process; the pid alone repeats across container restarts */
+    private final String workerId = ManagementFactory.getRuntimeMXBean().getName() + "/"
+            + UUID.randomUUID().toString().substring(0, 8);
+
+    private final Map<UUID, Lease> held = new ConcurrentHashMap<>();
+
+    /**
+     * How an attempt ended: retried later, failed for good, or taken over by another worker
+     */
+    public enum Outcome {
+        RETRYING, FAILED, LOST
+    }
+
+    /**
+     * A job this worker runs. As a progress listener it records the encoded position sent with each heartbeat,
+     * and cancels the run once the lease is lost.
+     */
+    public class Lease implements ProcessRunner.ProgressListener {
+        private final UUID jobId;
+        private final int attempt;
+        private volatile double progressSeconds;
+        private volatile boolean lost;
+
+        private Lease(UUID jobId, int attempt) {
+            this.jobId = jobId;
+            this.attempt = attempt;
+        }
+
+        public int getAttempt() {
+            return attempt;
+        }
+
+        /**
+         * Whether an earlier attempt ran, whose outputs may be resumed
+         */
+        public boolean isRetry() {
+            return attempt > 1;
+        }
+
+        /**
+         * Whether another worker reclaimed the job; its outputs are no longer this worker's to touch
+         */
+        public boolean isLost() {
+            return lost;
+        }
+
+        @Override
+        public void onProgress(double outTimeSeconds, double speed) {
+            this.progressSeconds = outTimeSeconds;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return lost;
+        }
+    }
+
+    /**
+     * Record a job for the media and queue its message. A finished job of the same payload starts over;
+     * a job that is still queued or running only gets a duplicate message, which its worker will skip.
+     */
+    public void enqueue(ProcessingJob.Kind kind, Media media, String payload) {
+        ProcessingJob job = processingJobRepository.findByKindAndPayload(kind, payload)
+                .orElseGet(() -> create(kind, media, payload));
+        processingJobRepository.reset(job.getId(), Instant.now());
+        JobPriorityPolicy.publish(rabbitTemplate, kind.getQueue(), payload, media.getPriority());
+    }
+
+    private ProcessingJob create(ProcessingJob.Kind kind, Media media, String payload) {
+        ProcessingJob job = new ProcessingJob();
+        job.setMedia(media);
+        job.setKind(kind);
+        job.setPayload(payload);
+        try {
+            return processingJobRepository.saveAndFlush(job);
+        } catch (DataIntegrityViolationException e) {
+            // Another worker recorded it first
+            return processingJobRepository.findByKindAndPayload(kind, payload).orElseThrow(() -> e);
+        }
+    }
+
+    /**
+     * Claim the job of a message; null when it is finished, waiting for a retry or leased by a live worker.
+     * Jobs queued before jobs were recorded get their row here.
+     */
+    public Lease acquire(ProcessingJob.Kind kind, Media media, String payload) {
+        ProcessingJob job = processingJobRepository.findByKindAndPayload(kind, payload)
+                .orElseGet(() -> create(kind, media, payload));
+        Instant now = Instant.now();
+        if (processingJobRepository.claim(job.getId(), workerId, now, now.plus(leaseDuration)) == 0) {
+            logger.info("Skipping {} job {}: {}", kind, payload, job.getStatus());
+            return null;
+        }
+        Lease lease = new Lease(job.getId(), job.getAttempts() + 1);
+        held.put(job.getId(), lease);
+        return lease;
+    }
+
+    /**
+     * Extend the lease right before outputs are published, so it cannot expire while they are.
+     * Returns false when the lease is lost; the caller must then leave the outputs alone.
+     */
+    public boolean renew(Lease lease) {
+        Instant now = Instant.now();
+        if (lease.lost || processingJobRepository.heartbeat(lease.jobId, workerId, now, now.plus(leaseDuration),
+                lease.progressSeconds) == 0) {
+            lose(lease);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * End a successful attempt; false when the lease was lost and another attempt owns the job
+     */
+    public boolean complete(Lease lease) {
+        return end(lease, ProcessingJob.Status.DONE, null, null);
+    }
+
+    /**
+     * End a failed attempt. Retryable failures run again after a backoff that doubles with every attempt;
+     * the media is only marked FAILED once no attempt is left. Outputs may only be cleaned up on FAILED:
+     * a retry resumes them and on LOST they belong to the attempt that reclaimed the job.
+     */
+    public Outcome fail(Lease lease, Media media, String error, boolean retryable) {
+        String message = truncate(error == null ? "Processing failed" : error);
+        if (retryable && lease.attempt < maxAttempts) {
+            Instant retryAt = Instant.now().plus(retryBackoff.multipliedBy(1L << (lease.attempt - 1)));
+            if (!end(lease, ProcessingJob.Status.RETRYING, message, retryAt)) {
+                return Outcome.LOST;
+            }
+            logger.warn("Attempt {} of job {} failed, retrying at {}: {}", lease.attempt, lease.jobId, retryAt,
+                    message);
+            return Outcome.RETRYING;
+        }
+        if (!end(lease, ProcessingJob.Status.FAILED, message, null)) {
+            return Outcome.LOST;
+        }
+        processingStateService.markFailed(media, message);
+        return Outcome.FAILED;
+    }
+
+    private boolean end(Lease lease, ProcessingJob.Status status, String error, Instant retryAt) {
+        held.remove(lease.jobId);
+        if (lease.lost
+                || processingJobRepository.finish(lease.jobId, workerId, status, error, retryAt, Instant.now()) == 0) {
+            // The reaper took the job while this worker was unresponsive; its new attempt owns the outcome
+            logger.warn("Lease on job {} was lost before it ended as {}", lease.jobId, status);
+            lease.lost = true;
+            return false;
+        }
+        return true;
+    }
+
+    private void lose(Lease lease) {
+        lease.lost = true;
+        held.remove(lease.jobId);
+    }
+
+    @Scheduled(fixedDelayString = "${media.jobs.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        Instant now = Instant.now();
+        held.values().forEach(lease -> {
+            if (processingJobRepository.heartbeat(lease.jobId, workerId, now, now.plus(leaseDuration),
+                    lease.progressSeconds) == 0) {
+                // Cancels the running ffmpeg through the lease, so it stops writing into the new attempt's folders
+                lose(lease);
+                logger.warn("Lease on job {} was lost, cancelling its attempt", lease.jobId);
+            }
+        });
+    }
+
+    /**
+     * Queue jobs again whose worker stopped heartbeating, and failed jobs whose backoff elapsed.
+     * Conditional updates make sure only one node republishes each job.
+     */
+    @Scheduled(fixedDelayString = "${media.jobs.reaper-interval-ms:60000}")
+    public void reap() {
+        Instant now = Instant.now();
+        for (ProcessingJob job : processingJobRepository.findByStatusAndLeaseExpiresAtBefore(
+                ProcessingJob.Status.RUNNING, now)) {
+            mediaMetrics.recordFailure("lease-expired");
+            if (job.getAttempts() >= maxAttempts) {
+                String error = "Worker lost on the last of " + job.getAttempts() + " attempts";
+                if (processingJobRepository.abandon(job.getId(), error, now) == 1) {
+                    processingStateService.markFailed(job.getMedia(), error);
+                }
+            } else if (processingJobRepository.reclaim(job.getId(), now) == 1) {
+                logger.warn("Reclaimed {} job {} from {}", job.getKind(), job.getPayload(), job.getOwner());
+                publish(job);
+            }
+        }
+        for (ProcessingJob job : processingJobRepository.findByStatusAndRetryAtBefore(
+                ProcessingJob.Status.RETRYING, now)) {
+            if (processingJobRepository.release(job.getId(), now) == 1) {
+                publish(job);
+            }
+        }
+    }
+
+    private void publish(ProcessingJob job) {
+        JobPriorityPolicy.publish(rabbitTemplate, job.getKind().getQueue(), job.getPayload(),
+                job.getMedia().getPriority());
+    }
+
+    /**
+     * On shutdown, let the leases of interrupted jobs expire at once so another worker resumes them
+     */
+    @PreDestroy
+    void releaseHeld() {
+        Instant now = Instant.now();
+        held.keySet().forEach(jobId -> processingJobRepository.expire(jobId, workerId, now));
+        held.clear();
+    }
+
+    private static String truncate(String message) {
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+}
@@ -0,0 +1,92 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import com.astromediavault.AstroMediaVault.model.Media;
+import com.astromediavault.AstroMediaVault.repository.MediaRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Priority of processing jobs on the priority queues (0 lowest, {@link #MAX_PRIORITY} highest).
+ * Shortest expected job first: a 10 second clip outranks a 3 hour film. Fair share: every doubling of
+ * the jobs a user already has in flight costs a level, so one bulk upload cannot starve other tenants.
+ * The priority is stored on the media so every later stage (thumbnail, chunks, previews) reuses it.
+ */
+@Service
+@RequiredArgsConstructor
+public class JobPriorityPolicy {
+
+    public static final int MAX_PRIORITY = 9;
+
+    private static final List<Media.ProcessingState> IN_FLIGHT = List.of(Media.ProcessingState.RECEIVED,
+            Media.ProcessingState.PROCESSING);
+
+    private final MediaRepository mediaRepository;
+
+    @Value("${media.scheduling.short-job-seconds:60}") // Jobs up to this long get the top priority
+    private double shortJobSeconds;
+
+    @Value("${media.scheduling.fair-share-jobs:2}") // Jobs in flight before a user starts losing priority
+    private int fairShareJobs;
+
+    @Value("${media.scheduling.bytes-per-second:1048576}") // Size based estimate until the duration is probed
+    private long bytesPerSecond;
+
+    /**
+     * Queue a job for the media (its id is the message) with the media's priority
+     */
+    public static void publish(RabbitOperations rabbit, String queue, Media media) {
+        publish(rabbit, queue, media.getId().toString(), media.getPriority());
+    }
+
+    public static void publish(RabbitOperations rabbit, String queue, String payload, int priority) {
+        MessagePostProcessor withPriority = message -> {
+            message.getMessageProperties().setPriority(priority);
+            return message;
+        };
+        rabbit.convertAndSend("", queue, payload, withPriority);
+    }
+
+    /**
+     * Jobs of a user that are queued or being processed
+     */
+    public long inFlight(UUID userId) {
+        return mediaRepository.countByUserIdAndProcessingStateIn(userId, IN_FLIGHT);
+    }
+
+    /**
+     * Expected work of a media: the probed duration for videos, a size based estimate otherwise
+     */
+    public double expectedSeconds(Media media, Integer probedDurationSeconds) {
+        if (probedDurationSeconds != null && probedDurationSeconds > 0) {
+            return probedDurationSeconds;
+        }
+        return (double) media.getFileSize() / bytesPerSecond;
+    }
+
+    /**
+     * Priority of a job of the given user, counting their jobs in flight
+     */
+    public int priority(Media media, Integer probedDurationSeconds) {
+        return priority(expectedSeconds(media, probedDurationSeconds), inFlight(media.getUser().getId()));
+    }
+
+    public int priority(double expectedSeconds, long inFlight) {
+        // One level per doubling of the expected work above a short job
+        int lengthPenalty = expectedSeconds <= shortJobSeconds ? 0
+                : (int) Math.ceil(log2(expectedSeconds / shortJobSeconds));
+        // One level per doubling of the user's backlog above their fair share
+        int sharePenalty = inFlight <= fairShareJobs ? 0
+                : (int) Math.ceil(log2((double) inFlight / fairShareJobs));
+        return Math.max(0, MAX_PRIORITY - Math.min(lengthPenalty, 6) - sharePenalty);
+    }
+
+    private static double log2(double value) {
+        return Math.log(value) / Math.log(2);
+    }
+}
@@ -0,0 +1,202 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import com.astromediavault.AstroMediaVault.model.Media;
+import com.astromediavault.AstroMediaVault.model.MediaContent;
+import com.astromediavault.AstroMediaVault.repository.MediaContentRepository;
+import com.astromediavault.AstroMediaVault.repository.ImageMetadataRepository;
+import com.astromediavault.AstroMediaVault.repository.MediaRepository;
+import com.astromediavault.AstroMediaVault.repository.PdfMetadataRepository;
+import com.astromediavault.AstroMediaVault.repository.TranscodedVideoRepository;
+import com.astromediavault.AstroMediaVault.repository.VideoMetadataRepository;
+import com.astromediavault.AstroMediaVault.repository.VideoSegmentRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Reference counted, content addressed sharing of originals and derived artifacts
+ */
+@Service
+@RequiredArgsConstructor
+public class MediaContentService {
+
+    private final MediaContentRepository mediaContentRepository;
+    private final MediaRepository mediaRepository;
+    private final VideoMetadataRepository videoMetadataRepository;
+    private final ImageMetadataRepository imageMetadataRepository;
+    private final PdfMetadataRepository pdfMetadataRepository;
+    private final TranscodedVideoRepository transcodedVideoRepository;
+    private final VideoSegmentRepository videoSegmentRepository;
+    private final MediaLookupCache mediaLookupCache;
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaContentService.class);
+
+    /**
+     * Find already stored content with the same hash and type
+     */
+    public Optional<MediaContent> findExisting(String contentHash, Media.FileType fileType) {
+        if (contentHash == null) {
+            return Optional.empty();
+        }
+        return mediaContentRepository.findByContentHashAndFileType(contentHash, fileType);
+    }
+
+    /**
+     * Find already stored content for many hashes with one query
+     */
+    public List<MediaContent> findExisting(Collection<String> contentHashes) {
+        if (contentHashes.isEmpty()) {
+            return List.of();
+        }
+        return mediaContentRepository.findByContentHashIn(contentHashes);
+    }
+
+    /**
+     * Whether new uploads may share this content: only once its owner is READY, so an upload never inherits a
+     * failure (or a transcode that may still fail) and is left without a file of its own to process again
+     */
+    public boolean isShareable(MediaContent content) {
+        return !shareable(List.of(content)).isEmpty();
+    }
+
+    /**
+     * Ids of the contents new uploads may share, with one query
+     */
+    public Set<UUID> shareable(Collection<MediaContent> contents) {
+        if (contents.isEmpty()) {
+            return Set.of();
+        }
+        Set<UUID> readyOwners = new HashSet<>(mediaRepository.findIdsInState(
+                contents.stream().map(MediaContent::getPrimaryMediaId).toList(), Media.ProcessingState.READY));
+        return contents.stream()
+                .filter(content -> readyOwners.contains(content.getPrimaryMediaId()))
+                .map(MediaContent::getId)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Point a new media row at existing, shareable content instead of storing and processing it again
+     */
+    @Transactional
+    public Media attach(Media media, MediaContent content) {
+        mediaContentRepository.adjustReferenceCount(content.getId(), 1);
+        media.setContent(content);
+        media.setStoragePath(content.getStoragePath());
+        media.setFileSize(content.getFileSize());
+        media.setProcessingState(Media.ProcessingState.READY);
+        logger.info("Deduplicated upload {} onto content {} (sha256={})", media.getOriginalFileName(),
+                content.getId(), content.getContentHash());
+        return mediaRepository.save(media);
+    }
+
+    /**
+     * Register the freshly stored files of a media as shareable content.
+     * A concurrent upload of the same bytes may win the race, in which case the media keeps its own copy.
+     */
+    public Media register(Media media) {
+        if (media.getContentHash() == null) {
+            return media;
+        }
+        MediaContent content = newContent(media);
+        try {
+            content = mediaContentRepository.save(content);
+        } catch (DataIntegrityViolationException e) {
+            logger.info("Content {} was registered concurrently, keeping a private copy for media {}",
+                    media.getContentHash(), media.getId());
+            return media;
+        }
+        media.setContent(content);
+        return mediaRepository.save(media);
+    }
+
+    /**
+     * Insert a batch of new media together with their content rows in one transaction,
+     * so both go out as JDBC batches and the content links are flushed as batched updates.
+     * Fails as a whole if any content was registered concurrently; callers then fall back to {@link #register}.
+     */
+    @Transactional
+    public List<Media> registerBatch(List<Media> media) {
+        List<Media> saved = mediaRepository.saveAll(media);
+        List<MediaContent> contents = mediaContentRepository.saveAll(saved.stream()
+                .map(this::newContent)
+                .toList());
+        for (int i = 0; i < saved.size(); i++) {
+            saved.get(i).setContent(contents.get(i));
+        }
+        return saved;
+    }
+
+    /**
+     * Drop the reference of a media that is being deleted. When it holds the derived rows of content others
+     * still share, they are handed to one of them first; this clears the persistence context.
+     *
+     * @return true when no other media shares the files and they can be deleted
+     */
+    @Transactional
+    public boolean release(Media media) {
+        MediaContent content = media.getContent();
+        if (content == null) {
+            return true;
+        }
+        mediaContentRepository.adjustReferenceCount(content.getId(), -1);
+        int remaining = mediaContentRepository.findReferenceCount(content.getId());
+        logger.info("Released content {} of media {}, {} reference(s) left", content.getId(), media.getId(),
+                remaining);
+        if (remaining > 0 && media.getId().equals(content.getPrimaryMediaId())) {
+            handOver(media, content);
+        }
+        return remaining <= 0;
+    }
+
+    /**
+     * Move the metadata, rendition and segment rows of a media being deleted to another media sharing its
+     * content, so they are not removed with it. The files keep their folders, named after the first owner.
+     */
+    private void handOver(Media media, MediaContent content) {
+        List<UUID> sharing = mediaRepository.findIdsByContentId(content.getId()).stream()
+                .filter(id -> !id.equals(media.getId()))
+                .toList();
+        if (sharing.isEmpty()) {
+            return;
+        }
+        Media survivor = mediaRepository.getReferenceById(sharing.get(0));
+        videoMetadataRepository.reassign(media.getId(), survivor);
+        imageMetadataRepository.reassign(media.getId(), survivor);
+        pdfMetadataRepository.reassign(media.getId(), survivor);
+        transcodedVideoRepository.reassign(media.getId(), survivor);
+        videoSegmentRepository.reassign(media.getId(), survivor);
+        mediaContentRepository.updatePrimaryMedia(content.getId(), survivor.getId());
+        mediaLookupCache.invalidate(sharing);
+        logger.info("Handed content {} of deleted media {} to media {}", content.getId(), media.getId(),
+                survivor.getId());
+    }
+
+    /**
+     * Forget content whose files have been deleted
+     */
+    public void delete(MediaContent content) {
+        mediaContentRepository.deleteById(content.getId());
+    }
+
+    private MediaContent newContent(Media media) {
+        MediaContent content = new MediaContent();
+        content.setContentHash(media.getContentHash());
+        content.setFileType(media.getFileType());
+        content.setStoragePath(media.getStoragePath());
+        content.setFileSize(media.getFileSize());
+        content.setOwnerUserId(media.getUser().getId());
+        content.setOwnerMediaId(media.getId());
+        return content;
+    }
+}
@@ -0,0 +1,185 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import com.astromediavault.AstroMediaVault.dto.MediaResponse;
+import com.astromediavault.AstroMediaVault.dto.StreamingResponse;
+import com.astromediavault.AstroMediaVault.model.Media;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Near cache of media and streaming lookups, so API nodes answer repeated requests without the database.
+ * Every node keeps responses in a bounded map with a TTL. A change to a media is broadcast on a fanout
+ * exchange once its transaction commits; each node then drops its responses, the media's second-level cache
+ * entries and its HLS index, so deletes and reprocessing show everywhere within a broker round trip.
+ */
+@Service
+@RequiredArgsConstructor
+public class MediaLookupCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaLookupCache.class);
+
+    public static final String EXCHANGE = "media-cache-invalidation-exchange";
+
+    private final RabbitTemplate rabbitTemplate;
+    private final ObjectMapper objectMapper;
+    private final EntityManagerFactory entityManagerFactory;
+    private final MediaMetrics mediaMetrics;
+
+    @Value("${media.lookup-cache.max-entries:10000}") // Per kind of response
+    private int maxEntries;
+
+    @Value("${media.lookup-cache.ttl:5m}") // Bounds staleness when an invalidation is lost
+    private Duration ttl;
+
+    private Region<MediaResponse> media;
+    private Region<StreamingResponse> streams;
+    private Cache entityCache;
+
+    /** Bumped around every eviction; a response loaded across one is not stored, it may predate the change */
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    void init() {
+        media = new Region<>("media", maxEntries);
+        streams = new Region<>("stream", maxEntries);
+        entityCache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+    }
+
+    public MediaResponse media(UUID mediaId, Supplier<MediaResponse> loader) {
+        return media.get(mediaId, loader);
+    }
+
+    public StreamingResponse stream(UUID mediaId, Supplier<StreamingResponse> loader) {
+        return streams.get(mediaId, loader);
+    }
+
+    public void invalidate(UUID mediaId) {
+        invalidate(List.of(mediaId));
+    }
+
+    /**
+     * Drop cached lookups of these media on every node, after the current transaction commits if there is one
+     */
+    public void invalidate(Collection<UUID> mediaIds) {
+        if (mediaIds.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = List.copyOf(mediaIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Other nodes must not reload the old rows before they are replaced
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    broadcast(ids);
+                }
+            });
+        } else {
+            broadcast(ids);
+        }
+    }
+
+    private void broadcast(List<UUID> ids) {
+        evict(ids);
+        try {
+            rabbitTemplate.convertAndSend(EXCHANGE, "", objectMapper.writeValueAsString(ids));
+        } catch (JsonProcessingException | AmqpException e) {
+            // Other nodes catch up when their entries expire
+            logger.warn("Failed to broadcast invalidation of media {}: {}", ids, e.getMessage());
+        }
+    }
+
+    /**
+     * Media ids of an invalidation message from the fanout exchange
+     */
+    public List<UUID> parse(String message) throws JsonProcessingException {
+        return List.of(objectMapper.readValue(message, UUID[].class));
+    }
+
+    /**
+     * Drop this node's cached lookups and second-level cache entries of these media
+     */
+    public synchronized void evict(Collection<UUID> mediaIds) {
+        generation.incrementAndGet(); // Odd while evicting, loads started meanwhile are not stored either
+        try {
+            for (UUID mediaId : mediaIds) {
+                entityCache.evictEntityData(Media.class, mediaId);
+                entityCache.evictCollectionData(Media.class.getName() + ".subtitles", mediaId);
+                entityCache.evictCollectionData(Media.class.getName() + ".transcodedVideos", mediaId);
+                media.remove(mediaId);
+                streams.remove(mediaId);
+            }
+            // Subtitle and rendition lists of these media
+            entityCache.evictDefaultQueryRegion();
+        } finally {
+            generation.incrementAndGet();
+        }
+    }
+
+    /**
+     * Responses of one kind, least recently used dropped first
+     */
+    private class Region<V> {
+
+        private record Timed<V>(V value, long expiresAt) {
+        }
+
+        private final String name;
+        private final Map<UUID, Timed<V>> entries;
+
+        Region(String name, int maxEntries) {
+            this.name = name;
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, Timed<V>> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        V get(UUID mediaId, Supplier<V> loader) {
+            Timed<V> timed;
+            synchronized (this) {
+                timed = entries.get(mediaId);
+            }
+            if (timed != null && timed.expiresAt() > System.currentTimeMillis()) {
+                mediaMetrics.recordCacheRequest(name, "hit");
+                return timed.value();
+            }
+            mediaMetrics.recordCacheRequest(name, "miss");
+            long loadedAt = generation.get();
+            V value = loader.get();
+            synchronized (this) {
+                if (loadedAt % 2 == 0 && generation.get() == loadedAt) {
+                    entries.put(mediaId, new Timed<>(value, System.currentTimeMillis() + ttl.toMillis()));
+                }
+            }
+            return value;
+        }
+
+        synchronized void remove(UUID mediaId) {
+            entries.remove(mediaId);
+        }
+    }
+}
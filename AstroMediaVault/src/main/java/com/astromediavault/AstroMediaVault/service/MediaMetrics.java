@@ -0,0 +1,158 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+import com.astromediavault.AstroMediaVault.model.Media;
+
+/**
+ * Timings and throughput of every pipeline stage: upload, ingest, queue wait, external tools and outputs.
+ * All timers and summaries publish percentile histograms for the Prometheus endpoint.
+ */
+@Service
+@RequiredArgsConstructor
+public class MediaMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Bytes written to storage by an upload and how long that took
+     */
+    public void recordUpload(Media.FileType fileType, long bytes, Duration duration) {
+        String type = fileType.name();
+        timer("media.upload.duration", "Time to receive and store an upload", "fileType", type)
+                .record(duration);
+        summary("media.upload.size", "Size of stored uploads", "bytes", "fileType", type).record(bytes);
+        if (!duration.isZero()) {
+            summary("media.upload.throughput", "Upload rate while storing", "bytes_per_second", "fileType", type)
+                    .record(bytes * 1_000_000_000d / duration.toNanos());
+        }
+    }
+
+    /**
+     * Validation and metadata extraction of a stored upload
+     */
+    public void recordIngest(Media.FileType fileType, Duration duration, boolean success) {
+        timer("media.ingest.duration", "Validation and metadata extraction time", "fileType", fileType.name(),
+                "outcome", success ? "success" : "failure").record(duration);
+    }
+
+    /**
+     * Time a message spent in a queue between publish and consume
+     */
+    public void recordQueueWait(String queue, Duration wait) {
+        timer("media.queue.wait", "Time between publish and consume", "queue", queue).record(wait);
+    }
+
+    /**
+     * Run of an external tool; exit is the exit code, "timeout" or "interrupted"
+     */
+    public void recordProcess(String tool, Duration duration, String exit) {
+        timer("media.process.duration", "Run time of external tools", "tool", tool, "exit", exit)
+                .record(duration);
+    }
+
+    public void recordPdfRender(Duration duration) {
+        timer("media.pdf.render.duration", "PDF preview render time").record(duration);
+    }
+
+    /**
+     * Size of a generated rendition (HLS variant, image resolution, preview)
+     */
+    public void recordOutput(Media.FileType fileType, String rendition, long bytes) {
+        summary("media.output.size", "Size of generated renditions", "bytes", "fileType", fileType.name(),
+                "rendition", rendition).record(bytes);
+    }
+
+    /**
+     * Upload to READY, the time until a media is playable
+     */
+    public void recordTimeToReady(Media.FileType fileType, Duration duration) {
+        timer("media.time.to.ready", "Time from upload to READY", "fileType", fileType.name()).record(duration);
+    }
+
+    /**
+     * Node level gauges of running transcodes: how many there are and their mean speed (x realtime).
+     * Progress of a single media is left to the SSE stream; a per-media gauge would add a series per video.
+     */
+    public void gaugeTranscodes(Supplier<Number> active, Supplier<Number> speed) {
+        Gauge.builder("media.transcode.active", active)
+                .description("Transcodes running on this node")
+                .register(meterRegistry);
+        Gauge.builder("media.transcode.speed", speed)
+                .description("Mean encode speed of the transcodes running on this node, as a multiple of realtime")
+                .register(meterRegistry);
+    }
+
+    /**
+     * One request to the HLS endpoint; kind is master, playlist or segment
+     */
+    public void recordHlsRequest(String kind, int status, Duration duration) {
+        timer("media.hls.request", "Time to answer HLS playlist and segment requests", "kind", kind,
+                "status", String.valueOf(status)).record(duration);
+    }
+
+    /**
+     * Lookup in an in-memory cache; result is hit or miss
+     */
+    public void recordCacheRequest(String cache, String result) {
+        Counter.builder("media.cache.requests")
+                .description("Cache lookups by result")
+                .tags("cache", cache, "result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Entries leaving a cache; cause is evicted (displaced by a more frequent entry) or rejected (not admitted)
+     */
+    public void recordCacheRemoval(String cache, String cause, int entries) {
+        Counter.builder("media.cache.removals")
+                .description("Entries evicted from or refused by a cache")
+                .tags("cache", cache, "cause", cause)
+                .register(meterRegistry)
+                .increment(entries);
+    }
+
+    public void gaugeCacheSize(String cache, Supplier<Number> bytes) {
+        Gauge.builder("media.cache.size", bytes)
+                .description("Bytes held by a cache")
+                .baseUnit("bytes")
+                .tag("cache", cache)
+                .register(meterRegistry);
+    }
+
+    public void recordFailure(String stage) {
+        Counter.builder("media.processing.failures")
+                .description("Failed pipeline stages")
+                .tag("stage", stage)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Timer timer(String name, String description, String... tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary summary(String name, String description, String baseUnit, String... tags) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .baseUnit(baseUnit)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -4,6 +4,7 @@ import com.astromediavault.AstroMediaVault.dto.*;
 import com.astromediavault.AstroMediaVault.exception.InvalidFileTypeException;
 import com.astromediavault.AstroMediaVault.exception.MediaNotFoundException;
 import com.astromediavault.AstroMediaVault.model.Media;
+import com.astromediavault.AstroMediaVault.model.MediaContent;
 import com.astromediavault.AstroMediaVault.model.User;
 import com.astromediavault.AstroMediaVault.repository.MediaRepository;
 import com.astromediavault.AstroMediaVault.repository.UserRepository;
@@ -27,9 +28,11 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import org.springframework.core.io.Resource;
@@ -42,71 +45,122 @@ public class MediaService {
     private final UserRepository userRepository;
     private final RabbitTemplate rabbitTemplate;
     private final VideoService videoService;
+    private final HlsDeliveryService hlsDeliveryService;
     private final SubtitleService subtitleService;
     private final PDFService pdfService;
     private final ImageService imageService;
+    private final MediaStorageService mediaStorageService;
+    private final MediaContentService mediaContentService;
+    private final MediaMetrics mediaMetrics;
+    private final SeekPreviewService seekPreviewService;
+    private final JobPriorityPolicy jobPriorityPolicy;
+    private final MediaLookupCache mediaLookupCache;
 
     private static final Logger logger = LoggerFactory.getLogger(MediaService.class);
 
     @Value("${storage.local.path}")
     private String localStoragePath;
 
-    @Value("${server.host}")
-    private String serverHost;
-
     /**
      * Upload Media (Delegates to respective services)
      */
     public ApiResponse<String> uploadMedia(MediaUploadRequest request, UUID userId) {
+        MultipartFile file = request.getFile();
+        return ingest(request, userId, file.getOriginalFilename(), target -> {
+            try (InputStream inputStream = file.getInputStream()) {
+                return mediaStorageService.write(inputStream, target);
+            }
+        });
+    }
+
+    /**
+     * Upload Media from a raw request body, written straight to its final location
+     */
+    public ApiResponse<String> uploadMediaStream(MediaUploadRequest request, UUID userId, String originalFileName,
+            InputStream body) {
+        return ingest(request, userId, originalFileName, target -> mediaStorageService.write(body, target));
+    }
+
+    /**
+     * Upload Media from a fully assembled file (e.g. a completed resumable upload session)
+     */
+    public ApiResponse<String> uploadMediaFromFile(MediaUploadRequest request, UUID userId, String originalFileName,
+            Path assembledFile) {
+        return ingest(request, userId, originalFileName, target -> mediaStorageService.move(assembledFile, target));
+    }
+
+    /**
+     * Store the upload once in the user's original folder and queue it for ingest.
+     * Returns the media id as soon as the bytes are on disk.
+     */
+    private ApiResponse<String> ingest(MediaUploadRequest request, UUID userId, String originalFileName,
+            MediaStorageService.ContentSource source) {
+        Path fullPath = null;
+        Media media = null;
         try {
             Media.FileType fileType = validateFileType(request.getFileType());
-            MultipartFile file = request.getFile();
-            String fileName = UUID.randomUUID() + "_" + file.getOriginalFilename();
+            String cleanFileName = mediaStorageService.sanitizeFileName(originalFileName);
+            String fileName = UUID.randomUUID() + "_" + cleanFileName;
             User user = userRepository.findById(userId)
                     .orElseThrow(() -> new MediaNotFoundException("User not found with ID: " + userId));
-            String userBaseDir = Paths.get("users", userId.toString()).toString();
-            String mediaFolder = switch (fileType) {
-                case VIDEO -> Paths.get(userBaseDir, "videos", "original").toString();
-                case IMAGE -> Paths.get(userBaseDir, "images", "original").toString();
-                case PDF -> Paths.get(userBaseDir, "pdfs", "original").toString();
-            };
-            File directory = new File(Paths.get(localStoragePath, mediaFolder).toString());
+            String mediaFolder = mediaStorageService.originalFolder(userId, fileType);
+            File directory = mediaStorageService.resolve(mediaFolder).toFile();
             if (!directory.exists() && !directory.mkdirs()) {
                 throw new IOException("Failed to create directory: " + mediaFolder);
             }
 
             String relativePath = Paths.get(mediaFolder, fileName).toString();
-            String fullPath = Paths.get(localStoragePath, relativePath).toString();
+            fullPath = mediaStorageService.resolve(relativePath);
+            long started = System.nanoTime();
+            MediaStorageService.StoredFile storedFile = source.writeTo(fullPath);
+            mediaMetrics.recordUpload(fileType, storedFile.getSize(), Duration.ofNanos(System.nanoTime() - started));
 
-            Media media = new Media();
+            media = new Media();
             media.setUser(user);
-            media.setOriginalFileName(file.getOriginalFilename());
+            media.setOriginalFileName(cleanFileName);
             media.setFileName(fileName);
-            media.setFileSize(file.getSize());
+            media.setFileSize(storedFile.getSize());
+            media.setContentHash(storedFile.getSha256());
             media.setFileType(fileType);
             media.setStoragePath(relativePath);
             media.setUploadTimestamp(Instant.now());
-            media = mediaRepository.save(media);
-
-            if (fileType == Media.FileType.PDF) {
-                pdfService.processPdfUpload(media, file, fullPath);
+            media.setGenerateImageResolutions(request.isGenerateImgRes());
+            media.setProcessingState(Media.ProcessingState.RECEIVED);
+            media.setPriority(jobPriorityPolicy.priority(media, null));
+
+            Optional<MediaContent> existingContent = mediaContentService.findExisting(storedFile.getSha256(),
+                    fileType);
+            boolean deduplicated = existingContent.isPresent()
+                    && mediaContentService.isShareable(existingContent.get());
+            if (deduplicated) {
+                // Same bytes were already stored and processed, share them instead of keeping a second copy
+                mediaStorageService.deleteQuietly(fullPath);
+                media = mediaContentService.attach(media, existingContent.get());
+            } else if (existingContent.isPresent()) {
+                // The upload holding these bytes is not READY (yet), this copy is processed on its own
+                media = mediaRepository.save(media);
+            } else {
+                media = mediaContentService.register(mediaRepository.save(media));
             }
 
-            if (fileType == Media.FileType.VIDEO) {
-                if (request.getSubtitle() != null && !request.getSubtitle().isEmpty()) {
-                    subtitleService.saveSubtitle(request.getSubtitle(), request.getSubtitleLanguage(), media);
-                }
-                videoService.processVideoUpload(media, request, fullPath);
+            if (fileType == Media.FileType.VIDEO && request.getSubtitle() != null
+                    && !request.getSubtitle().isEmpty()) {
+                subtitleService.saveSubtitle(request.getSubtitle(), request.getSubtitleLanguage(), media);
             }
 
-            if (fileType == Media.FileType.IMAGE) {
-                imageService.processImageUpload(media, request, fullPath);
+            if (!deduplicated) {
+                // Bytes are durable; validation, metadata extraction and fan-out happen in MediaIngestConsumer
+                JobPriorityPolicy.publish(rabbitTemplate, "media-ingest-queue.v2", media);
             }
 
-            logger.info("Media uploaded successfully: {}", media.getStoragePath());
-            return ApiResponse.success("File uploaded successfully!", media.getStoragePath());
+            logger.info("Media received: {} ({})", media.getId(), media.getProcessingState());
+            return ApiResponse.success("File received, processing queued", media.getId().toString());
         } catch (Exception e) {
+            if (fullPath != null && media == null) {
+                mediaStorageService.deleteQuietly(fullPath);
+            }
             logger.error("Media upload failed: {}", e.getMessage(), e);
+            mediaMetrics.recordFailure("upload");
             return ApiResponse.error("Failed to upload media.");
         }
     }
@@ -146,11 +200,12 @@ public class MediaService {
      * Fetch Media by ID
      */
     public ApiResponse<MediaResponse> fetchMediaById(UUID mediaId) {
-        Media media = mediaRepository.findById(mediaId)
-                .orElseThrow(() -> new MediaNotFoundException("Media not found with ID: " + mediaId));
+        MediaResponse response = mediaLookupCache.media(mediaId, () -> mediaRepository.findById(mediaId)
+                .map(this::convertToResponse)
+                .orElseThrow(() -> new MediaNotFoundException("Media not found with ID: " + mediaId)));
 
         logger.info("Retrieved media: {}", mediaId);
-        return ApiResponse.success("Media retrieved successfully", convertToResponse(media));
+        return ApiResponse.success("Media retrieved successfully", response);
     }
 
     /**
@@ -181,8 +236,18 @@ public class MediaService {
 
         try {
             Path basePath = Paths.get(localStoragePath, "users", media.getUser().getId().toString());
-
+            MediaContent content = media.getContent();
             if (media.getFileType() == Media.FileType.VIDEO) {
+                videoService.deleteJobRecords(mediaId);
+            }
+            boolean lastReference = mediaContentService.release(media);
+
+            if (!lastReference) {
+                // Files are still shared with other uploads of the same content, only drop this media
+                if (media.getFileType() == Media.FileType.VIDEO) {
+                    subtitleService.deleteSubtitlesForMedia(mediaId);
+                }
+            } else if (media.getFileType() == Media.FileType.VIDEO) {
                 videoService.deleteVideoFiles(mediaId);
                 subtitleService.deleteSubtitlesForMedia(mediaId);
             } else if (media.getFileType() == Media.FileType.PDF) {
@@ -193,7 +258,12 @@ public class MediaService {
                 deleteLocalFile(basePath.resolve(media.getStoragePath()).toString());
             }
 
-            mediaRepository.delete(media);
+            // Reloaded: handing shared rows to another media clears the persistence context
+            mediaRepository.deleteById(mediaId);
+            mediaLookupCache.invalidate(mediaId);
+            if (content != null && lastReference) {
+                mediaContentService.delete(content);
+            }
             logger.info("Deleted media: {}", mediaId);
 
             return ApiResponse.success("Media deleted successfully!", null);
@@ -202,10 +272,24 @@ public class MediaService {
         }
     }
 
+    /**
+     * Lightweight processing status, read without loading the media graph
+     */
+    public ApiResponse<MediaStatusResponse> fetchMediaStatus(UUID mediaId) {
+        MediaStatusResponse status = mediaRepository.findStatusById(mediaId)
+                .orElseThrow(() -> new MediaNotFoundException("Media not found with ID: " + mediaId));
+        return ApiResponse.success("Media status retrieved successfully", status);
+    }
+
     /**
      * Get Video Streaming URL with Subtitles
      */
     public ApiResponse<StreamingResponse> getStreamUrlWithSubtitles(UUID mediaId) {
+        StreamingResponse response = mediaLookupCache.stream(mediaId, () -> streamingResponse(mediaId));
+        return ApiResponse.success("Streaming URL generated successfully", response);
+    }
+
+    private StreamingResponse streamingResponse(UUID mediaId) {
         Media media = mediaRepository.findById(mediaId)
                 .orElseThrow(() -> new MediaNotFoundException("Media not found: " + mediaId));
 
@@ -217,16 +301,16 @@ public class MediaService {
         String streamUrl = generateHlsUrl(media);
         List<SubtitleResponse> subtitles = subtitleService.getSubtitlesForMedia(media.getId());
 
-        return ApiResponse.success("Streaming URL generated successfully", new StreamingResponse(streamUrl, subtitles));
+        return StreamingResponse.builder()
+                .streamUrl(streamUrl)
+                .subtitles(subtitles)
+                .thumbnailTrackUrl(seekPreviewService.trackUrl(media))
+                .thumbnailSpriteUrls(seekPreviewService.spriteUrls(media))
+                .build();
     }
 
     public String generateHlsUrl(Media media) {
-        String hlsPath = Paths.get("users", media.getUser().getId().toString(), "videos", "hls",
-                media.getId().toString(), "master.m3u8")
-                .toString()
-                .replace("\\", "/"); // Ensure it works for Windows/Linux
-
-        return serverHost + "/" + hlsPath;
+        return hlsDeliveryService.masterUrl(media);
     }
 
     /**
@@ -283,6 +367,7 @@ public class MediaService {
                 .fileSize(media.getFileSize())
                 .storagePath(media.getStoragePath())
                 .uploadTimestamp(media.getUploadTimestamp())
+                .processingState(media.getProcessingState() != null ? media.getProcessingState().toString() : null)
                 .subtitles(subtitleResponses)
                 .build();
     }
@@ -0,0 +1,197 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+
+import com.astromediavault.AstroMediaVault.model.Media;
+
+@Service
+public class MediaStorageService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaStorageService.class);
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    @Value("${storage.local.path}")
+    private String localStoragePath;
+
+    @Value("${media.upload.max-size-bytes:2147483648}") // Default 2GB
+    private long maxUploadSize;
+
+    /**
+     * Writes the bytes of an upload to their final location.
+     */
+    @FunctionalInterface
+    public interface ContentSource {
+        StoredFile writeTo(Path target) throws IOException;
+    }
+
+    /**
+     * Size and SHA-256 of a file computed while it was written
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class StoredFile {
+        private final long size;
+        private final String sha256;
+    }
+
+    /**
+     * Relative folder holding the originals of a user for the given media type
+     */
+    public String originalFolder(UUID userId, Media.FileType fileType) {
+        String userBaseDir = Paths.get("users", userId.toString()).toString();
+        return switch (fileType) {
+            case VIDEO -> Paths.get(userBaseDir, "videos", "original").toString();
+            case IMAGE -> Paths.get(userBaseDir, "images", "original").toString();
+            case PDF -> Paths.get(userBaseDir, "pdfs", "original").toString();
+        };
+    }
+
+    /**
+     * Resolve a path relative to the storage root
+     */
+    public Path resolve(String relativePath) {
+        return Paths.get(localStoragePath, relativePath);
+    }
+
+    /**
+     * Strip any client supplied directory components from a file name
+     */
+    public String sanitizeFileName(String originalFileName) {
+        if (originalFileName == null || originalFileName.isBlank()) {
+            return "upload";
+        }
+        String name = originalFileName.substring(
+                Math.max(originalFileName.lastIndexOf('/'), originalFileName.lastIndexOf('\\')) + 1);
+        return name.isBlank() || name.equals("..") ? "upload" : name;
+    }
+
+    /**
+     * Stream an upload straight into its final location through a FileChannel.
+     * Size and SHA-256 are computed on the fly so the bytes are only touched once.
+     * The file is forced to disk before returning, so callers may acknowledge the upload.
+     */
+    public StoredFile write(InputStream inputStream, Path target) throws IOException {
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long size = 0;
+
+        FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        try (channel) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                size += read;
+                if (size > maxUploadSize) {
+                    throw new MaxUploadSizeExceededException(maxUploadSize);
+                }
+                digest.update(buffer, 0, read);
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                while (byteBuffer.hasRemaining()) {
+                    channel.write(byteBuffer);
+                }
+            }
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(target);
+            throw e;
+        }
+
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        logger.debug("Stored {} bytes at {} (sha256={})", size, target, sha256);
+        return new StoredFile(size, sha256);
+    }
+
+    /**
+     * Write one chunk of a resumable upload at its absolute position in the part file.
+     * Chunks may arrive in any order and in parallel; each one is written exactly once.
+     */
+    public long writeAt(InputStream inputStream, Path target, long position, long expectedLength)
+            throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long written = 0;
+
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                if (written + read > expectedLength) {
+                    throw new IOException("Chunk is larger than the expected " + expectedLength + " bytes");
+                }
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+                while (byteBuffer.hasRemaining()) {
+                    written += channel.write(byteBuffer, position + written);
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Move an already assembled file into its final location without copying its bytes.
+     * Chunks of resumable uploads arrive out of order, so the content hash needs one sequential read here.
+     */
+    public StoredFile move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target);
+        }
+        return new StoredFile(Files.size(target), sha256(target));
+    }
+
+    /**
+     * SHA-256 of a stored file
+     */
+    public String sha256(Path path) throws IOException {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Delete a file, logging instead of failing
+     */
+    public void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("Failed to delete file: {} - {}", path, e.getMessage());
+        }
+    }
+
+    private MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
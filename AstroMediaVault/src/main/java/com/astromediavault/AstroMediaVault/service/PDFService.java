@@ -6,20 +6,17 @@ import java.nio.file.Paths;
 import java.util.UUID;
 
 import lombok.RequiredArgsConstructor;
-import org.apache.pdfbox.io.RandomAccessBufferedFileInputStream;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDDocumentInformation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
 
@@ -38,6 +35,7 @@ public class PDFService {
     private final MediaRepository mediaRepository;
     private final PdfMetadataRepository pdfMetadataRepository;
     private final RabbitTemplate rabbitTemplate;
+    private final FileDeliveryService fileDeliveryService;
 
     @Value("${storage.local.path}")
     private String localStoragePath;
@@ -46,40 +44,36 @@ public class PDFService {
     private long maxPdfFileSize;
 
     /**
-     * Handles PDF Upload, Validation, Metadata Extraction, and Saving PDF Metadata
+     * Handles stored PDF Upload, Validation, Metadata Extraction, and Saving PDF Metadata
      */
-    public void processPdfUpload(Media media, MultipartFile file, String fullPath) throws IOException {
-        if (file.isEmpty()) {
+    public void processPdfUpload(Media media, String fullPath) throws IOException {
+        if (media.getFileSize() == 0) {
             throw new InvalidFileTypeException("Uploaded file is empty");
         }
-        if (file.getSize() > maxPdfFileSize) {
+        if (media.getFileSize() > maxPdfFileSize) {
             throw new InvalidFileTypeException("PDF file exceeds maximum allowed size of " + maxPdfFileSize + " bytes");
         }
 
-        logger.debug("Attempting to load PDF: originalFilename={}, size={}", file.getOriginalFilename(),
-                file.getSize());
+        logger.debug("Attempting to load PDF: originalFilename={}, size={}", media.getOriginalFileName(),
+                media.getFileSize());
 
-        try (InputStream inputStream = file.getInputStream()) {
-            Files.copy(inputStream, Paths.get(fullPath)); // ✅ Save the file
-
-            try (PDDocument document = PDDocument.load(new File(fullPath))) {
-                if (document.isEncrypted()) {
-                    throw new InvalidFileTypeException("Encrypted PDF files are not supported");
-                }
+        try (PDDocument document = PDDocument.load(new File(fullPath))) {
+            if (document.isEncrypted()) {
+                throw new InvalidFileTypeException("Encrypted PDF files are not supported");
+            }
 
-                PDDocumentInformation info = document.getDocumentInformation();
-                int pageCount = document.getNumberOfPages();
+            PDDocumentInformation info = document.getDocumentInformation();
+            int pageCount = document.getNumberOfPages();
 
-                PdfMetadata pdfMetadata = new PdfMetadata();
-                pdfMetadata.setMedia(media);
-                pdfMetadata.setTitle(info.getTitle());
-                pdfMetadata.setAuthor(info.getAuthor());
-                pdfMetadata.setPageCount(pageCount);
-                pdfMetadataRepository.save(pdfMetadata);
+            PdfMetadata pdfMetadata = new PdfMetadata();
+            pdfMetadata.setMedia(media);
+            pdfMetadata.setTitle(info.getTitle());
+            pdfMetadata.setAuthor(info.getAuthor());
+            pdfMetadata.setPageCount(pageCount);
+            pdfMetadataRepository.save(pdfMetadata);
 
-                logger.info("PDF metadata extracted and saved for mediaId={}", media.getId());
-                rabbitTemplate.convertAndSend("pdf-preview-generation-queue", media.getId().toString());
-            }
+            logger.info("PDF metadata extracted and saved for mediaId={}", media.getId());
+            JobPriorityPolicy.publish(rabbitTemplate, "pdf-preview-generation-queue.v2", media);
         } catch (IOException e) {
             logger.error("Failed to process PDF file: {}", e.getMessage(), e);
             throw new InvalidFileTypeException("Uploaded file is not a valid PDF");
@@ -98,18 +92,15 @@ public class PDFService {
         }
 
         String previewPath = Paths.get(localStoragePath, "users",
-                media.getUser().getId().toString(), "pdfs", "previews", mediaId.toString() + ".png").toString();
+                media.getArtifactUserId().toString(), "pdfs", "previews", media.getArtifactMediaId() + ".png").toString();
 
         File file = new File(previewPath);
         if (!file.exists()) {
             throw new MediaNotFoundException("PDF preview not found for media ID: " + mediaId);
         }
 
-        InputStreamResource resource = new InputStreamResource(new FileInputStream(file));
-        return ResponseEntity.ok()
-                .contentType(MediaType.IMAGE_PNG)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"preview.png\"")
-                .body(resource);
+        return fileDeliveryService.deliver(file.toPath(), MediaType.IMAGE_PNG,
+                ContentDisposition.inline().filename("preview.png").build());
     }
 
     /**
@@ -129,11 +120,8 @@ public class PDFService {
             throw new MediaNotFoundException("PDF file not found on disk: " + fullPath);
         }
 
-        InputStreamResource resource = new InputStreamResource(new FileInputStream(file));
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_PDF)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + media.getFileName() + "\"")
-                .body(resource);
+        return fileDeliveryService.deliver(file.toPath(), MediaType.APPLICATION_PDF,
+                ContentDisposition.attachment().filename(media.getFileName()).build());
     }
 
     /**
@@ -153,11 +141,8 @@ public class PDFService {
             throw new MediaNotFoundException("PDF file not found on disk: " + fullPath);
         }
 
-        InputStreamResource resource = new InputStreamResource(new FileInputStream(file));
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_PDF)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + media.getFileName() + "\"")
-                .body(resource);
+        return fileDeliveryService.deliver(file.toPath(), MediaType.APPLICATION_PDF,
+                ContentDisposition.inline().filename(media.getFileName()).build());
     }
 
     /**
@@ -171,7 +156,7 @@ public class PDFService {
 
         // 🔹 Delete preview image
         Path previewPath = Paths.get(localStoragePath, "users",
-                media.getUser().getId().toString(), "pdfs", "previews", mediaId + ".png").normalize();
+                media.getArtifactUserId().toString(), "pdfs", "previews", media.getArtifactMediaId() + ".png").normalize();
         deleteLocalFile(previewPath);
 
         // 🔹 Delete original PDF
@@ -0,0 +1,188 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import lombok.RequiredArgsConstructor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs external tools (ffmpeg, cwebp) inside a worker slot and kills them when they overrun their job timeout
+ */
+@Service
+@RequiredArgsConstructor
+public class ProcessRunner {
+
+    private final WorkerSlots workerSlots;
+    private final MediaMetrics mediaMetrics;
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessRunner.class);
+
+    /** How often a running process with a listener checks whether it was cancelled */
+    private static final long CANCEL_POLL_MILLIS = 1000;
+
+    /**
+     * Receives the machine readable progress of an ffmpeg run
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        /**
+         * @param outTimeSeconds timestamp reached in the output
+         * @param speed          encode speed as a multiple of realtime, 0 while unknown
+         */
+        void onProgress(double outTimeSeconds, double speed);
+
+        /**
+         * Whether the run is no longer wanted; the process is then killed
+         */
+        default boolean isCancelled() {
+            return false;
+        }
+
+        /**
+         * Listener relaying every report to this listener, then to the other one; cancelled when either is
+         */
+        default ProgressListener andThen(ProgressListener other) {
+            ProgressListener first = this;
+            return new ProgressListener() {
+                @Override
+                public void onProgress(double outTimeSeconds, double speed) {
+                    first.onProgress(outTimeSeconds, speed);
+                    other.onProgress(outTimeSeconds, speed);
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return first.isCancelled() || other.isCancelled();
+                }
+            };
+        }
+    }
+
+    /**
+     * Run the command with inherited IO and return its exit code.
+     * The process and all of its children are killed when the timeout elapses or the caller is interrupted.
+     */
+    public int run(WorkerSlots.Resource resource, Duration timeout, String... command)
+            throws IOException, InterruptedException {
+        return run(resource, timeout, null, command);
+    }
+
+    /**
+     * Run an ffmpeg command with "-progress pipe:1": stdout carries key=value progress blocks that are
+     * relayed to the listener, stderr still goes to the server log. The process is killed and a
+     * CancellationException thrown once the listener reports the run as cancelled.
+     */
+    public int run(WorkerSlots.Resource resource, Duration timeout, ProgressListener listener, String... command)
+            throws IOException, InterruptedException {
+        try (WorkerSlots.Slot slot = workerSlots.acquire(resource)) {
+            ProcessBuilder processBuilder;
+            if (listener == null) {
+                processBuilder = new ProcessBuilder(command);
+                processBuilder.inheritIO();
+            } else {
+                List<String> withProgress = new ArrayList<>(List.of(command));
+                withProgress.addAll(1, List.of("-progress", "pipe:1", "-nostats"));
+                processBuilder = new ProcessBuilder(withProgress);
+                processBuilder.redirectInput(ProcessBuilder.Redirect.INHERIT);
+                processBuilder.redirectError(ProcessBuilder.Redirect.INHERIT);
+            }
+            long started = System.nanoTime();
+            Process process = processBuilder.start();
+            if (listener != null) {
+                Thread.ofVirtual().name("progress-" + process.pid())
+                        .start(() -> relayProgress(process.getInputStream(), listener));
+            }
+            try {
+                long deadline = started + timeout.toNanos();
+                while (!process.waitFor(listener == null ? timeout.toMillis()
+                        : Math.min(CANCEL_POLL_MILLIS, remainingMillis(deadline)), TimeUnit.MILLISECONDS)) {
+                    if (listener != null && listener.isCancelled()) {
+                        kill(process);
+                        record(command, started, "cancelled");
+                        throw new CancellationException(command[0] + " was cancelled");
+                    }
+                    if (listener == null || remainingMillis(deadline) <= 0) {
+                        kill(process);
+                        record(command, started, "timeout");
+                        throw new IOException(command[0] + " exceeded its timeout of " + timeout);
+                    }
+                }
+                record(command, started, String.valueOf(process.exitValue()));
+                return process.exitValue();
+            } catch (InterruptedException e) {
+                kill(process);
+                record(command, started, "interrupted");
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Parse ffmpeg progress blocks until the stream ends. Each block ends with "progress=continue" or
+     * "progress=end"; out_time_us is microseconds despite the out_time_ms alias ffmpeg also prints.
+     */
+    static void relayProgress(InputStream progress, ProgressListener listener) {
+        double outTimeSeconds = 0;
+        double speed = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(progress, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int separator = line.indexOf('=');
+                if (separator < 0) {
+                    continue;
+                }
+                String key = line.substring(0, separator).trim();
+                String value = line.substring(separator + 1).trim();
+                try {
+                    switch (key) {
+                        case "out_time_us" -> {
+                            if (!value.equals("N/A")) {
+                                outTimeSeconds = Math.max(0, Long.parseLong(value) / 1_000_000d);
+                            }
+                        }
+                        case "speed" -> {
+                            if (value.endsWith("x")) {
+                                speed = Double.parseDouble(value.substring(0, value.length() - 1).trim());
+                            }
+                        }
+                        case "progress" -> listener.onProgress(outTimeSeconds, speed);
+                        default -> {
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    logger.debug("Ignoring progress line: {}", line);
+                } catch (RuntimeException e) {
+                    logger.warn("Progress listener failed: {}", e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Progress stream closed: {}", e.getMessage());
+        }
+    }
+
+    private static long remainingMillis(long deadline) {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+
+    private void record(String[] command, long started, String exit) {
+        mediaMetrics.recordProcess(command[0], Duration.ofNanos(System.nanoTime() - started), exit);
+    }
+
+    private void kill(Process process) {
+        logger.warn("Killing process {} ({})", process.pid(), process.info().command().orElse("unknown"));
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+}
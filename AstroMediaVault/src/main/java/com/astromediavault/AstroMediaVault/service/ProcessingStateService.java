@@ -0,0 +1,68 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import com.astromediavault.AstroMediaVault.model.Media;
+import com.astromediavault.AstroMediaVault.repository.MediaRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Moves media through RECEIVED -> PROCESSING -> READY / FAILED.
+ * Deduplicated uploads share the owner's files, so they follow the owner's state.
+ */
+@Service
+@RequiredArgsConstructor
+public class ProcessingStateService {
+
+    private final MediaRepository mediaRepository;
+    private final MediaMetrics mediaMetrics;
+    private final TranscodeProgressService transcodeProgressService;
+    private final MediaLookupCache mediaLookupCache;
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessingStateService.class);
+
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    public void markProcessing(Media media) {
+        transition(media, Media.ProcessingState.PROCESSING, null);
+    }
+
+    public void markReady(Media media) {
+        transition(media, Media.ProcessingState.READY, null);
+        if (media.getUploadTimestamp() != null) {
+            mediaMetrics.recordTimeToReady(media.getFileType(),
+                    Duration.between(media.getUploadTimestamp(), Instant.now()));
+        }
+    }
+
+    public void markFailed(Media media, String error) {
+        String message = error == null ? "Processing failed" : error;
+        transition(media, Media.ProcessingState.FAILED,
+                message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message);
+    }
+
+    @Transactional
+    public void transition(Media media, Media.ProcessingState state, String error) {
+        // Targeted update: merging a stale media would drop metadata rows saved since it was loaded
+        mediaRepository.updateProcessingState(media.getId(), state, error);
+        media.setProcessingState(state);
+        media.setProcessingError(error);
+        if (media.getContent() != null) {
+            mediaRepository.updateProcessingStateByContentId(media.getContent().getId(), state, error);
+        }
+        // Uploads sharing the content changed state too
+        mediaLookupCache.invalidate(media.getContent() != null
+                ? mediaRepository.findIdsByContentId(media.getContent().getId()) : List.of(media.getId()));
+        if (state == Media.ProcessingState.READY || state == Media.ProcessingState.FAILED) {
+            // Ends the progress streams of this media on every node
+            transcodeProgressService.publishState(media.getId(), state);
+        }
+        logger.info("Media {} is now {}", media.getId(), state);
+    }
+}
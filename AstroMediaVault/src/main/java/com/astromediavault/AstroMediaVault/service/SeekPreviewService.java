@@ -0,0 +1,196 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import com.astromediavault.AstroMediaVault.model.Media;
+import lombok.RequiredArgsConstructor;
+import org.apache.tomcat.util.http.fileupload.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Seek preview of a video: a few tiled sprite sheets (one frame every few seconds) and a WebVTT
+ * thumbnail track mapping time ranges to a tile, so the player can scrub with a couple of image fetches.
+ */
+@Service
+@RequiredArgsConstructor
+public class SeekPreviewService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeekPreviewService.class);
+
+    public static final String TRACK_NAME = "thumbnails.vtt";
+    private static final String SPRITE_PATTERN = "sprite_%03d.jpg";
+
+    @Value("${storage.local.path}")
+    private String localStoragePath;
+
+    @Value("${server.host}")
+    private String serverHost;
+
+    @Value("${media.video.preview.interval-seconds:10}")
+    private int intervalSeconds;
+
+    @Value("${media.video.preview.tile-width:160}")
+    private int tileWidth;
+
+    @Value("${media.video.preview.columns:10}")
+    private int columns;
+
+    @Value("${media.video.preview.rows:10}")
+    private int rows;
+
+    /**
+     * Preview folder of a video relative to the storage root
+     */
+    public String relativePreviewDirectory(Media media) {
+        return Paths.get("users", media.getArtifactUserId().toString(), "videos", "previews",
+                media.getArtifactMediaId().toString()).toString();
+    }
+
+    public Path previewDirectory(Media media) {
+        return Paths.get(localStoragePath, relativePreviewDirectory(media));
+    }
+
+    /**
+     * Even tile height keeping the aspect ratio of the given (display oriented) frame size
+     */
+    public int tileHeight(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            return tileWidth * 9 / 16 / 2 * 2;
+        }
+        return Math.max(2, (int) Math.round((double) tileWidth * height / width / 2) * 2);
+    }
+
+    /**
+     * Filter chain turning decoded frames into sprite sheets
+     */
+    public String filter(int tileHeight) {
+        return String.format(Locale.ROOT, "fps=1/%d,scale=%d:%d,tile=%dx%d", intervalSeconds, tileWidth,
+                tileHeight, columns, rows);
+    }
+
+    /**
+     * Output options writing the sprite sheets of a filter graph label into directory
+     */
+    public List<String> spriteOutput(String label, Path directory) {
+        return List.of("-map", label, "-q:v", "4", "-start_number", "0",
+                directory.resolve(SPRITE_PATTERN).toString());
+    }
+
+    /**
+     * Standalone ffmpeg command for when the transcode did not produce the preview.
+     * Only keyframes are decoded, which is plenty for tiles taken seconds apart.
+     */
+    public String[] spriteCommand(String input, Path directory, int tileHeight) {
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-y", "-skip_frame", "nokey", "-i", input,
+                "-an", "-sn", "-vf", filter(tileHeight), "-vsync", "vfr"));
+        command.addAll(List.of("-q:v", "4", "-start_number", "0", directory.resolve(SPRITE_PATTERN).toString()));
+        return command.toArray(String[]::new);
+    }
+
+    /**
+     * Write the WebVTT thumbnail track next to the sprite sheets
+     */
+    public void writeTrack(Path directory, double durationSeconds, int tileHeight) throws IOException {
+        Path temp = directory.resolve(TRACK_NAME + ".tmp");
+        Files.writeString(temp, track(durationSeconds, tileHeight), StandardCharsets.UTF_8);
+        Files.move(temp, directory.resolve(TRACK_NAME), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * WebVTT cues, one per tile: "sprite_NNN.jpg#xywh=x,y,w,h" covering [i * interval, (i + 1) * interval)
+     */
+    public String track(double durationSeconds, int tileHeight) {
+        int tilesPerSprite = columns * rows;
+        int tiles = Math.max(1, (int) Math.ceil(durationSeconds / intervalSeconds));
+
+        StringBuilder vtt = new StringBuilder("WEBVTT\n");
+        for (int i = 0; i < tiles; i++) {
+            int position = i % tilesPerSprite;
+            double start = (double) i * intervalSeconds;
+            double end = Math.min((double) (i + 1) * intervalSeconds, Math.max(durationSeconds, start + 1));
+            vtt.append('\n')
+                    .append(timestamp(start)).append(" --> ").append(timestamp(end)).append('\n')
+                    .append(String.format(Locale.ROOT, SPRITE_PATTERN, i / tilesPerSprite))
+                    .append(String.format(Locale.ROOT, "#xywh=%d,%d,%d,%d", position % columns * tileWidth,
+                            position / columns * tileHeight, tileWidth, tileHeight))
+                    .append('\n');
+        }
+        return vtt.toString();
+    }
+
+    private static String timestamp(double seconds) {
+        long millis = Math.round(seconds * 1000);
+        return String.format(Locale.ROOT, "%02d:%02d:%02d.%03d", millis / 3_600_000, millis / 60_000 % 60,
+                millis / 1000 % 60, millis % 1000);
+    }
+
+    /**
+     * Replace the preview folder of a video with a fully written one
+     */
+    public void publish(Media media, Path staged) throws IOException {
+        Path previewDirectory = previewDirectory(media);
+        Files.createDirectories(previewDirectory.getParent());
+        if (Files.exists(previewDirectory)) {
+            FileUtils.deleteDirectory(previewDirectory.toFile());
+        }
+        Files.move(staged, previewDirectory, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * URL of the thumbnail track, or null while the video has no preview
+     */
+    public String trackUrl(Media media) {
+        if (!Files.exists(previewDirectory(media).resolve(TRACK_NAME))) {
+            return null;
+        }
+        return url(Paths.get(relativePreviewDirectory(media), TRACK_NAME).toString());
+    }
+
+    /**
+     * URLs of the sprite sheets referenced by the thumbnail track
+     */
+    public List<String> spriteUrls(Media media) {
+        Path previewDirectory = previewDirectory(media);
+        if (!Files.isDirectory(previewDirectory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(previewDirectory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith("sprite_") && name.endsWith(".jpg"))
+                    .sorted()
+                    .map(name -> url(Paths.get(relativePreviewDirectory(media), name).toString()))
+                    .toList();
+        } catch (IOException e) {
+            logger.warn("Failed to list preview sprites of media {}: {}", media.getId(), e.getMessage());
+            return List.of();
+        }
+    }
+
+    public void delete(Media media) {
+        Path previewDirectory = previewDirectory(media);
+        try {
+            if (Files.exists(previewDirectory)) {
+                FileUtils.deleteDirectory(previewDirectory.toFile());
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to delete preview folder: {} - {}", previewDirectory, e.getMessage());
+        }
+    }
+
+    private String url(String relativePath) {
+        return serverHost + "/" + relativePath.replace("\\", "/");
+    }
+}
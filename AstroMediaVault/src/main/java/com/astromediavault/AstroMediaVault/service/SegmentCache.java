@@ -0,0 +1,311 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Cache of HLS files in direct buffers, bounded by bytes, so popular videos are served from RAM without
+ * filling the heap. Admission is W-TinyLFU: new files enter a small LRU window; a file leaving the window only
+ * displaces files of the main LRU region that were requested less often, as counted by a frequency sketch that
+ * halves every few thousand requests. A miss is served from the file by the caller, and the file is only read
+ * in the background, once per key, if the sketch saw it requested before or the cache still has room. One-off
+ * requests such as a crawler walking every segment never read a file into memory nor evict the working set.
+ */
+@Service
+@RequiredArgsConstructor
+public class SegmentCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentCache.class);
+
+    private static final String NAME = "hls";
+
+    /** Requests within the sketch's sample a file needs before it is loaded into a full cache */
+    private static final int ADMISSION_FREQUENCY = 2;
+
+    private final MediaMetrics mediaMetrics;
+
+    @Value("${media.hls.cache.max-bytes:268435456}") // 0 disables the cache; mind -XX:MaxDirectMemorySize
+    private long maxBytes;
+
+    @Value("${media.hls.cache.max-entry-bytes:16777216}") // Larger files, e.g. single-file fMP4, are not cached
+    private long maxEntryBytes;
+
+    @Value("${media.hls.cache.window-percent:1}")
+    private int windowPercent;
+
+    private final Map<String, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Entry> main = new LinkedHashMap<>(16, 0.75f, true);
+    private long windowBytes;
+    private long mainBytes;
+    private long windowMaxBytes;
+    private long mainMaxBytes;
+    private FrequencySketch sketch;
+    private final Set<String> loading = new HashSet<>();
+    private Executor loader;
+
+    /**
+     * Content of a cached file and its modification time (for validators)
+     */
+    public record Entry(ByteBuffer content, long lastModified) {
+
+        /**
+         * Independent view of the content for one response
+         */
+        public ByteBuffer open() {
+            return content.duplicate();
+        }
+
+        long size() {
+            return content.capacity();
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        windowMaxBytes = maxBytes * windowPercent / 100;
+        mainMaxBytes = maxBytes - windowMaxBytes;
+        // About one counter per 256 KiB of capacity, a few per cached segment
+        sketch = new FrequencySketch((int) Math.min(1 << 24, Math.max(64, maxBytes / (256 * 1024))));
+        loader = Executors.newVirtualThreadPerTaskExecutor();
+        mediaMetrics.gaugeCacheSize(NAME, this::size);
+        logger.info("HLS segment cache: {} MB", maxBytes / (1024 * 1024));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (loader instanceof ExecutorService executor) {
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * The cached file, or null on a miss: the caller then serves the file itself while it is loaded in the
+     * background, if admitted. The key must change whenever the file content does.
+     */
+    public Entry get(String key, Path file) {
+        Entry entry;
+        boolean admitted;
+        synchronized (this) {
+            sketch.increment(key);
+            entry = lookup(key);
+            admitted = entry == null
+                    && (sketch.frequency(key) >= ADMISSION_FREQUENCY || windowBytes + mainBytes < maxBytes);
+        }
+        mediaMetrics.recordCacheRequest(NAME, entry != null ? "hit" : "miss");
+        if (admitted) {
+            loadInBackground(key, file);
+        }
+        return entry;
+    }
+
+    /**
+     * Load files the client is expected to request next, in the background. Read-ahead does not count as a
+     * request in the frequency sketch.
+     */
+    public void prefetch(String key, Path file) {
+        synchronized (this) {
+            if (lookup(key) != null) {
+                return;
+            }
+        }
+        loadInBackground(key, file);
+    }
+
+    /**
+     * Read a file into the cache off the request thread; a key already being loaded is not read twice
+     */
+    private void loadInBackground(String key, Path file) {
+        synchronized (this) {
+            if (!loading.add(key)) {
+                return;
+            }
+        }
+        try {
+            loader.execute(() -> {
+                try {
+                    load(key, file);
+                } catch (IOException e) {
+                    // The file may not exist yet or at all, the request itself will tell
+                } finally {
+                    synchronized (this) {
+                        loading.remove(key);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            synchronized (this) {
+                loading.remove(key);
+            }
+        }
+    }
+
+    public synchronized boolean contains(String key) {
+        return window.containsKey(key) || main.containsKey(key);
+    }
+
+    public synchronized long size() {
+        return windowBytes + mainBytes;
+    }
+
+    private Entry lookup(String key) {
+        Entry entry = window.get(key);
+        return entry != null ? entry : main.get(key);
+    }
+
+    private void load(String key, Path file) throws IOException {
+        long size = Files.size(file);
+        if (size > maxEntryBytes || size > mainMaxBytes) {
+            return;
+        }
+        ByteBuffer content = ByteBuffer.allocateDirect((int) size);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (content.hasRemaining()) {
+                if (channel.read(content) < 0) {
+                    break; // Truncated while reading; the buffer holds what was there
+                }
+            }
+        }
+        content.flip();
+        Entry entry = new Entry(content.asReadOnlyBuffer(), Files.getLastModifiedTime(file).toMillis());
+        synchronized (this) {
+            admit(key, entry);
+        }
+    }
+
+    private void admit(String key, Entry entry) {
+        if (window.containsKey(key) || main.containsKey(key)) {
+            return;
+        }
+        window.put(key, entry);
+        windowBytes += entry.size();
+        while (windowBytes > windowMaxBytes && !window.isEmpty()) {
+            Iterator<Map.Entry<String, Entry>> eldest = window.entrySet().iterator();
+            Map.Entry<String, Entry> candidate = eldest.next();
+            eldest.remove();
+            windowBytes -= candidate.getValue().size();
+            promote(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    /**
+     * Move a file leaving the window into the main region if it is requested more often than what it displaces
+     */
+    private void promote(String key, Entry entry) {
+        List<String> victims = new ArrayList<>();
+        long freed = 0;
+        int frequency = sketch.frequency(key);
+        for (Map.Entry<String, Entry> victim : main.entrySet()) {
+            if (mainBytes - freed + entry.size() <= mainMaxBytes) {
+                break;
+            }
+            if (sketch.frequency(victim.getKey()) >= frequency) {
+                mediaMetrics.recordCacheRemoval(NAME, "rejected", 1);
+                return;
+            }
+            victims.add(victim.getKey());
+            freed += victim.getValue().size();
+        }
+        for (String victim : victims) {
+            mainBytes -= main.remove(victim).size();
+        }
+        if (!victims.isEmpty()) {
+            mediaMetrics.recordCacheRemoval(NAME, "evicted", victims.size());
+        }
+        main.put(key, entry);
+        mainBytes += entry.size();
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters estimating how often each key was requested recently. All counters
+     * are halved once the number of increments reaches ten times the width, so old popularity fades.
+     */
+    static final class FrequencySketch {
+        private static final int[] SEEDS = {0x97cb3127, 0xb1a3c1e5, 0x6f4f2ce5, 0xd5b3f2a1};
+        private static final int MAX_COUNT = 15;
+
+        private final byte[][] rows = new byte[SEEDS.length][];
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int expectedEntries) {
+            int width = Integer.highestOneBit(Math.max(16, expectedEntries - 1)) << 1;
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = new byte[width];
+            }
+            mask = width - 1;
+            sampleSize = 10 * width;
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int i = 0; i < rows.length; i++) {
+                int index = index(hash, i);
+                if (rows[i][index] < MAX_COUNT) {
+                    rows[i][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int frequency = MAX_COUNT;
+            for (int i = 0; i < rows.length; i++) {
+                frequency = Math.min(frequency, rows[i][index(hash, i)]);
+            }
+            return frequency;
+        }
+
+        private void reset() {
+            for (byte[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = (byte) (row[i] >>> 1);
+                }
+            }
+            additions /= 2;
+        }
+
+        private int index(int hash, int row) {
+            int h = (hash + SEEDS[row]) * SEEDS[row];
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private static int spread(int hash) {
+            int h = hash * 0x9e3779b9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
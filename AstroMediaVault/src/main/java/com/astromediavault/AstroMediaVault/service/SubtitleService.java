@@ -24,6 +24,7 @@ import java.util.stream.Collectors;
 public class SubtitleService {
 
     private final SubtitleRepository subtitleRepository;
+    private final MediaLookupCache mediaLookupCache;
     private static final Logger logger = LoggerFactory.getLogger(SubtitleService.class);
 
     @Value("${storage.local.path}")
@@ -62,6 +63,7 @@ public class SubtitleService {
         subtitle.setLanguage(language);
         subtitle.setSubtitlePath(subtitlePath);
         subtitleRepository.save(subtitle);
+        mediaLookupCache.invalidate(media.getId());
 
         logger.info("Subtitle uploaded and saved under video folder: {}", subtitlePath);
     }
@@ -98,6 +100,7 @@ public class SubtitleService {
             deleteLocalFile(subtitlePath.toString());
         }
         subtitleRepository.deleteByMediaId(mediaId);
+        mediaLookupCache.invalidate(mediaId);
         logger.info("Deleted all subtitles for media ID: {}", mediaId);
     }
 
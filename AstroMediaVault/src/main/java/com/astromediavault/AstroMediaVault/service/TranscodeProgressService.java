@@ -0,0 +1,347 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import com.astromediavault.AstroMediaVault.dto.MediaStatusResponse;
+import com.astromediavault.AstroMediaVault.dto.TranscodeProgressResponse;
+import com.astromediavault.AstroMediaVault.exception.MediaNotFoundException;
+import com.astromediavault.AstroMediaVault.model.Media;
+import com.astromediavault.AstroMediaVault.repository.MediaRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Live transcode progress. Encoders publish samples parsed from ffmpeg's progress channel to a fanout
+ * exchange; every node folds them into a per-media view (chunks encoding in parallel add up) and pushes
+ * it to its Server-Sent Event subscribers. Views of media that stopped reporting without a terminal state
+ * (a lost message, a dead worker) expire.
+ */
+@Service
+@RequiredArgsConstructor
+public class TranscodeProgressService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TranscodeProgressService.class);
+
+    public static final String EXCHANGE = "transcode-progress-exchange";
+
+    private static final long STALE_PART_NANOS = Duration.ofSeconds(30).toNanos();
+
+    private final RabbitTemplate rabbitTemplate;
+    private final ObjectMapper objectMapper;
+    private final MediaRepository mediaRepository;
+    private final MediaMetrics mediaMetrics;
+
+    @Value("${media.progress.publish-interval:1s}")
+    private Duration publishInterval;
+
+    @Value("${media.progress.sse-timeout:30m}")
+    private Duration sseTimeout;
+
+    @Value("${media.progress.expire-after:10m}")
+    private Duration expireAfter;
+
+    /** Encodes running on this node, for the node level gauges */
+    private final Set<Tracking> running = ConcurrentHashMap.newKeySet();
+
+    /** Latest view of every media something was heard about, whichever node encodes it */
+    private final Map<UUID, MediaProgress> progress = new ConcurrentHashMap<>();
+
+    private final Map<UUID, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * Progress message on the fanout exchange; processingState is only set once the media is READY or FAILED
+     */
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Sample {
+        private UUID mediaId;
+        private int part;
+        private double encodedSeconds;
+        private double durationSeconds;
+        private double speed;
+        private Media.ProcessingState processingState;
+    }
+
+    /**
+     * One running encode. Pass it to {@link ProcessRunner} as the progress listener and close it afterwards.
+     */
+    public class Tracking implements ProcessRunner.ProgressListener, AutoCloseable {
+        private final UUID mediaId;
+        private final int part;
+        private final double offsetSeconds;
+        private final double partSeconds;
+        private final double durationSeconds;
+        private volatile double encodedSeconds;
+        private volatile double speed;
+        private long lastPublished;
+
+        private Tracking(UUID mediaId, int part, double offsetSeconds, double partSeconds, double durationSeconds) {
+            this.mediaId = mediaId;
+            this.part = part;
+            this.offsetSeconds = offsetSeconds;
+            this.partSeconds = partSeconds;
+            this.durationSeconds = durationSeconds;
+        }
+
+        @Override
+        public void onProgress(double outTimeSeconds, double speed) {
+            // out_time includes -output_ts_offset, so chunks report positions on the source timeline
+            double encoded = Math.max(0, outTimeSeconds - offsetSeconds);
+            this.encodedSeconds = partSeconds > 0 ? Math.min(partSeconds, encoded) : encoded;
+            this.speed = speed;
+            long now = System.nanoTime();
+            if (now - lastPublished >= publishInterval.toNanos()) {
+                lastPublished = now;
+                publish(new Sample(mediaId, part, encodedSeconds, durationSeconds, speed, null));
+            }
+        }
+
+        @Override
+        public void close() {
+            running.remove(this);
+        }
+    }
+
+    /**
+     * Folded view of the parts of one media
+     */
+    private static class MediaProgress {
+        private final Map<Integer, Sample> parts = new ConcurrentHashMap<>();
+        private final Map<Integer, Long> seen = new ConcurrentHashMap<>();
+
+        TranscodeProgressResponse toResponse(UUID mediaId) {
+            double encoded = 0;
+            double speed = 0;
+            double duration = 0;
+            long now = System.nanoTime();
+            for (Map.Entry<Integer, Sample> entry : parts.entrySet()) {
+                Sample sample = entry.getValue();
+                encoded += sample.getEncodedSeconds();
+                duration = Math.max(duration, sample.getDurationSeconds());
+                // Parts that stopped reporting are finished or dead; either way they no longer add speed
+                if (now - seen.getOrDefault(entry.getKey(), 0L) < STALE_PART_NANOS) {
+                    speed += sample.getSpeed();
+                }
+            }
+            return progressResponse(mediaId, encoded, duration, speed);
+        }
+
+        long lastSeen() {
+            return seen.values().stream().mapToLong(Long::longValue).max().orElse(0L);
+        }
+    }
+
+    @PostConstruct
+    void registerGauges() {
+        mediaMetrics.gaugeTranscodes(running::size,
+                () -> running.stream().mapToDouble(tracking -> tracking.speed).average().orElse(0));
+    }
+
+    /**
+     * Track a whole-file encode of the given duration
+     */
+    public Tracking track(Media media, double durationSeconds) {
+        return track(media, -1, 0, durationSeconds, durationSeconds);
+    }
+
+    /**
+     * Track one part of a chunked encode; offsetSeconds is where the part starts on the source timeline
+     */
+    public Tracking track(Media media, int part, double offsetSeconds, double partSeconds, double durationSeconds) {
+        Tracking tracking = new Tracking(media.getId(), part, offsetSeconds, partSeconds, durationSeconds);
+        running.add(tracking);
+        return tracking;
+    }
+
+    /**
+     * Tell every node a media reached a terminal state, so its subscribers get the last event. Sent once the
+     * current transaction commits, so a subscriber reading the state after the event always sees it.
+     */
+    public void publishState(UUID mediaId, Media.ProcessingState state) {
+        Sample sample = new Sample(mediaId, 0, 0, 0, 0, state);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(sample);
+                }
+            });
+        } else {
+            publish(sample);
+        }
+    }
+
+    private void publish(Sample sample) {
+        try {
+            rabbitTemplate.convertAndSend(EXCHANGE, "", objectMapper.writeValueAsString(sample));
+        } catch (JsonProcessingException | AmqpException e) {
+            // Progress is best effort, the encode itself must not fail because of it
+            logger.warn("Failed to publish progress of media {}: {}", sample.getMediaId(), e.getMessage());
+        }
+    }
+
+    /**
+     * A sample from the fanout exchange, possibly published by another node
+     */
+    public void onSample(String message) throws JsonProcessingException {
+        Sample sample = objectMapper.readValue(message, Sample.class);
+        UUID mediaId = sample.getMediaId();
+
+        if (sample.getProcessingState() != null) {
+            MediaProgress finished = progress.remove(mediaId);
+            TranscodeProgressResponse response = finished != null ? finished.toResponse(mediaId)
+                    : progressResponse(mediaId, 0, 0, 0);
+            response.setProcessingState(sample.getProcessingState());
+            if (sample.getProcessingState() == Media.ProcessingState.READY) {
+                response.setPercentComplete(100);
+                response.setEtaSeconds(0L);
+            }
+            List<SseEmitter> emitters = subscribers.remove(mediaId);
+            if (emitters != null) {
+                emitters.forEach(emitter -> finish(emitters, emitter, response));
+            }
+            return;
+        }
+
+        MediaProgress mediaProgress = progress.computeIfAbsent(mediaId, id -> new MediaProgress());
+        mediaProgress.parts.put(sample.getPart(), sample);
+        mediaProgress.seen.put(sample.getPart(), System.nanoTime());
+
+        List<SseEmitter> emitters = subscribers.get(mediaId);
+        if (emitters != null && !emitters.isEmpty()) {
+            TranscodeProgressResponse response = mediaProgress.toResponse(mediaId);
+            emitters.removeIf(emitter -> !send(emitter, response));
+        }
+    }
+
+    /**
+     * Open a progress stream. Media that are already READY or FAILED get one event and the stream completes.
+     * The state is read again once the stream is registered: a terminal event published in between found no
+     * subscriber to end.
+     */
+    public SseEmitter subscribe(UUID mediaId) {
+        MediaStatusResponse status = status(mediaId);
+        SseEmitter emitter = new SseEmitter(sseTimeout.toMillis());
+        if (isTerminal(status)) {
+            if (send(emitter, current(mediaId, status))) {
+                emitter.complete();
+            }
+            return emitter;
+        }
+
+        // Added under the map's lock, so expire cannot drop the list in between
+        List<SseEmitter> emitters = subscribers.compute(mediaId, (id, list) -> {
+            List<SseEmitter> registered = list != null ? list : new CopyOnWriteArrayList<>();
+            registered.add(emitter);
+            return registered;
+        });
+        Runnable unsubscribe = () -> emitters.remove(emitter);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+        send(emitter, current(mediaId, status));
+
+        status = status(mediaId);
+        if (isTerminal(status)) {
+            finish(emitters, emitter, current(mediaId, status));
+        }
+        return emitter;
+    }
+
+    /**
+     * Drop views of media that stopped reporting, and subscriber lists every stream left
+     */
+    @Scheduled(fixedDelayString = "${media.progress.expire-interval-ms:60000}")
+    public void expire() {
+        long now = System.nanoTime();
+        progress.values().removeIf(mediaProgress -> now - mediaProgress.lastSeen() > expireAfter.toNanos());
+        subscribers.keySet().forEach(mediaId -> subscribers.computeIfPresent(mediaId,
+                (id, emitters) -> emitters.isEmpty() ? null : emitters));
+    }
+
+    private MediaStatusResponse status(UUID mediaId) {
+        return mediaRepository.findStatusById(mediaId)
+                .orElseThrow(() -> new MediaNotFoundException("Media not found with ID: " + mediaId));
+    }
+
+    private static boolean isTerminal(MediaStatusResponse status) {
+        return status.getProcessingState() == Media.ProcessingState.READY
+                || status.getProcessingState() == Media.ProcessingState.FAILED;
+    }
+
+    private TranscodeProgressResponse current(UUID mediaId, MediaStatusResponse status) {
+        MediaProgress mediaProgress = progress.get(mediaId);
+        TranscodeProgressResponse current = mediaProgress != null ? mediaProgress.toResponse(mediaId)
+                : progressResponse(mediaId, 0, 0, 0);
+        current.setProcessingState(status.getProcessingState());
+        if (status.getProcessingState() == Media.ProcessingState.READY) {
+            current.setPercentComplete(100);
+        }
+        return current;
+    }
+
+    /**
+     * Send the last event and complete the stream; whoever removes the emitter first does, so it ends once
+     */
+    private void finish(List<SseEmitter> emitters, SseEmitter emitter, TranscodeProgressResponse response) {
+        if (emitters.remove(emitter) && send(emitter, response)) {
+            emitter.complete();
+        }
+    }
+
+    private boolean send(SseEmitter emitter, TranscodeProgressResponse response) {
+        try {
+            emitter.send(SseEmitter.event().name("progress").data(response));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Client went away
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    /**
+     * Percent, speed and ETA of a media from the seconds encoded so far; visible for tests
+     */
+    static TranscodeProgressResponse progressResponse(UUID mediaId, double encodedSeconds, double durationSeconds,
+            double speed) {
+        double percent = durationSeconds > 0 ? Math.min(100, encodedSeconds * 100 / durationSeconds) : 0;
+        Long eta = speed > 0 && durationSeconds > 0
+                ? Math.round(Math.max(0, durationSeconds - encodedSeconds) / speed)
+                : null;
+        return TranscodeProgressResponse.builder()
+                .mediaId(mediaId)
+                .processingState(Media.ProcessingState.PROCESSING)
+                .percentComplete(Math.round(percent * 10) / 10d)
+                .speed(Math.round(speed * 100) / 100d)
+                .etaSeconds(eta)
+                .encodedSeconds(encodedSeconds)
+                .durationSeconds(durationSeconds)
+                .build();
+    }
+}
@@ -0,0 +1,265 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import com.astromediavault.AstroMediaVault.dto.ApiResponse;
+import com.astromediavault.AstroMediaVault.dto.MediaUploadRequest;
+import com.astromediavault.AstroMediaVault.dto.UploadSessionResponse;
+import com.astromediavault.AstroMediaVault.exception.InvalidFileTypeException;
+import com.astromediavault.AstroMediaVault.exception.InvalidUploadException;
+import com.astromediavault.AstroMediaVault.exception.MediaNotFoundException;
+import com.astromediavault.AstroMediaVault.model.Media;
+import com.astromediavault.AstroMediaVault.model.UploadChunk;
+import com.astromediavault.AstroMediaVault.model.UploadSession;
+import com.astromediavault.AstroMediaVault.model.User;
+import com.astromediavault.AstroMediaVault.repository.UploadChunkRepository;
+import com.astromediavault.AstroMediaVault.repository.UploadSessionRepository;
+import com.astromediavault.AstroMediaVault.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+public class UploadSessionService {
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UploadChunkRepository uploadChunkRepository;
+    private final UserRepository userRepository;
+    private final MediaStorageService mediaStorageService;
+    private final MediaService mediaService;
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadSessionService.class);
+
+    @Value("${media.upload.max-size-bytes:2147483648}") // Default 2GB
+    private long maxUploadSize;
+
+    @Value("${media.upload.chunk-size-bytes:8388608}") // Default 8MB
+    private int chunkSize;
+
+    @Value("${media.upload.session-ttl:24h}")
+    private Duration sessionTtl;
+
+    /**
+     * Open a resumable upload session and reserve its part file
+     */
+    public UploadSessionResponse createSession(UUID userId, MediaUploadRequest request, String originalFileName,
+            long totalSize) throws IOException {
+        Media.FileType fileType;
+        try {
+            fileType = Media.FileType.valueOf(request.getFileType().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidFileTypeException("Invalid file type! Must be VIDEO, IMAGE, or PDF.");
+        }
+        if (totalSize <= 0 || totalSize > maxUploadSize) {
+            throw new InvalidUploadException("Upload size must be between 1 and " + maxUploadSize + " bytes");
+        }
+
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new MediaNotFoundException("User not found with ID: " + userId));
+
+        UploadSession session = new UploadSession();
+        session.setUser(user);
+        session.setOriginalFileName(mediaStorageService.sanitizeFileName(originalFileName));
+        session.setFileType(fileType);
+        session.setTitle(request.getTitle());
+        session.setDescription(request.getDescription());
+        session.setGenerateImgRes(request.isGenerateImgRes());
+        session.setTotalSize(totalSize);
+        session.setChunkSize(chunkSize);
+        session.setExpiresAt(Instant.now().plus(sessionTtl));
+
+        // Part files live next to the originals so that completing a session is a rename
+        String partPath = Paths.get("users", userId.toString(), "uploads", UUID.randomUUID() + ".part").toString();
+        Path fullPartPath = mediaStorageService.resolve(partPath);
+        Files.createDirectories(fullPartPath.getParent());
+        Files.createFile(fullPartPath);
+        session.setPartPath(partPath);
+        session = uploadSessionRepository.save(session);
+
+        logger.info("Opened upload session {} for {} ({} bytes, {} chunks)", session.getId(),
+                session.getOriginalFileName(), totalSize, session.getTotalChunks());
+        return toResponse(session);
+    }
+
+    /**
+     * Write one numbered chunk at its position in the part file. Chunks may be sent in parallel
+     * and re-sent after a dropped connection.
+     */
+    public UploadSessionResponse writeChunk(UUID sessionId, int chunkIndex, InputStream body) throws IOException {
+        UploadSession session = getOpenSession(sessionId);
+
+        if (chunkIndex < 0 || chunkIndex >= session.getTotalChunks()) {
+            throw new InvalidUploadException("Chunk index out of range: " + chunkIndex);
+        }
+
+        long offset = (long) chunkIndex * session.getChunkSize();
+        long expectedLength = Math.min(session.getChunkSize(), session.getTotalSize() - offset);
+        Path partFile = mediaStorageService.resolve(session.getPartPath());
+
+        long written;
+        try {
+            written = mediaStorageService.writeAt(body, partFile, offset, expectedLength);
+        } catch (IOException e) {
+            throw new InvalidUploadException("Failed to write chunk " + chunkIndex + ": " + e.getMessage());
+        }
+        if (written != expectedLength) {
+            throw new InvalidUploadException(
+                    "Incomplete chunk " + chunkIndex + ": expected " + expectedLength + " bytes, got " + written);
+        }
+
+        if (!uploadChunkRepository.existsBySessionIdAndChunkIndex(sessionId, chunkIndex)) {
+            UploadChunk chunk = new UploadChunk();
+            chunk.setSession(session);
+            chunk.setChunkIndex(chunkIndex);
+            chunk.setByteOffset(offset);
+            chunk.setSize(written);
+            try {
+                uploadChunkRepository.save(chunk);
+            } catch (DataIntegrityViolationException e) {
+                logger.debug("Chunk {} of session {} was recorded concurrently", chunkIndex, sessionId);
+            }
+        }
+
+        return toResponse(session);
+    }
+
+    /**
+     * Current state of a session; clients use the missing chunks to resume
+     */
+    public UploadSessionResponse getSession(UUID sessionId) {
+        return toResponse(findSession(sessionId));
+    }
+
+    /**
+     * Hand the assembled file to the regular media upload flow
+     */
+    public ApiResponse<String> completeSession(UUID sessionId) throws IOException {
+        UploadSession session = getOpenSession(sessionId);
+
+        long received = uploadChunkRepository.countBySessionId(sessionId);
+        if (received != session.getTotalChunks()) {
+            throw new InvalidUploadException("Upload incomplete: received " + received + " of "
+                    + session.getTotalChunks() + " chunks");
+        }
+        if (uploadSessionRepository.transition(sessionId, UploadSession.Status.OPEN,
+                UploadSession.Status.COMPLETED) == 0) {
+            throw new InvalidUploadException("Upload session is already being completed: " + sessionId);
+        }
+
+        Path partFile = mediaStorageService.resolve(session.getPartPath());
+        try (FileChannel channel = FileChannel.open(partFile, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+
+        MediaUploadRequest request = new MediaUploadRequest();
+        request.setTitle(session.getTitle());
+        request.setDescription(session.getDescription());
+        request.setFileType(session.getFileType().name());
+        request.setGenerateImgRes(session.isGenerateImgRes());
+
+        ApiResponse<String> response = mediaService.uploadMediaFromFile(request, session.getUser().getId(),
+                session.getOriginalFileName(), partFile);
+
+        if (!response.isSuccess() && Files.exists(partFile)) {
+            // Bytes are still in place, let the client retry the completion
+            uploadSessionRepository.transition(sessionId, UploadSession.Status.COMPLETED, UploadSession.Status.OPEN);
+        } else {
+            uploadChunkRepository.deleteBySessionId(sessionId);
+        }
+
+        logger.info("Completed upload session {}: {}", sessionId, response.getMessage());
+        return response;
+    }
+
+    /**
+     * Abort a session and discard everything received so far
+     */
+    public void abortSession(UUID sessionId) {
+        UploadSession session = findSession(sessionId);
+        if (uploadSessionRepository.transition(sessionId, UploadSession.Status.OPEN,
+                UploadSession.Status.ABORTED) == 0) {
+            throw new InvalidUploadException("Upload session is not open: " + sessionId);
+        }
+        mediaStorageService.deleteQuietly(mediaStorageService.resolve(session.getPartPath()));
+        uploadChunkRepository.deleteBySessionId(sessionId);
+        logger.info("Aborted upload session {}", sessionId);
+    }
+
+    /**
+     * Reclaim disk space of sessions that were abandoned by their clients
+     */
+    @Scheduled(fixedDelayString = "${media.upload.session-cleanup-interval-ms:600000}")
+    public void abortExpiredSessions() {
+        List<UploadSession> expired = uploadSessionRepository
+                .findByStatusAndExpiresAtBefore(UploadSession.Status.OPEN, Instant.now());
+        for (UploadSession session : expired) {
+            try {
+                abortSession(session.getId());
+            } catch (Exception e) {
+                logger.warn("Failed to abort expired upload session {}: {}", session.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private UploadSession findSession(UUID sessionId) {
+        return uploadSessionRepository.findById(sessionId)
+                .orElseThrow(() -> new MediaNotFoundException("Upload session not found: " + sessionId));
+    }
+
+    private UploadSession getOpenSession(UUID sessionId) {
+        UploadSession session = findSession(sessionId);
+        if (session.getStatus() != UploadSession.Status.OPEN) {
+            throw new InvalidUploadException("Upload session is " + session.getStatus() + ": " + sessionId);
+        }
+        if (session.getExpiresAt().isBefore(Instant.now())) {
+            throw new InvalidUploadException("Upload session expired: " + sessionId);
+        }
+        return session;
+    }
+
+    private UploadSessionResponse toResponse(UploadSession session) {
+        BitSet received = new BitSet(session.getTotalChunks());
+        long receivedBytes = 0;
+        for (UploadChunk chunk : uploadChunkRepository.findBySessionIdOrderByChunkIndex(session.getId())) {
+            received.set(chunk.getChunkIndex());
+            receivedBytes += chunk.getSize();
+        }
+
+        List<Integer> receivedChunks = new ArrayList<>();
+        List<Integer> missingChunks = new ArrayList<>();
+        for (int i = 0; i < session.getTotalChunks(); i++) {
+            (received.get(i) ? receivedChunks : missingChunks).add(i);
+        }
+
+        return UploadSessionResponse.builder()
+                .sessionId(session.getId())
+                .fileName(session.getOriginalFileName())
+                .fileType(session.getFileType().name())
+                .status(session.getStatus().name())
+                .totalSize(session.getTotalSize())
+                .chunkSize(session.getChunkSize())
+                .totalChunks(session.getTotalChunks())
+                .receivedBytes(receivedBytes)
+                .receivedChunks(receivedChunks)
+                .missingChunks(missingChunks)
+                .expiresAt(session.getExpiresAt())
+                .build();
+    }
+}
@@ -0,0 +1,216 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import com.astromediavault.AstroMediaVault.config.VideoLadderProperties;
+import com.astromediavault.AstroMediaVault.model.VideoMetadata;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Fits the configured ladder to a source: no upscaling, no frame rate increase, aspect ratio kept
+ * and bitrates scaled to what the source actually carries.
+ */
+@Service
+@RequiredArgsConstructor
+public class VideoLadderPlanner {
+
+    private final VideoLadderProperties videoLadderProperties;
+
+    private static final int MIN_BITRATE_KBPS = 150;
+    private static final double REFERENCE_FRAME_RATE = 30;
+
+    /** H.264 levels (times ten) with their macroblocks per second and per frame limits */
+    private static final int[][] H264_LEVELS = {
+            { 30, 40_500, 1_620 },
+            { 31, 108_000, 3_600 },
+            { 32, 216_000, 5_120 },
+            { 41, 245_760, 8_192 },
+            { 42, 522_240, 8_704 },
+            { 50, 589_824, 22_080 },
+            { 51, 983_040, 36_864 },
+            { 52, 2_073_600, 36_864 } };
+
+    /**
+     * One output of the ladder
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Rendition {
+        private final String name;
+        private final int width;
+        private final int height;
+        private final int bitrateKbps; // average target, or the maxrate cap of a per-title (CRF) encode
+        private final double frameRate;
+        private final int crf; // 0 = average bitrate encode
+
+        public Rendition(String name, int width, int height, int bitrateKbps, double frameRate) {
+            this(name, width, height, bitrateKbps, frameRate, 0);
+        }
+
+        public String getResolution() {
+            return width + "x" + height;
+        }
+
+        /**
+         * Lowest H.264 level (times ten) whose limits fit this size and frame rate
+         */
+        public int getH264Level() {
+            long frameMacroblocks = (long) ((width + 15) / 16) * ((height + 15) / 16);
+            double macroblocksPerSecond = frameMacroblocks * frameRate;
+            for (int[] level : H264_LEVELS) {
+                if (frameMacroblocks <= level[2] && macroblocksPerSecond <= level[1]) {
+                    return level[0];
+                }
+            }
+            return H264_LEVELS[H264_LEVELS.length - 1][0];
+        }
+
+        /**
+         * RFC 6381 codec of the rendition (H.264 High profile), for the CODECS attribute of the master playlist
+         */
+        public String getCodecs() {
+            return String.format("avc1.6400%02x", getH264Level());
+        }
+    }
+
+    /**
+     * One audio track of the source, encoded once and shared by every video rendition
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class AudioTrack {
+        public static final String CODECS = "mp4a.40.2"; // AAC-LC
+        public static final String UNDETERMINED = "und";
+
+        private final int index; // among the audio streams of the source, 0:a:index
+        private final String language; // ISO 639 code from the source tags, "und" when untagged
+        private final int bitrateKbps;
+
+        /**
+         * Name of the track's playlist and segments (stream_NAME.m3u8) and of its rows
+         */
+        public String getName() {
+            return "audio_" + index;
+        }
+    }
+
+    /**
+     * Ladder of a source; once its complexity was analysed, a per-title ladder
+     */
+    public List<Rendition> plan(VideoMetadata metadata) {
+        String[] size = metadata.getResolution().split("x");
+        return plan(Integer.parseInt(size[0]), Integer.parseInt(size[1]), parseFrameRate(metadata.getFrameRate()),
+                metadata.getBitrate() / 1000, metadata.getComplexity());
+    }
+
+    public List<Rendition> plan(int sourceWidth, int sourceHeight, double sourceFrameRate, int sourceBitrateKbps) {
+        return plan(sourceWidth, sourceHeight, sourceFrameRate, sourceBitrateKbps, null);
+    }
+
+    /**
+     * With a complexity (bits the source needs relative to typical content, see ComplexityAnalysisService)
+     * every rung becomes a constant quality encode whose maxrate is the rung bitrate scaled by it
+     */
+    public List<Rendition> plan(int sourceWidth, int sourceHeight, double sourceFrameRate, int sourceBitrateKbps,
+            Double complexity) {
+        List<VideoLadderProperties.Rung> rungs = videoLadderProperties.getLadder().stream()
+                .sorted(Comparator.comparingInt(VideoLadderProperties.Rung::getHeight))
+                .toList();
+        int sourceShortSide = Math.min(sourceWidth, sourceHeight);
+
+        List<Rendition> renditions = new ArrayList<>();
+        VideoLadderProperties.Rung upper = null;
+        int coveredShortSide = 0;
+        for (VideoLadderProperties.Rung rung : rungs) {
+            if (rung.getHeight() > sourceShortSide) {
+                upper = rung;
+                break;
+            }
+            renditions.add(rendition(rung.getName(), rung.getHeight(), rung.getBitrateKbps(), rung.getMaxFrameRate(),
+                    sourceWidth, sourceHeight, sourceFrameRate, sourceBitrateKbps, complexity));
+            coveredShortSide = rung.getHeight();
+        }
+
+        // A source between two rungs (or below the lowest) also gets a rendition at its own size
+        if (upper != null && coveredShortSide < sourceShortSide) {
+            double pixelRatio = Math.pow((double) sourceShortSide / upper.getHeight(), 2);
+            renditions.add(rendition(sourceShortSide + "p", sourceShortSide,
+                    (int) Math.round(upper.getBitrateKbps() * pixelRatio), upper.getMaxFrameRate(),
+                    sourceWidth, sourceHeight, sourceFrameRate, sourceBitrateKbps, complexity));
+        }
+        return renditions;
+    }
+
+    /**
+     * Audio tracks of a source; none for silent sources such as screen recordings.
+     * Metadata probed before audio tracks were recorded is assumed to carry one untagged track.
+     */
+    public List<AudioTrack> audioTracks(VideoMetadata metadata) {
+        String languages = metadata.getAudioLanguages();
+        if (languages == null) {
+            return List.of(new AudioTrack(0, AudioTrack.UNDETERMINED, videoLadderProperties.getAudioBitrateKbps()));
+        }
+        List<AudioTrack> tracks = new ArrayList<>();
+        for (String language : languages.split(",")) {
+            if (!language.isBlank()) {
+                tracks.add(new AudioTrack(tracks.size(), language.trim(), videoLadderProperties.getAudioBitrateKbps()));
+            }
+        }
+        return tracks;
+    }
+
+    private Rendition rendition(String name, int shortSide, int bitrateKbps, double maxFrameRate,
+            int sourceWidth, int sourceHeight, double sourceFrameRate, int sourceBitrateKbps, Double complexity) {
+        int width;
+        int height;
+        if (sourceWidth >= sourceHeight) {
+            height = even(shortSide);
+            width = even((double) shortSide * sourceWidth / sourceHeight);
+        } else {
+            width = even(shortSide);
+            height = even((double) shortSide * sourceHeight / sourceWidth);
+        }
+
+        double frameRate = maxFrameRate > 0 && sourceFrameRate > maxFrameRate ? maxFrameRate : sourceFrameRate;
+        double bitrate = bitrateKbps * frameRateFactor(frameRate);
+        if (complexity != null) {
+            bitrate *= complexity;
+        }
+        if (sourceBitrateKbps > 0) {
+            // Never spend more bits than the source has for the same number of pixels
+            double pixelShare = (double) width * height / ((double) sourceWidth * sourceHeight);
+            bitrate = Math.min(bitrate, sourceBitrateKbps * pixelShare * 1.1);
+        }
+        return new Rendition(name, width, height, (int) Math.max(MIN_BITRATE_KBPS, Math.round(bitrate)), frameRate,
+                complexity != null ? videoLadderProperties.getTargetCrf() : 0);
+    }
+
+    /**
+     * Rung bitrates are for 30 fps; higher frame rates get up to 50% more
+     */
+    static double frameRateFactor(double frameRate) {
+        return frameRate > REFERENCE_FRAME_RATE ? Math.min(1.5, frameRate / REFERENCE_FRAME_RATE) : 1;
+    }
+
+    private int even(double value) {
+        return Math.max(2, (int) Math.round(value / 2) * 2);
+    }
+
+    /**
+     * ffprobe frame rates are fractions such as 30000/1001
+     */
+    static double parseFrameRate(String frameRate) {
+        if (frameRate == null || frameRate.isBlank()) {
+            return REFERENCE_FRAME_RATE;
+        }
+        String[] parts = frameRate.split("/");
+        double numerator = Double.parseDouble(parts[0]);
+        double denominator = parts.length > 1 ? Double.parseDouble(parts[1]) : 1;
+        return denominator == 0 || numerator == 0 ? REFERENCE_FRAME_RATE : numerator / denominator;
+    }
+}
@@ -1,37 +1,40 @@
 package com.astromediavault.AstroMediaVault.service;
 
-import com.astromediavault.AstroMediaVault.dto.MediaUploadRequest;
 import com.astromediavault.AstroMediaVault.exception.InvalidFileTypeException;
 import com.astromediavault.AstroMediaVault.exception.MediaNotFoundException;
 import com.astromediavault.AstroMediaVault.model.Media;
+import com.astromediavault.AstroMediaVault.model.ProcessingJob;
 import com.astromediavault.AstroMediaVault.model.TranscodedVideo;
+import com.astromediavault.AstroMediaVault.model.VideoMetadata;
 import com.astromediavault.AstroMediaVault.model.VideoSegment;
 import com.astromediavault.AstroMediaVault.repository.MediaRepository;
+import com.astromediavault.AstroMediaVault.repository.ProcessingJobRepository;
+import com.astromediavault.AstroMediaVault.repository.TranscodeChunkRepository;
 import com.astromediavault.AstroMediaVault.repository.TranscodedVideoRepository;
 import com.astromediavault.AstroMediaVault.repository.VideoMetadataRepository;
 import com.astromediavault.AstroMediaVault.repository.VideoSegmentRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 
 import org.apache.tomcat.util.http.fileupload.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.stereotype.Service;
 
 import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -39,50 +42,92 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class VideoService {
 
-    private final RabbitTemplate rabbitTemplate;
     private final TranscodedVideoRepository transcodedVideoRepository;
     private final VideoSegmentRepository videoSegmentRepository;
     private final VideoMetadataRepository videoMetadataRepository;
     private final MediaRepository mediaRepository;
+    private final ChunkedTranscodeService chunkedTranscodeService;
+    private final SeekPreviewService seekPreviewService;
+    private final JobPriorityPolicy jobPriorityPolicy;
+    private final JobLeaseService jobLeaseService;
+    private final ProcessingJobRepository processingJobRepository;
+    private final TranscodeChunkRepository transcodeChunkRepository;
+    private final MediaMetrics mediaMetrics;
+    private final FileDeliveryService fileDeliveryService;
 
     private static final Logger logger = LoggerFactory.getLogger(VideoService.class);
 
     @Value("${storage.local.path}")
     private String localStoragePath;
 
-    @Value("${server.host}")
-    private String serverHost;
-
     /**
-     * Process Video Upload (Send Jobs to RabbitMQ)
+     * Process Video Upload (Send Jobs to RabbitMQ). The original is already stored by MediaService.
+     * The probed duration sets the job priority, so short clips are not queued behind long films.
      */
-    public void processVideoUpload(Media media, MediaUploadRequest request, String fullPath) {
-        try (InputStream inputStream = request.getFile().getInputStream()) {
-            Files.copy(inputStream, Paths.get(fullPath)); // ✅ Save the video
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to store video file: " + e.getMessage(), e);
-        }
-
-        if (request.getSubtitle() != null && !request.getSubtitle().isEmpty()) {
-            logger.info("Subtitle provided with video. Processing...");
-            rabbitTemplate.convertAndSend("subtitle-processing-queue", media.getId().toString());
-        }
+    public void processVideoUpload(Media media) {
+        VideoMetadata metadata = videoMetadataRepository.save(probe(media));
+        media.setPriority(jobPriorityPolicy.priority(media, metadata.getDurationSeconds()));
+        mediaRepository.updatePriority(media.getId(), media.getPriority());
 
-        rabbitTemplate.convertAndSend("video-processing-queue", media.getId().toString());
-        rabbitTemplate.convertAndSend("thumbnail-generation-queue", media.getId().toString());
+        jobLeaseService.enqueue(ProcessingJob.Kind.VIDEO_TRANSCODE, media, media.getId().toString());
 
         logger.info("Video processing tasks sent for media: {}", media.getId());
     }
 
     /**
-     * Generate HLS Streaming URL
+     * Extract video metadata using FFprobe; only container and stream headers are read
      */
-    public String generateHlsUrl(Media media) {
-        String hlsPath = Paths.get("users", media.getUser().getId().toString(), "videos", "hls",
-                media.getId().toString(), "master.m3u8").toString();
-        return serverHost + "/" + hlsPath.replace("\\", "/");
+    public VideoMetadata probe(Media media) {
+        File videoFile = Paths.get(localStoragePath, media.getStoragePath()).toFile();
+        try {
+            String[] command = { "ffprobe", "-v", "error", "-show_entries",
+                    "stream=codec_type,width,height,codec_name,r_frame_rate,bit_rate,duration:stream_tags=language"
+                            + ":format=duration,bit_rate",
+                    "-of", "json", videoFile.getAbsolutePath() };
+
+            ProcessBuilder processBuilder = new ProcessBuilder(command);
+            processBuilder.redirectErrorStream(true);
+            long started = System.nanoTime();
+            Process process = processBuilder.start();
+
+            ObjectMapper objectMapper = new ObjectMapper();
+            JsonNode jsonNode = objectMapper.readTree(process.getInputStream());
+            mediaMetrics.recordProcess("ffprobe", Duration.ofNanos(System.nanoTime() - started),
+                    String.valueOf(process.waitFor()));
+
+            JsonNode stream = null;
+            List<String> audioLanguages = new ArrayList<>();
+            for (JsonNode probed : jsonNode.get("streams")) {
+                String codecType = probed.path("codec_type").asText();
+                if (stream == null && codecType.equals("video")) {
+                    stream = probed;
+                } else if (codecType.equals("audio")) {
+                    audioLanguages.add(probed.path("tags").path("language")
+                            .asText(VideoLadderPlanner.AudioTrack.UNDETERMINED));
+                }
+            }
+            // Containers such as MKV or WebM only report duration and bitrate on the format
+            JsonNode format = jsonNode.path("format");
+            return VideoMetadata.builder()
+                    .media(media)
+                    .title(media.getFileName())
+                    .description("Extracted via FFmpeg")
+                    .resolution(stream.get("width").asInt() + "x" + stream.get("height").asInt())
+                    .frameRate(stream.get("r_frame_rate").asText())
+                    .codec(stream.get("codec_name").asText())
+                    .bitrate(stream.path("bit_rate").asInt(format.path("bit_rate").asInt()))
+                    .durationSeconds((int) stream.path("duration").asDouble(format.path("duration").asDouble()))
+                    .audioLanguages(String.join(",", audioLanguages))
+                    .build();
+
+        } catch (Exception e) {
+            logger.error("Failed to extract video metadata: {}", e.getMessage(), e);
+            mediaMetrics.recordFailure("metadata");
+            throw new RuntimeException("Metadata extraction failed");
+        }
     }
 
+
     /**
      * DOWNLOAD Video File
      */
@@ -100,11 +145,17 @@ public class VideoService {
             throw new MediaNotFoundException("Original video file not found at: " + fullPath);
         }
 
-        InputStreamResource resource = new InputStreamResource(new FileInputStream(file));
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + media.getFileName() + "\"")
-                .body(resource);
+        return fileDeliveryService.deliver(file.toPath(), MediaType.APPLICATION_OCTET_STREAM,
+                ContentDisposition.attachment().filename(media.getFileName()).build());
+    }
+
+    /**
+     * Delete the transcode job and chunk rows of a video. They reference the media itself, so this runs on every
+     * delete, also when other uploads still share the files.
+     */
+    public void deleteJobRecords(UUID mediaId) {
+        processingJobRepository.deleteByMediaId(mediaId);
+        transcodeChunkRepository.deleteByMediaId(mediaId);
     }
 
     /**
@@ -117,12 +168,12 @@ public class VideoService {
         Media media = mediaRepository.findById(mediaId)
                 .orElseThrow(() -> new MediaNotFoundException("Media not found with ID: " + mediaId));
 
-        // 🔹 Fetch and delete video segments
+        // 🔹 Fetch and delete video segments (fMP4 segments are byte ranges of one file per rendition)
         List<VideoSegment> videoSegments = videoSegmentRepository.findByMediaId(mediaId);
-        for (VideoSegment segment : videoSegments) {
-            Path segmentPath = Paths.get(localStoragePath, segment.getSegmentPath()).normalize();
-            deleteLocalFile(segmentPath);
-        }
+        videoSegments.stream()
+                .map(segment -> Paths.get(localStoragePath, segment.getSegmentPath()).normalize())
+                .distinct()
+                .forEach(this::deleteLocalFile);
         videoSegmentRepository.deleteByMediaId(mediaId);
 
         // 🔹 Fetch and delete transcoded videos
@@ -134,13 +185,17 @@ public class VideoService {
         transcodedVideoRepository.deleteByMediaId(mediaId);
 
         // 🔹 Delete thumbnail (Fixed path)
-        Path thumbnailPath = Paths.get(localStoragePath, "users", media.getUser().getId().toString(), "videos",
-                "thumbnails", mediaId + ".jpg").normalize();
+        Path thumbnailPath = Paths.get(localStoragePath, "users", media.getArtifactUserId().toString(), "videos",
+                "thumbnails", media.getArtifactMediaId() + ".jpg").normalize();
         deleteLocalFile(thumbnailPath);
 
+        // 🔹 Delete seek preview sprites and track
+        seekPreviewService.delete(media);
+
         // 🔹 Delete HLS Folder (Fixed path)
         Path hlsFolderPath = Paths
-                .get(localStoragePath, "users", media.getUser().getId().toString(), "videos", "hls", mediaId.toString())
+                .get(localStoragePath, "users", media.getArtifactUserId().toString(), "videos", "hls",
+                        media.getArtifactMediaId().toString())
                 .normalize();
         deleteLocalFolder(hlsFolderPath);
 
@@ -148,6 +203,9 @@ public class VideoService {
         Path originalFilePath = Paths.get(localStoragePath, media.getStoragePath()).normalize();
         deleteLocalFile(originalFilePath);
 
+        // 🔹 Delete leftovers of an unfinished chunked transcode
+        chunkedTranscodeService.cleanup(media);
+
         // 🔹 Delete Video Metadata
         videoMetadataRepository.deleteByMediaId(mediaId);
 
@@ -0,0 +1,526 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import com.astromediavault.AstroMediaVault.model.Media;
+import com.astromediavault.AstroMediaVault.model.TranscodedVideo;
+import com.astromediavault.AstroMediaVault.model.VideoMetadata;
+import com.astromediavault.AstroMediaVault.model.VideoSegment;
+import com.astromediavault.AstroMediaVault.repository.TranscodedVideoRepository;
+import com.astromediavault.AstroMediaVault.repository.VideoMetadataRepository;
+import com.astromediavault.AstroMediaVault.repository.VideoSegmentRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.apache.tomcat.util.http.fileupload.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The HLS ladder of a video: ffmpeg command line, output layout and the rows recorded for it.
+ * Shared by whole-file and chunked transcoding so both produce identical renditions. Renditions are either
+ * MPEG-TS segment files or one fragmented MP4 (CMAF) file each, whose fragments could back a DASH manifest too.
+ */
+@Service
+@RequiredArgsConstructor
+public class VideoTranscodeService {
+
+    private final TranscodedVideoRepository transcodedVideoRepository;
+    private final VideoSegmentRepository videoSegmentRepository;
+    private final HlsPlaylistService hlsPlaylistService;
+    private final MediaMetrics mediaMetrics;
+    private final VideoLadderPlanner videoLadderPlanner;
+    private final VideoMetadataRepository videoMetadataRepository;
+    private final SeekPreviewService seekPreviewService;
+
+    private static final Logger logger = LoggerFactory.getLogger(VideoTranscodeService.class);
+
+    public static final int HLS_SEGMENT_SECONDS = 6;
+    public static final String STAGED_POSTER = "poster.jpg";
+    public static final String STAGED_PREVIEW = "preview";
+    public static final String RESUME_DIRECTORY = "resume";
+
+    /** Segment ends of different playlists that are this close count as the same cut */
+    private static final double RESUME_TOLERANCE_SECONDS = 0.25;
+
+    private static final double POSTER_SECONDS = 5;
+
+    @Value("${storage.local.path}")
+    private String localStoragePath;
+
+    @Value("${media.video.fused-outputs:true}")
+    private boolean fused;
+
+    @Value("${media.video.early-playback:true}")
+    private boolean earlyPlayback;
+
+    @Value("${media.video.packaging:ts}")
+    private TranscodedVideo.Container packaging;
+
+    /**
+     * Ladder of a video, derived from its stored ffprobe metadata so every worker computes the same plan
+     */
+    public List<VideoLadderPlanner.Rendition> plan(Media media) {
+        return videoLadderPlanner.plan(metadata(media));
+    }
+
+    /**
+     * Audio tracks of a video, encoded once each and shared by every rendition of the ladder
+     */
+    public List<VideoLadderPlanner.AudioTrack> audioTracks(Media media) {
+        return videoLadderPlanner.audioTracks(metadata(media));
+    }
+
+    /**
+     * Media playlists of a ladder without extension: stream_N per rendition, then stream_audio_N per audio track
+     */
+    public static List<String> playlistNames(List<VideoLadderPlanner.Rendition> renditions,
+            List<VideoLadderPlanner.AudioTrack> audioTracks) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < renditions.size(); i++) {
+            names.add("stream_" + i);
+        }
+        audioTracks.forEach(track -> names.add("stream_" + track.getName()));
+        return names;
+    }
+
+    public VideoMetadata metadata(Media media) {
+        return videoMetadataRepository.findByMediaId(media.getId())
+                .orElseThrow(() -> new IllegalStateException("No video metadata for media " + media.getId()));
+    }
+
+    /**
+     * HLS folder of a video relative to the storage root
+     */
+    public String relativeHlsDirectory(Media media) {
+        return Paths.get("users", media.getArtifactUserId().toString(), "videos", "hls",
+                media.getArtifactMediaId().toString()).toString();
+    }
+
+    public Path hlsDirectory(Media media) {
+        return Paths.get(localStoragePath, relativeHlsDirectory(media));
+    }
+
+    /**
+     * Whether transcodes decode the source once for the whole ladder and the poster
+     */
+    public boolean isFused() {
+        return fused;
+    }
+
+    /**
+     * Whether whole-file transcodes write event playlists into the HLS folder so playback can start
+     * with the first segments instead of after the last one
+     */
+    public boolean isEarlyPlayback() {
+        return earlyPlayback;
+    }
+
+    /**
+     * Packaging of whole-file transcodes; chunked transcodes always write TS segments, which they stitch by file
+     */
+    public TranscodedVideo.Container getPackaging() {
+        return packaging;
+    }
+
+    /**
+     * Sibling of the HLS folder where whole-file transcodes write before their outputs are published
+     */
+    public Path stagingDirectory(Media media) {
+        Path hlsDirectory = hlsDirectory(media);
+        return hlsDirectory.resolveSibling(hlsDirectory.getFileName() + ".staging");
+    }
+
+    /**
+     * Poster (thumbnail) of a video, shared with ThumbnailGenerationConsumer
+     */
+    public Path posterPath(Media media) {
+        return Paths.get(localStoragePath, "users", media.getArtifactUserId().toString(), "videos", "thumbnails",
+                media.getArtifactMediaId() + ".jpg");
+    }
+
+    /**
+     * Poster time: five seconds in, or earlier for short clips
+     */
+    public double posterSeconds(int durationSeconds) {
+        return durationSeconds > 0 ? Math.min(POSTER_SECONDS, durationSeconds * 0.1) : 0;
+    }
+
+    /**
+     * ffmpeg command encoding the whole ladder into outputDirectory.
+     * A non-null tsOffsetSeconds shifts the output timestamps so a chunk continues the timeline of the source.
+     * Event playlists grow while encoding and come without a master playlist, see {@link #masterWhenPlayable}.
+     */
+    public String[] hlsLadderCommand(String input, String outputDirectory,
+            List<VideoLadderPlanner.Rendition> renditions, List<VideoLadderPlanner.AudioTrack> audioTracks,
+            Double tsOffsetSeconds, boolean event, TranscodedVideo.Container container) {
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-i", input));
+        command.addAll(hlsOutput(outputDirectory, renditions, audioTracks, null, tsOffsetSeconds, event,
+                container));
+        return command.toArray(String[]::new);
+    }
+
+    /**
+     * Output options encoding only the audio renditions of a ladder into outputDirectory, to be appended to
+     * another ffmpeg command that reads the source. Empty for silent sources.
+     */
+    public List<String> audioOutput(String outputDirectory, List<VideoLadderPlanner.AudioTrack> audioTracks) {
+        if (audioTracks.isEmpty()) {
+            return List.of();
+        }
+        return hlsOutput(outputDirectory, List.of(), audioTracks, null, null, false, TranscodedVideo.Container.TS);
+    }
+
+    /**
+     * ffmpeg command encoding the rest of an interrupted transcode, from resumeSeconds on, into the resume
+     * folder of outputDirectory. Timestamps continue the segments that were already written.
+     */
+    public String[] resumeCommand(String input, Path outputDirectory, List<VideoLadderPlanner.Rendition> renditions,
+            List<VideoLadderPlanner.AudioTrack> audioTracks, double resumeSeconds) {
+        String seek = String.format(Locale.ROOT, "%.6f", resumeSeconds);
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-ss", seek, "-i", input));
+        command.addAll(hlsOutput(outputDirectory.resolve(RESUME_DIRECTORY).toString(), renditions, audioTracks,
+                null, resumeSeconds, false, TranscodedVideo.Container.TS));
+        return command.toArray(String[]::new);
+    }
+
+    /**
+     * Where an interrupted transcode in outputDirectory can resume: the end of the last segment every playlist
+     * has fully written (ffmpeg only lists finished segments). 0 means start over, which is also the answer
+     * for fMP4, whose single file per rendition cannot be cut back to a segment boundary.
+     */
+    public double resumePoint(Path outputDirectory, List<String> playlists, TranscodedVideo.Container container)
+            throws IOException {
+        if (container == TranscodedVideo.Container.FMP4) {
+            return 0;
+        }
+        double common = Double.MAX_VALUE;
+        for (String playlist : playlists) {
+            Path path = outputDirectory.resolve(playlist + ".m3u8");
+            if (!hlsPlaylistService.hasSegments(path)) {
+                return 0;
+            }
+            common = Math.min(common, end(hlsPlaylistService.parse(path)));
+        }
+        double resume = common;
+        for (String playlist : playlists) {
+            List<HlsPlaylistService.Segment> segments = hlsPlaylistService.parse(
+                    outputDirectory.resolve(playlist + ".m3u8"));
+            resume = Math.min(resume, end(kept(segments, common)));
+        }
+        return resume < HLS_SEGMENT_SECONDS ? 0 : resume;
+    }
+
+    /**
+     * Append the segments of a finished resume encode to the segments kept from the interrupted one and write
+     * complete VOD playlists
+     */
+    public void appendResumed(Path outputDirectory, List<String> playlists, double resumeSeconds)
+            throws IOException {
+        Path resumeDirectory = outputDirectory.resolve(RESUME_DIRECTORY);
+        for (String playlist : playlists) {
+            Path path = outputDirectory.resolve(playlist + ".m3u8");
+            List<HlsPlaylistService.Segment> segments = new ArrayList<>(kept(hlsPlaylistService.parse(path),
+                    resumeSeconds));
+            for (HlsPlaylistService.Segment segment : hlsPlaylistService.parse(
+                    resumeDirectory.resolve(playlist + ".m3u8"))) {
+                String name = String.format("%s_%03d.ts", playlist, segments.size());
+                Files.move(resumeDirectory.resolve(segment.getUri()), outputDirectory.resolve(name),
+                        StandardCopyOption.REPLACE_EXISTING);
+                segments.add(new HlsPlaylistService.Segment(segments.size(), name, segment.getDurationSeconds()));
+            }
+            hlsPlaylistService.writeVodPlaylist(path, segments);
+        }
+        FileUtils.deleteDirectory(resumeDirectory.toFile());
+    }
+
+    private static List<HlsPlaylistService.Segment> kept(List<HlsPlaylistService.Segment> segments,
+            double cutSeconds) {
+        List<HlsPlaylistService.Segment> kept = new ArrayList<>();
+        double end = 0;
+        for (HlsPlaylistService.Segment segment : segments) {
+            end += segment.getDurationSeconds();
+            if (end > cutSeconds + RESUME_TOLERANCE_SECONDS) {
+                break;
+            }
+            kept.add(segment);
+        }
+        return kept;
+    }
+
+    private static double end(List<HlsPlaylistService.Segment> segments) {
+        return segments.stream().mapToDouble(HlsPlaylistService.Segment::getDurationSeconds).sum();
+    }
+
+    /**
+     * Tile height of the seek preview, following the orientation of the planned renditions
+     */
+    public int previewTileHeight(List<VideoLadderPlanner.Rendition> renditions) {
+        VideoLadderPlanner.Rendition rendition = renditions.get(0);
+        return seekPreviewService.tileHeight(rendition.getWidth(), rendition.getHeight());
+    }
+
+    /**
+     * ffmpeg command that decodes the source once: a split filter feeds every rendition of the ladder,
+     * the poster frame and the seek preview sprite sheets, so nothing is decoded twice.
+     */
+    public String[] fusedCommand(String input, String outputDirectory, List<VideoLadderPlanner.Rendition> renditions,
+            List<VideoLadderPlanner.AudioTrack> audioTracks, double posterSeconds, Path poster, Path previewDirectory, boolean event,
+            TranscodedVideo.Container container) {
+        StringBuilder graph = new StringBuilder("[0:v:0]split=").append(renditions.size() + 2);
+        for (int i = 0; i < renditions.size(); i++) {
+            graph.append("[s").append(i).append(']');
+        }
+        graph.append("[sp][st]");
+        List<String> videoLabels = new ArrayList<>();
+        for (int i = 0; i < renditions.size(); i++) {
+            VideoLadderPlanner.Rendition rendition = renditions.get(i);
+            graph.append(String.format(Locale.ROOT, ";[s%d]scale=%d:%d,fps=%.3f[v%d]", i, rendition.getWidth(),
+                    rendition.getHeight(), rendition.getFrameRate(), i));
+            videoLabels.add("[v" + i + "]");
+        }
+        graph.append(String.format(Locale.ROOT, ";[sp]select='gte(t,%.3f)'[poster]", posterSeconds));
+        graph.append(";[st]").append(seekPreviewService.filter(previewTileHeight(renditions))).append("[preview]");
+
+        List<String> command = new ArrayList<>(List.of("ffmpeg", "-i", input, "-filter_complex", graph.toString()));
+        command.addAll(hlsOutput(outputDirectory, renditions, audioTracks, videoLabels, null, event, container));
+        command.addAll(List.of("-map", "[poster]", "-frames:v", "1", "-q:v", "2", poster.toString()));
+        command.addAll(seekPreviewService.spriteOutput("[preview]", previewDirectory));
+        return command.toArray(String[]::new);
+    }
+
+    /**
+     * Output options of the HLS ladder: video-only variants plus one audio rendition per source track, written
+     * as separate playlists (the master playlist is ours, see {@link #writeMasterPlaylist}). Without filter
+     * labels the encoder scales each rendition itself.
+     */
+    private List<String> hlsOutput(String outputDirectory, List<VideoLadderPlanner.Rendition> renditions,
+            List<VideoLadderPlanner.AudioTrack> audioTracks, List<String> videoLabels, Double tsOffsetSeconds,
+            boolean event, TranscodedVideo.Container container) {
+        List<String> output = new ArrayList<>();
+        if (!renditions.isEmpty()) {
+            // High profile 4:2:0 so the CODECS attribute of the master playlist is known before encoding
+            output.addAll(List.of("-preset", "veryfast", "-sc_threshold", "0", "-pix_fmt", "yuv420p"));
+        }
+
+        StringBuilder streamMap = new StringBuilder();
+        for (int i = 0; i < renditions.size(); i++) {
+            VideoLadderPlanner.Rendition rendition = renditions.get(i);
+            int bitrate = rendition.getBitrateKbps();
+            output.addAll(List.of("-map", videoLabels != null ? videoLabels.get(i) : "0:v:0",
+                    "-c:v:" + i, "libx264",
+                    "-profile:v:" + i, "high",
+                    "-level:v:" + i, String.format(Locale.ROOT, "%.1f", rendition.getH264Level() / 10.0),
+                    // Per-title rungs are constant quality, capped like the average bitrate ones
+                    rendition.getCrf() > 0 ? "-crf:v:" + i : "-b:v:" + i,
+                    rendition.getCrf() > 0 ? String.valueOf(rendition.getCrf()) : bitrate + "k",
+                    "-maxrate:v:" + i, Math.round(bitrate * 1.1) + "k",
+                    "-bufsize:v:" + i, bitrate * 2 + "k",
+                    // Two second GOPs whatever the frame rate, so segments cut cleanly
+                    "-g:v:" + i, String.valueOf(Math.max(1, Math.round(rendition.getFrameRate() * 2)))));
+            if (videoLabels == null) {
+                output.addAll(List.of("-s:v:" + i, rendition.getResolution(),
+                        "-r:v:" + i, String.format(Locale.ROOT, "%.3f", rendition.getFrameRate())));
+            }
+            streamMap.append(i == 0 ? "" : " ").append("v:").append(i);
+        }
+
+        // Silent sources simply have no audio rendition
+        for (int i = 0; i < audioTracks.size(); i++) {
+            VideoLadderPlanner.AudioTrack track = audioTracks.get(i);
+            output.addAll(List.of("-map", "0:a:" + track.getIndex(),
+                    "-c:a:" + i, "aac", "-b:a:" + i, track.getBitrateKbps() + "k", "-ac:a:" + i, "2"));
+            streamMap.append(streamMap.isEmpty() ? "" : " ").append("a:").append(i).append(",name:")
+                    .append(track.getName());
+        }
+
+        if (tsOffsetSeconds != null) {
+            output.addAll(List.of("-output_ts_offset", String.format(Locale.ROOT, "%.6f", tsOffsetSeconds)));
+        }
+
+        output.addAll(List.of("-f", "hls", "-hls_time", String.valueOf(HLS_SEGMENT_SECONDS)));
+        List<String> flags = new ArrayList<>();
+        if (container == TranscodedVideo.Container.FMP4) {
+            // One CMAF file per rendition holding the init section and every fragment, addressed by byte ranges
+            output.addAll(List.of("-hls_segment_type", "fmp4",
+                    "-hls_segment_filename", outputDirectory + "/stream_%v.mp4"));
+            flags.add("single_file");
+        } else {
+            output.addAll(List.of("-hls_segment_filename", outputDirectory + "/stream_%v_%03d.ts"));
+        }
+        if (event) {
+            // Playlists are rewritten after every segment; temp_file keeps readers from seeing partial files
+            output.addAll(List.of("-hls_playlist_type", "event"));
+            flags.addAll(List.of("temp_file", "independent_segments"));
+        } else {
+            output.addAll(List.of("-hls_playlist_type", "vod"));
+        }
+        if (!flags.isEmpty()) {
+            output.addAll(List.of("-hls_flags", String.join("+", flags)));
+        }
+        output.addAll(List.of(
+                "-var_stream_map", streamMap.toString(),
+                outputDirectory + "/stream_%v.m3u8"));
+        return output;
+    }
+
+    /**
+     * Master playlist with CODECS, the shared audio group and the video-only variants of a ladder
+     */
+    public void writeMasterPlaylist(Path hlsDirectory, List<VideoLadderPlanner.Rendition> renditions,
+            List<VideoLadderPlanner.AudioTrack> audioTracks) throws IOException {
+        hlsPlaylistService.writeMasterPlaylist(hlsDirectory.resolve("master.m3u8"), renditions, audioTracks);
+    }
+
+    /**
+     * Progress listener of an early playback encode: writes the master playlist into hlsDirectory once every
+     * rendition and audio track has a segment, so players never see a variant without media.
+     */
+    public ProcessRunner.ProgressListener masterWhenPlayable(Path hlsDirectory,
+            List<VideoLadderPlanner.Rendition> renditions, List<VideoLadderPlanner.AudioTrack> audioTracks) {
+        AtomicBoolean written = new AtomicBoolean();
+        List<String> playlists = playlistNames(renditions, audioTracks);
+        return (outTimeSeconds, speed) -> {
+            if (written.get()) {
+                return;
+            }
+            for (String playlist : playlists) {
+                if (!hlsPlaylistService.hasSegments(hlsDirectory.resolve(playlist + ".m3u8"))) {
+                    return;
+                }
+            }
+            try {
+                writeMasterPlaylist(hlsDirectory, renditions, audioTracks);
+                written.set(true);
+                logger.info("Video {} is playable while transcoding", hlsDirectory.getFileName());
+            } catch (IOException e) {
+                logger.warn("Failed to write master playlist in {}: {}", hlsDirectory, e.getMessage());
+            }
+        };
+    }
+
+    /**
+     * Promote the event playlists of a finished early playback encode to VOD playlists and make sure the
+     * master playlist exists, even for clips that finished before the first progress report
+     */
+    public void finalizeEventPlaylists(Media media, List<VideoLadderPlanner.Rendition> renditions,
+            List<VideoLadderPlanner.AudioTrack> audioTracks) throws IOException {
+        Path hlsDirectory = hlsDirectory(media);
+        for (String name : playlistNames(renditions, audioTracks)) {
+            Path playlist = hlsDirectory.resolve(name + ".m3u8");
+            hlsPlaylistService.writeVodPlaylist(playlist, hlsPlaylistService.initSection(playlist),
+                    hlsPlaylistService.parse(playlist));
+        }
+        writeMasterPlaylist(hlsDirectory, renditions, audioTracks);
+    }
+
+    /**
+     * Make the staged outputs of a whole-file transcode visible in one step: the poster and seek preview
+     * are moved out, then the staging folder replaces the HLS folder with a single rename.
+     */
+    public void publishStaged(Media media, Path staging) throws IOException {
+        publishSidecars(media, staging);
+
+        Path hlsDirectory = hlsDirectory(media);
+        if (Files.exists(hlsDirectory)) {
+            FileUtils.deleteDirectory(hlsDirectory.toFile());
+        }
+        Files.move(staging, hlsDirectory, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Move the staged poster and seek preview to their published locations; early playback encodes
+     * only stage these, their HLS output is already in place
+     */
+    public void publishSidecars(Media media, Path staging) throws IOException {
+        Path stagedPreview = staging.resolve(STAGED_PREVIEW);
+        if (Files.isDirectory(stagedPreview)) {
+            seekPreviewService.publish(media, stagedPreview);
+        }
+
+        Path stagedPoster = staging.resolve(STAGED_POSTER);
+        if (Files.exists(stagedPoster)) {
+            Path poster = posterPath(media);
+            Files.createDirectories(poster.getParent());
+            Files.move(stagedPoster, poster, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Record the renditions, audio tracks and segments found in the final HLS folder of a video,
+     * in one transaction. Rows an interrupted attempt already saved are replaced.
+     */
+    @Transactional
+    public void saveRenditions(Media media, List<VideoLadderPlanner.Rendition> renditions,
+            List<VideoLadderPlanner.AudioTrack> audioTracks, TranscodedVideo.Container container) throws IOException {
+        videoSegmentRepository.deleteByMediaId(media.getId());
+        transcodedVideoRepository.deleteByMediaId(media.getId());
+        List<TranscodedVideo> transcodedVideos = new ArrayList<>();
+        List<VideoSegment> segments = new ArrayList<>();
+        for (int i = 0; i < renditions.size(); i++) {
+            VideoLadderPlanner.Rendition rendition = renditions.get(i);
+            addRendition(media, "stream_" + i, rendition.getResolution(), rendition.getName(),
+                    rendition.getBitrateKbps(), rendition.getCodecs(), container, transcodedVideos, segments);
+        }
+        for (VideoLadderPlanner.AudioTrack track : audioTracks) {
+            addRendition(media, "stream_" + track.getName(), track.getName(), track.getName(),
+                    track.getBitrateKbps(), VideoLadderPlanner.AudioTrack.CODECS, container, transcodedVideos,
+                    segments);
+        }
+
+        // One JDBC batch per table, ids are generated in memory
+        transcodedVideoRepository.saveAll(transcodedVideos);
+        videoSegmentRepository.saveAll(segments);
+        logger.info("Saved {} renditions and {} segments for media {}", transcodedVideos.size(), segments.size(),
+                media.getId());
+    }
+
+    private void addRendition(Media media, String playlist, String resolution, String name, int bitrateKbps,
+            String codec, TranscodedVideo.Container container, List<TranscodedVideo> transcodedVideos,
+            List<VideoSegment> segments) throws IOException {
+        String relativeHlsDirectory = relativeHlsDirectory(media);
+        Path hlsDirectory = hlsDirectory(media);
+
+        TranscodedVideo transcodedVideo = new TranscodedVideo();
+        transcodedVideo.setMedia(media);
+        transcodedVideo.setResolution(resolution);
+        transcodedVideo.setCodec(codec);
+        transcodedVideo.setFilePath(Paths.get(relativeHlsDirectory, playlist + ".m3u8").toString());
+        transcodedVideo.setContainer(container);
+        transcodedVideos.add(transcodedVideo);
+
+        long renditionBytes = 0;
+        double renditionSeconds = 0;
+        Set<String> files = new HashSet<>();
+        for (HlsPlaylistService.Segment parsed : hlsPlaylistService.parse(hlsDirectory.resolve(playlist + ".m3u8"))) {
+            if (files.add(parsed.getUri())) {
+                renditionBytes += Files.size(hlsDirectory.resolve(parsed.getUri()));
+            }
+            VideoSegment segment = new VideoSegment();
+            segment.setMedia(media);
+            segment.setSegmentIndex(parsed.getIndex());
+            segment.setResolution(name);
+            segment.setSegmentPath(Paths.get(relativeHlsDirectory, parsed.getUri()).toString());
+            segment.setDurationSeconds(parsed.getDurationSeconds());
+            segment.setByteOffset(parsed.getByteOffset());
+            segment.setByteLength(parsed.getByteLength());
+            segments.add(segment);
+            renditionSeconds += parsed.getDurationSeconds();
+        }
+        // What the rendition really averages; a per-title encode lands anywhere below its maxrate
+        transcodedVideo.setBitrate(renditionSeconds > 0
+                ? (int) Math.round(renditionBytes * 8 / renditionSeconds) : bitrateKbps * 1000);
+        mediaMetrics.recordOutput(Media.FileType.VIDEO, name, renditionBytes);
+    }
+}
@@ -0,0 +1,83 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import jakarta.annotation.PostConstruct;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Node level slots for CPU and heap heavy work. Listener threads are virtual, so they simply
+ * block here until a slot of the resource they need is free instead of oversubscribing the machine.
+ */
+@Service
+public class WorkerSlots {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkerSlots.class);
+
+    public enum Resource {
+        FFMPEG, CWEBP, PDF_RENDER
+    }
+
+    @Value("${media.workers.ffmpeg-slots:0}") // 0 = one encode per 4 cores, ffmpeg is multi threaded itself
+    private int ffmpegSlots;
+
+    @Value("${media.workers.cwebp-slots:0}") // 0 = one per core
+    private int cwebpSlots;
+
+    @Value("${media.workers.pdf-render-budget-bytes:0}") // 0 = an eighth of the max heap
+    private long pdfRenderBudgetBytes;
+
+    @Value("${media.workers.pdf-render-estimate-bytes:67108864}") // Default 64MB per page render
+    private long pdfRenderEstimateBytes;
+
+    @Value("${media.workers.slot-wait:15m}")
+    private Duration maxWait;
+
+    private final Map<Resource, Semaphore> slots = new EnumMap<>(Resource.class);
+
+    public class Slot implements AutoCloseable {
+        private final Resource resource;
+
+        private Slot(Resource resource) {
+            this.resource = resource;
+        }
+
+        @Override
+        public void close() {
+            slots.get(resource).release();
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        long pdfBudget = pdfRenderBudgetBytes > 0 ? pdfRenderBudgetBytes : Runtime.getRuntime().maxMemory() / 8;
+
+        register(Resource.FFMPEG, ffmpegSlots > 0 ? ffmpegSlots : Math.max(1, cores / 4));
+        register(Resource.CWEBP, cwebpSlots > 0 ? cwebpSlots : cores);
+        register(Resource.PDF_RENDER, (int) Math.max(1, pdfBudget / pdfRenderEstimateBytes));
+    }
+
+    private void register(Resource resource, int size) {
+        slots.put(resource, new Semaphore(size, true));
+        logger.info("Worker slots for {}: {}", resource, size);
+    }
+
+    /**
+     * Block until a slot of the resource is free
+     */
+    public Slot acquire(Resource resource) throws InterruptedException {
+        if (!slots.get(resource).tryAcquire(maxWait.toMillis(), TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Timed out waiting for a " + resource + " slot");
+        }
+        return new Slot(resource);
+    }
+}
@@ -17,6 +17,7 @@ const forward = document.querySelector(".forward");
 const backward = document.querySelector(".backward");
 const hoverTime = document.querySelector(".hover-time");
 const hoverDuration = document.querySelector(".hover-duration");
+const hoverPreview = document.querySelector(".hover-preview");
 // const miniPlayer = document.querySelector(".mini-player");
 const settingsBtn = document.querySelector(".setting-btn");
 const settingMenu = document.querySelector(".setting-menu");
@@ -38,7 +39,8 @@ let isPlaying = false,
   mouseOverDuration = false,
   touchClientX = 0,
   touchPastDurationWidth = 0,
-  touchStartTime = 0;
+  touchStartTime = 0,
+  thumbnailCues = [];
 
 currentVol.style.width = volumeVal * 100 + "%";
 
@@ -87,6 +89,7 @@ duration.addEventListener("mouseleave", (e) => {
   mouseOverDuration = false;
   hoverTime.style.width = 0;
   hoverDuration.innerHTML = "";
+  hoverPreview.classList.remove("has-preview");
 });
 
 videoContainer.addEventListener("click", toggleMainState);
@@ -182,6 +185,64 @@ document.addEventListener("click", function (event) {
   }
 });
 
+document.addEventListener("DOMContentLoaded", loadThumbnailTrack);
+
+// Seek preview: one WebVTT track maps time ranges to tiles of a few sprite sheets
+function loadThumbnailTrack() {
+  const trackUrl = document
+    .getElementById("thumbnailTrack")
+    .getAttribute("data-url");
+  if (!trackUrl) return;
+
+  fetch(trackUrl)
+    .then((response) => (response.ok ? response.text() : ""))
+    .then((text) => {
+      thumbnailCues = parseThumbnailTrack(text, trackUrl);
+      // Warm the cache so hovering never waits for a sprite
+      new Set(thumbnailCues.map((cue) => cue.url)).forEach((url) => {
+        new Image().src = url;
+      });
+    })
+    .catch((e) => console.error("Error loading thumbnail track:", e));
+}
+
+function parseThumbnailTrack(text, trackUrl) {
+  const cues = [];
+  const blocks = text.replace(/\r/g, "").split("\n\n");
+  blocks.forEach((block) => {
+    const lines = block.trim().split("\n");
+    const timing = lines.findIndex((line) => line.includes("-->"));
+    if (timing < 0 || !lines[timing + 1]) return;
+    const [start, end] = lines[timing].split("-->").map(parseVttTime);
+    const [file, hash] = lines[timing + 1].trim().split("#xywh=");
+    if (!hash) return;
+    const [x, y, w, h] = hash.split(",").map(Number);
+    cues.push({ start, end, url: new URL(file, trackUrl).href, x, y, w, h });
+  });
+  return cues;
+}
+
+function parseVttTime(value) {
+  return value
+    .trim()
+    .split(":")
+    .reduce((total, part) => total * 60 + parseFloat(part), 0);
+}
+
+function showThumbnail(time) {
+  const cue = thumbnailCues.find((c) => time >= c.start && time < c.end);
+  if (!cue) {
+    hoverPreview.classList.remove("has-preview");
+    return;
+  }
+  hoverPreview.style.width = cue.w + "px";
+  hoverPreview.style.height = cue.h + "px";
+  hoverPreview.style.right = -cue.w / 2 + "px";
+  hoverPreview.style.backgroundImage = `url("${cue.url}")`;
+  hoverPreview.style.backgroundPosition = `-${cue.x}px -${cue.y}px`;
+  hoverPreview.classList.add("has-preview");
+}
+
 document.addEventListener("DOMContentLoaded", function () {
   const videoElement = document.querySelector("#videoElement");
   const subtitleDataElement = document.getElementById("subtitleData");
@@ -450,6 +511,9 @@ function handleMousemove(e) {
     const percent = (width / rect.width) * 100;
     hoverTime.style.width = width + "px";
     hoverDuration.innerHTML = showDuration((video.duration / 100) * percent);
+    if (thumbnailCues.length > 0) {
+      showThumbnail((video.duration / 100) * percent);
+    }
   }
 }
 
@@ -0,0 +1,47 @@
+package com.astromediavault.AstroMediaVault.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+class EntityCacheRegionFactoryTest {
+
+	@Test
+	void leastRecentlyUsedEntryIsDroppedWhenFull() {
+		EntityCacheRegionFactory.BoundedStorage storage = new EntityCacheRegionFactory.BoundedStorage(2, 0);
+		storage.putIntoCache("a", 1, null);
+		storage.putIntoCache("b", 2, null);
+		storage.getFromCache("a", null);
+		storage.putIntoCache("c", 3, null);
+
+		assertEquals(1, storage.getFromCache("a", null));
+		assertNull(storage.getFromCache("b", null));
+		assertEquals(3, storage.getFromCache("c", null));
+		assertEquals(2, storage.size());
+	}
+
+	@Test
+	void expiredEntryIsAMiss() throws InterruptedException {
+		EntityCacheRegionFactory.BoundedStorage storage = new EntityCacheRegionFactory.BoundedStorage(10, 1);
+		storage.putIntoCache("a", 1, null);
+		Thread.sleep(5);
+
+		assertFalse(storage.contains("a"));
+		assertEquals(0, storage.size());
+	}
+
+	@Test
+	void evictionRemovesEntries() {
+		EntityCacheRegionFactory.BoundedStorage storage = new EntityCacheRegionFactory.BoundedStorage(10, 60_000);
+		storage.putIntoCache("a", 1, null);
+		storage.putIntoCache("b", 2, null);
+		storage.evictData("a");
+
+		assertNull(storage.getFromCache("a", null));
+		assertEquals(2, storage.getFromCache("b", null));
+		storage.evictData();
+		assertEquals(0, storage.size());
+	}
+}
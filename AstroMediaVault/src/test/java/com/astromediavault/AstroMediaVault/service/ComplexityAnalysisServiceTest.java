@@ -0,0 +1,40 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.astromediavault.AstroMediaVault.config.VideoLadderProperties;
+
+class ComplexityAnalysisServiceTest {
+
+	private final ComplexityAnalysisService service = service();
+
+	private static ComplexityAnalysisService service() {
+		ComplexityAnalysisService service = new ComplexityAnalysisService(null, new VideoLadderProperties());
+		ReflectionTestUtils.setField(service, "windows", 4);
+		ReflectionTestUtils.setField(service, "windowSeconds", 4);
+		ReflectionTestUtils.setField(service, "referenceKbps", 800.0);
+		ReflectionTestUtils.setField(service, "minFactor", 0.5);
+		ReflectionTestUtils.setField(service, "maxFactor", 1.5);
+		return service;
+	}
+
+	@Test
+	void complexityIsTheProbeBitrateRelativeToTheReference() {
+		assertEquals(1.0, service.complexity(800), 0.001);
+		assertEquals(0.75, service.complexity(600), 0.001);
+		assertEquals(0.5, service.complexity(120), 0.001);
+		assertEquals(1.5, service.complexity(5000), 0.001);
+	}
+
+	@Test
+	void windowsAreCentredInEqualParts() {
+		assertEquals(List.of(10.0, 35.0, 60.0, 85.0), service.windowStarts(100));
+		assertEquals(List.of(0.0), service.windowStarts(12));
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class FileDeliveryServiceTest {
+
+	private final FileDeliveryService fileDeliveryService = new FileDeliveryService();
+
+	private ResponseEntity<Resource> deliver(MockHttpServletRequest request, Path file) throws IOException {
+		return fileDeliveryService.deliver(request, file, MediaType.APPLICATION_OCTET_STREAM,
+				ContentDisposition.attachment().filename("file.bin").build(), null);
+	}
+
+	@Test
+	void singleRangeIsSentByTomcat(@TempDir Path directory) throws IOException {
+		Path file = Files.write(directory.resolve("file.bin"), new byte[1000]);
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+		request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+		request.addHeader(HttpHeaders.RANGE, "bytes=100-199");
+		ReflectionTestUtils.setField(fileDeliveryService, "sendfileMinBytes", 0L);
+
+		ResponseEntity<Resource> response = deliver(request, file);
+
+		assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+		assertEquals("bytes 100-199/1000", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+		assertEquals(100, response.getHeaders().getContentLength());
+		assertNull(response.getBody());
+		assertEquals(100L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+		assertEquals(200L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+	}
+
+	@Test
+	void matchingEtagIsNotModified(@TempDir Path directory) throws IOException {
+		Path file = Files.write(directory.resolve("file.bin"), new byte[10]);
+		String etag = deliver(new MockHttpServletRequest("GET", "/download"), file).getHeaders().getETag();
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+		assertEquals(HttpStatus.NOT_MODIFIED, deliver(request, file).getStatusCode());
+	}
+
+	@Test
+	void staleIfRangeGetsTheWholeFile(@TempDir Path directory) throws IOException {
+		Path file = Files.write(directory.resolve("file.bin"), new byte[1000]);
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+		request.addHeader(HttpHeaders.RANGE, "bytes=100-199");
+		request.addHeader(HttpHeaders.IF_RANGE, "\"stale\"");
+
+		ResponseEntity<Resource> response = deliver(request, file);
+
+		assertEquals(HttpStatus.OK, response.getStatusCode());
+		assertEquals(1000, response.getHeaders().getContentLength());
+		assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+	}
+
+	@Test
+	void unsatisfiableRange(@TempDir Path directory) throws IOException {
+		Path file = Files.write(directory.resolve("file.bin"), new byte[10]);
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/download");
+		request.addHeader(HttpHeaders.RANGE, "bytes=50-60");
+
+		ResponseEntity<Resource> response = deliver(request, file);
+
+		assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, response.getStatusCode());
+		assertEquals("bytes */10", response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+	}
+
+}
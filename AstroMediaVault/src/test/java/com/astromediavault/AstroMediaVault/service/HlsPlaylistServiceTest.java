@@ -0,0 +1,153 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HlsPlaylistServiceTest {
+
+	private final HlsPlaylistService hlsPlaylistService = new HlsPlaylistService();
+
+	@Test
+	void parsesSegmentsAndDurations() throws IOException {
+		String playlist = """
+				#EXTM3U
+				#EXT-X-VERSION:3
+				#EXT-X-TARGETDURATION:7
+				#EXT-X-MEDIA-SEQUENCE:0
+				#EXT-X-PLAYLIST-TYPE:VOD
+				#EXTINF:6.006000,
+				stream_0_000.ts
+				#EXTINF:6.006000,
+				stream_0_001.ts
+				#EXTINF:2.502500,
+				stream_0_002.ts
+				#EXT-X-ENDLIST
+				""";
+
+		List<HlsPlaylistService.Segment> segments = hlsPlaylistService.parse(playlist);
+
+		assertEquals(3, segments.size());
+		assertEquals("stream_0_002.ts", segments.get(2).getUri());
+		assertEquals(2, segments.get(2).getIndex());
+		assertEquals(6.006f, segments.get(0).getDurationSeconds(), 0.0001f);
+		assertEquals(2.5025f, segments.get(2).getDurationSeconds(), 0.0001f);
+	}
+
+	@Test
+	void writtenPlaylistParsesBack(@TempDir Path directory) throws IOException {
+		Path target = directory.resolve("stream_0.m3u8");
+		hlsPlaylistService.writeVodPlaylist(target, List.of(
+				new HlsPlaylistService.Segment(0, "stream_0_000.ts", 6.006f),
+				new HlsPlaylistService.Segment(1, "stream_0_001.ts", 4.2f)));
+
+		String written = Files.readString(target);
+		assertTrue(written.contains("#EXT-X-TARGETDURATION:7"));
+		assertTrue(written.endsWith("#EXT-X-ENDLIST\n"));
+
+		List<HlsPlaylistService.Segment> segments = hlsPlaylistService.parse(target);
+		assertEquals(2, segments.size());
+		assertEquals("stream_0_001.ts", segments.get(1).getUri());
+		assertEquals(4.2f, segments.get(1).getDurationSeconds(), 0.0001f);
+	}
+
+	@Test
+	void parsesByteRangesOfSingleFileRendition(@TempDir Path directory) throws IOException {
+		Path playlist = directory.resolve("stream_0.m3u8");
+		Files.writeString(playlist, """
+				#EXTM3U
+				#EXT-X-VERSION:7
+				#EXT-X-TARGETDURATION:6
+				#EXT-X-MEDIA-SEQUENCE:0
+				#EXT-X-PLAYLIST-TYPE:EVENT
+				#EXT-X-MAP:URI="stream_0.mp4",BYTERANGE="812@0"
+				#EXTINF:6.000000,
+				#EXT-X-BYTERANGE:120000@812
+				stream_0.mp4
+				#EXTINF:4.500000,
+				#EXT-X-BYTERANGE:90000
+				stream_0.mp4
+				""");
+
+		List<HlsPlaylistService.Segment> segments = hlsPlaylistService.parse(playlist);
+		assertEquals(2, segments.size());
+		assertEquals(812L, segments.get(0).getByteOffset());
+		assertEquals(120812L, segments.get(1).getByteOffset());
+		assertEquals(90000L, segments.get(1).getByteLength());
+
+		String initSection = hlsPlaylistService.initSection(playlist);
+		assertEquals("URI=\"stream_0.mp4\",BYTERANGE=\"812@0\"", initSection);
+
+		hlsPlaylistService.writeVodPlaylist(playlist, initSection, segments);
+		String written = Files.readString(playlist);
+		assertTrue(written.contains("#EXT-X-VERSION:7\n"));
+		assertTrue(written.contains("#EXT-X-MAP:URI=\"stream_0.mp4\",BYTERANGE=\"812@0\"\n"));
+		assertTrue(written.contains("#EXT-X-BYTERANGE:90000@120812\n"));
+		assertEquals(120812L, hlsPlaylistService.parse(playlist).get(1).getByteOffset());
+	}
+
+	@Test
+	void eventPlaylistIsPlayableOnceItHasASegment(@TempDir Path directory) throws IOException {
+		Path playlist = directory.resolve("stream_0.m3u8");
+		assertFalse(hlsPlaylistService.hasSegments(playlist));
+
+		Files.writeString(playlist, "#EXTM3U\n#EXT-X-PLAYLIST-TYPE:EVENT\n");
+		assertFalse(hlsPlaylistService.hasSegments(playlist));
+
+		Files.writeString(playlist, "#EXTM3U\n#EXT-X-PLAYLIST-TYPE:EVENT\n#EXTINF:6.000000,\nstream_0_000.ts\n");
+		assertTrue(hlsPlaylistService.hasSegments(playlist));
+	}
+
+	@Test
+	void writesMasterPlaylistWithSharedAudioGroup(@TempDir Path directory) throws IOException {
+		Path master = directory.resolve("master.m3u8");
+		hlsPlaylistService.writeMasterPlaylist(master, List.of(
+				new VideoLadderPlanner.Rendition("360p", 640, 360, 800, 30),
+				new VideoLadderPlanner.Rendition("720p", 1280, 720, 1400, 29.97)),
+				List.of(new VideoLadderPlanner.AudioTrack(0, "eng", 128),
+						new VideoLadderPlanner.AudioTrack(1, "und", 128)));
+
+		assertEquals("""
+				#EXTM3U
+				#EXT-X-VERSION:3
+				#EXT-X-INDEPENDENT-SEGMENTS
+				#EXT-X-MEDIA:TYPE=AUDIO,GROUP-ID="audio",LANGUAGE="eng",NAME="eng 1",DEFAULT=YES,AUTOSELECT=YES,\
+				CHANNELS="2",URI="stream_audio_0.m3u8"
+				#EXT-X-MEDIA:TYPE=AUDIO,GROUP-ID="audio",NAME="Audio 2",DEFAULT=NO,AUTOSELECT=YES,CHANNELS="2",\
+				URI="stream_audio_1.m3u8"
+				#EXT-X-STREAM-INF:BANDWIDTH=1008000,CODECS="avc1.64001e,mp4a.40.2",RESOLUTION=640x360,\
+				FRAME-RATE=30.000,AUDIO="audio"
+				stream_0.m3u8
+				#EXT-X-STREAM-INF:BANDWIDTH=1668000,CODECS="avc1.64001f,mp4a.40.2",RESOLUTION=1280x720,\
+				FRAME-RATE=29.970,AUDIO="audio"
+				stream_1.m3u8
+				""", Files.readString(master));
+	}
+
+	@Test
+	void silentSourceHasVideoOnlyVariants(@TempDir Path directory) throws IOException {
+		Path master = directory.resolve("master.m3u8");
+		hlsPlaylistService.writeMasterPlaylist(master,
+				List.of(new VideoLadderPlanner.Rendition("1080p", 1920, 1080, 2800, 60)), List.of());
+
+		String written = Files.readString(master);
+		assertFalse(written.contains("#EXT-X-MEDIA"));
+		assertTrue(written.contains(
+				"#EXT-X-STREAM-INF:BANDWIDTH=3080000,CODECS=\"avc1.64002a\",RESOLUTION=1920x1080,FRAME-RATE=60.000\n"));
+	}
+
+	@Test
+	void rejectsSegmentWithoutDuration() {
+		assertThrows(IOException.class, () -> hlsPlaylistService.parse("#EXTM3U\nstream_0_000.ts\n"));
+	}
+
+}
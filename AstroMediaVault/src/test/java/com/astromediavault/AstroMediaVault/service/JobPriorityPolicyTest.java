@@ -0,0 +1,44 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class JobPriorityPolicyTest {
+
+	private final JobPriorityPolicy policy = new JobPriorityPolicy(null);
+
+	@BeforeEach
+	void configure() {
+		ReflectionTestUtils.setField(policy, "shortJobSeconds", 60d);
+		ReflectionTestUtils.setField(policy, "fairShareJobs", 2);
+		ReflectionTestUtils.setField(policy, "bytesPerSecond", 1048576L);
+	}
+
+	@Test
+	void shortJobsOfLightUsersGetTheTopPriority() {
+		assertEquals(JobPriorityPolicy.MAX_PRIORITY, policy.priority(10, 0));
+		assertEquals(JobPriorityPolicy.MAX_PRIORITY, policy.priority(60, 2));
+	}
+
+	@Test
+	void longerJobsLoseOneLevelPerDoubling() {
+		assertEquals(8, policy.priority(61, 0));
+		assertEquals(7, policy.priority(240, 0));
+		// Capped, a three hour film of a light user still gets scheduled
+		assertEquals(3, policy.priority(3 * 3600, 0));
+	}
+
+	@Test
+	void bulkUploadersQueueBehindOtherTenants() {
+		int bulk = policy.priority(10, 500);
+		int film = policy.priority(3 * 3600, 0);
+
+		assertEquals(1, bulk);
+		assertTrue(film > bulk);
+		assertEquals(8, policy.priority(10, 3));
+	}
+}
@@ -0,0 +1,133 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.astromediavault.AstroMediaVault.model.Media;
+import com.astromediavault.AstroMediaVault.model.MediaContent;
+import com.astromediavault.AstroMediaVault.repository.ImageMetadataRepository;
+import com.astromediavault.AstroMediaVault.repository.MediaContentRepository;
+import com.astromediavault.AstroMediaVault.repository.MediaRepository;
+import com.astromediavault.AstroMediaVault.repository.PdfMetadataRepository;
+import com.astromediavault.AstroMediaVault.repository.TranscodedVideoRepository;
+import com.astromediavault.AstroMediaVault.repository.VideoMetadataRepository;
+import com.astromediavault.AstroMediaVault.repository.VideoSegmentRepository;
+
+class MediaContentServiceTest {
+
+	private final MediaContentRepository mediaContentRepository = mock(MediaContentRepository.class);
+
+	private final MediaRepository mediaRepository = mock(MediaRepository.class);
+
+	private final VideoMetadataRepository videoMetadataRepository = mock(VideoMetadataRepository.class);
+
+	private final TranscodedVideoRepository transcodedVideoRepository = mock(TranscodedVideoRepository.class);
+
+	private final MediaLookupCache mediaLookupCache = mock(MediaLookupCache.class);
+
+	private final MediaContentService mediaContentService = new MediaContentService(mediaContentRepository,
+			mediaRepository, videoMetadataRepository, mock(ImageMetadataRepository.class),
+			mock(PdfMetadataRepository.class), transcodedVideoRepository, mock(VideoSegmentRepository.class),
+			mediaLookupCache);
+
+	/** Reference count of the content row */
+	private final AtomicInteger references = new AtomicInteger(1);
+
+	private final Media owner = media();
+
+	private final MediaContent content = new MediaContent();
+
+	@BeforeEach
+	void setUp() {
+		content.setId(UUID.randomUUID());
+		content.setContentHash("ab12");
+		content.setFileType(Media.FileType.VIDEO);
+		content.setStoragePath("users/owner/videos/original/clip.mp4");
+		content.setFileSize(2048);
+		content.setOwnerMediaId(owner.getId());
+		owner.setContent(content);
+
+		when(mediaContentRepository.adjustReferenceCount(eq(content.getId()), anyInt()))
+				.thenAnswer(invocation -> {
+					references.addAndGet(invocation.getArgument(1));
+					return 1;
+				});
+		when(mediaContentRepository.findReferenceCount(content.getId())).thenAnswer(invocation -> references.get());
+		when(mediaRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+	}
+
+	@Test
+	void attachSharesTheContentAndCountsTheReference() {
+		Media copy = media();
+
+		assertSame(copy, mediaContentService.attach(copy, content));
+
+		assertEquals(2, references.get());
+		assertSame(content, copy.getContent());
+		assertEquals(content.getStoragePath(), copy.getStoragePath());
+		assertEquals(2048, copy.getFileSize());
+		assertEquals(Media.ProcessingState.READY, copy.getProcessingState());
+	}
+
+	@Test
+	void filesAreDeletedWithTheLastReferenceOnly() {
+		Media copy = media();
+		mediaContentService.attach(copy, content);
+
+		assertFalse(mediaContentService.release(copy));
+		assertEquals(1, references.get());
+		verify(videoMetadataRepository, never()).reassign(any(), any());
+
+		assertTrue(mediaContentService.release(owner));
+		assertEquals(0, references.get());
+	}
+
+	@Test
+	void releasingTheOwnerHandsItsRowsToAnUploadStillSharing() {
+		Media copy = media();
+		mediaContentService.attach(copy, content);
+		when(mediaRepository.findIdsByContentId(content.getId())).thenReturn(List.of(owner.getId(), copy.getId()));
+		when(mediaRepository.getReferenceById(copy.getId())).thenReturn(copy);
+
+		assertFalse(mediaContentService.release(owner));
+
+		verify(videoMetadataRepository).reassign(owner.getId(), copy);
+		verify(transcodedVideoRepository).reassign(owner.getId(), copy);
+		verify(mediaContentRepository).updatePrimaryMedia(content.getId(), copy.getId());
+		verify(mediaLookupCache).invalidate(List.of(copy.getId()));
+	}
+
+	@Test
+	void contentIsOnlyShareableOnceItsOwnerIsReady() {
+		when(mediaRepository.findIdsInState(List.of(owner.getId()), Media.ProcessingState.READY))
+				.thenReturn(List.of());
+		assertFalse(mediaContentService.isShareable(content));
+
+		when(mediaRepository.findIdsInState(List.of(owner.getId()), Media.ProcessingState.READY))
+				.thenReturn(List.of(owner.getId()));
+		assertTrue(mediaContentService.isShareable(content));
+	}
+
+	private static Media media() {
+		Media media = new Media();
+		media.setId(UUID.randomUUID());
+		media.setFileType(Media.FileType.VIDEO);
+		return media;
+	}
+}
@@ -0,0 +1,119 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.astromediavault.AstroMediaVault.dto.MediaResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+class MediaLookupCacheTest {
+
+	/**
+	 * In-memory stand-in for the fanout exchange: every message reaches every node, the sender included
+	 */
+	private static class Broker extends RabbitTemplate {
+		private final List<MediaLookupCache> nodes = new ArrayList<>();
+
+		@Override
+		public void convertAndSend(String exchange, String routingKey, Object message) {
+			for (MediaLookupCache node : nodes) {
+				try {
+					node.evict(node.parse((String) message));
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+	}
+
+	private final Broker broker = new Broker();
+	private final MediaLookupCache first = node();
+	private final MediaLookupCache second = node();
+
+	private MediaLookupCache node() {
+		EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+		SessionFactory sessionFactory = mock(SessionFactory.class);
+		when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+		when(sessionFactory.getCache()).thenReturn(mock(Cache.class));
+
+		MediaLookupCache cache = new MediaLookupCache(broker, new ObjectMapper(), entityManagerFactory,
+				new MediaMetrics(new SimpleMeterRegistry()));
+		ReflectionTestUtils.setField(cache, "maxEntries", 2);
+		ReflectionTestUtils.setField(cache, "ttl", Duration.ofMinutes(5));
+		cache.init();
+		broker.nodes.add(cache);
+		return cache;
+	}
+
+	private static MediaResponse response(UUID id, String state) {
+		return MediaResponse.builder().id(id).processingState(state).build();
+	}
+
+	@Test
+	void repeatedLookupIsServedFromMemory() {
+		UUID id = UUID.randomUUID();
+		AtomicInteger loads = new AtomicInteger();
+
+		first.media(id, () -> response(id, "READY" + loads.incrementAndGet()));
+		MediaResponse cached = first.media(id, () -> response(id, "READY" + loads.incrementAndGet()));
+
+		assertEquals("READY1", cached.getProcessingState());
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void invalidationReachesEveryNode() {
+		UUID id = UUID.randomUUID();
+		first.media(id, () -> response(id, "READY"));
+		second.media(id, () -> response(id, "READY"));
+
+		first.invalidate(id);
+
+		assertEquals("PROCESSING", first.media(id, () -> response(id, "PROCESSING")).getProcessingState());
+		assertEquals("PROCESSING", second.media(id, () -> response(id, "PROCESSING")).getProcessingState());
+	}
+
+	@Test
+	void lookupLoadedAcrossAnInvalidationIsNotStored() {
+		UUID id = UUID.randomUUID();
+
+		first.media(id, () -> {
+			// Read the old row, then the change commits elsewhere before the response is stored
+			MediaResponse stale = response(id, "READY");
+			second.invalidate(id);
+			return stale;
+		});
+
+		assertEquals("PROCESSING", first.media(id, () -> response(id, "PROCESSING")).getProcessingState());
+	}
+
+	@Test
+	void leastRecentlyUsedLookupIsDroppedWhenFull() {
+		UUID a = UUID.randomUUID();
+		UUID b = UUID.randomUUID();
+		UUID c = UUID.randomUUID();
+		first.media(a, () -> response(a, "A"));
+		first.media(b, () -> response(b, "B"));
+		first.media(a, () -> response(a, "reloaded"));
+		first.media(c, () -> response(c, "C"));
+
+		assertEquals("A", first.media(a, () -> response(a, "reloaded")).getProcessingState());
+		assertEquals("reloaded", first.media(b, () -> response(b, "reloaded")).getProcessingState());
+	}
+}
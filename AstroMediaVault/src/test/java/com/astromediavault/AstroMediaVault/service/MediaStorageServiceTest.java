@@ -0,0 +1,80 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+class MediaStorageServiceTest {
+
+	private final MediaStorageService mediaStorageService = service(1024 * 1024);
+
+	private static MediaStorageService service(long maxUploadSize) {
+		MediaStorageService service = new MediaStorageService();
+		ReflectionTestUtils.setField(service, "maxUploadSize", maxUploadSize);
+		return service;
+	}
+
+	@Test
+	void writeHashesWhileStreaming(@TempDir Path directory) throws Exception {
+		// Larger than the copy buffer, so the digest is fed in several updates
+		byte[] content = new byte[600 * 1024];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) (i * 31);
+		}
+		Path target = directory.resolve("video.mp4");
+
+		MediaStorageService.StoredFile stored = mediaStorageService.write(new ByteArrayInputStream(content), target);
+
+		assertEquals(content.length, stored.getSize());
+		assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content)),
+				stored.getSha256());
+		assertEquals(stored.getSha256(), mediaStorageService.sha256(target));
+		assertArrayEquals(content, Files.readAllBytes(target));
+	}
+
+	@Test
+	void writeOverTheLimitFailsAndLeavesNoFile(@TempDir Path directory) {
+		MediaStorageService limited = service(10);
+		Path target = directory.resolve("large.bin");
+
+		assertThrows(MaxUploadSizeExceededException.class,
+				() -> limited.write(new ByteArrayInputStream(new byte[11]), target));
+		assertFalse(Files.exists(target));
+	}
+
+	@Test
+	void writeAtPlacesChunksAtTheirPosition(@TempDir Path directory) throws IOException {
+		Path part = Files.write(directory.resolve("upload.part"), new byte[9]);
+
+		assertEquals(3, mediaStorageService.writeAt(bytes("ghi"), part, 6, 3));
+		assertEquals(3, mediaStorageService.writeAt(bytes("abc"), part, 0, 3));
+		assertEquals(3, mediaStorageService.writeAt(bytes("def"), part, 3, 3));
+
+		assertEquals("abcdefghi", Files.readString(part));
+	}
+
+	@Test
+	void writeAtRejectsChunksLongerThanExpected(@TempDir Path directory) throws IOException {
+		Path part = Files.write(directory.resolve("upload.part"), new byte[4]);
+
+		assertThrows(IOException.class, () -> mediaStorageService.writeAt(bytes("abcde"), part, 0, 4));
+	}
+
+	private static ByteArrayInputStream bytes(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,67 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class ProcessRunnerTest {
+
+	@Test
+	void relaysOneSamplePerProgressBlock() {
+		String output = """
+				frame=120
+				fps=48.00
+				out_time_us=N/A
+				speed=N/A
+				progress=continue
+				frame=240
+				out_time_us=8000000
+				out_time=00:00:08.000000
+				speed=2.5x
+				progress=continue
+				frame=300
+				out_time_us=10010000
+				speed= 2.41x
+				progress=end
+				""";
+		List<double[]> samples = new ArrayList<>();
+
+		ProcessRunner.relayProgress(new ByteArrayInputStream(output.getBytes(StandardCharsets.UTF_8)),
+				(outTimeSeconds, speed) -> samples.add(new double[] { outTimeSeconds, speed }));
+
+		assertEquals(3, samples.size());
+		assertEquals(0, samples.get(0)[0]);
+		assertEquals(0, samples.get(0)[1]);
+		assertEquals(8.0, samples.get(1)[0], 1e-9);
+		assertEquals(2.5, samples.get(1)[1], 1e-9);
+		assertEquals(10.01, samples.get(2)[0], 1e-9);
+		assertEquals(2.41, samples.get(2)[1], 1e-9);
+	}
+
+	@Test
+	void chainedListenerIsCancelledWhenEitherIs() {
+		ProcessRunner.ProgressListener running = (outTimeSeconds, speed) -> {
+		};
+		ProcessRunner.ProgressListener cancelled = new ProcessRunner.ProgressListener() {
+			@Override
+			public void onProgress(double outTimeSeconds, double speed) {
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return true;
+			}
+		};
+
+		assertFalse(running.andThen(running).isCancelled());
+		assertTrue(running.andThen(cancelled).isCancelled());
+		assertTrue(cancelled.andThen(running).isCancelled());
+	}
+}
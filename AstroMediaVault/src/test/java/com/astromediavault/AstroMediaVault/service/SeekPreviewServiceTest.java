@@ -0,0 +1,46 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class SeekPreviewServiceTest {
+
+	private final SeekPreviewService seekPreviewService = new SeekPreviewService();
+
+	@BeforeEach
+	void configure() {
+		ReflectionTestUtils.setField(seekPreviewService, "intervalSeconds", 10);
+		ReflectionTestUtils.setField(seekPreviewService, "tileWidth", 160);
+		ReflectionTestUtils.setField(seekPreviewService, "columns", 2);
+		ReflectionTestUtils.setField(seekPreviewService, "rows", 2);
+	}
+
+	@Test
+	void tileHeightKeepsAspectRatioAndIsEven() {
+		assertEquals(90, seekPreviewService.tileHeight(1920, 1080));
+		assertEquals(284, seekPreviewService.tileHeight(1080, 1920));
+	}
+
+	@Test
+	void cuesWalkTheGridAndSpillIntoTheNextSprite() {
+		String[] lines = seekPreviewService.track(45, 90).split("\n");
+
+		assertEquals("WEBVTT", lines[0]);
+		assertEquals("00:00:00.000 --> 00:00:10.000", lines[2]);
+		assertEquals("sprite_000.jpg#xywh=0,0,160,90", lines[3]);
+		assertEquals("sprite_000.jpg#xywh=160,0,160,90", lines[6]);
+		assertEquals("sprite_000.jpg#xywh=0,90,160,90", lines[9]);
+		assertEquals("sprite_000.jpg#xywh=160,90,160,90", lines[12]);
+		assertEquals("00:00:40.000 --> 00:00:45.000", lines[14]);
+		assertEquals("sprite_001.jpg#xywh=0,0,160,90", lines[15]);
+		assertEquals(16, lines.length);
+	}
+
+	@Test
+	void filterMatchesTheTrackLayout() {
+		assertEquals("fps=1/10,scale=160:90,tile=2x2", seekPreviewService.filter(90));
+	}
+}
@@ -0,0 +1,108 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SegmentCacheTest {
+
+	private final SegmentCache cache = cache();
+
+	private static SegmentCache cache() {
+		SegmentCache cache = new SegmentCache(new MediaMetrics(new SimpleMeterRegistry()));
+		ReflectionTestUtils.setField(cache, "maxBytes", 1000L);
+		ReflectionTestUtils.setField(cache, "maxEntryBytes", 500L);
+		ReflectionTestUtils.setField(cache, "windowPercent", 10);
+		cache.init();
+		cache.shutdown();
+		// Background loads run on the calling thread, so a miss is cached once get returns
+		ReflectionTestUtils.setField(cache, "loader", (Executor) Runnable::run);
+		return cache;
+	}
+
+	@Test
+	void scanDoesNotEvictThePopularSegment(@TempDir Path directory) throws IOException {
+		Path file = Files.write(directory.resolve("segment.ts"), new byte[100]);
+		assertNull(cache.get("hot", file));
+		for (int i = 0; i < 4; i++) {
+			assertEquals(100, cache.get("hot", file).open().remaining());
+		}
+		for (int i = 1; i <= 9; i++) {
+			cache.get("warm" + i, file);
+		}
+		for (int i = 1; i <= 20; i++) {
+			cache.get("scan" + i, file);
+		}
+
+		assertTrue(cache.contains("hot"));
+		assertFalse(cache.contains("scan1"));
+		assertTrue(cache.size() <= 1000);
+	}
+
+	@Test
+	void fullCacheOnlyLoadsFilesRequestedBefore(@TempDir Path directory) throws IOException {
+		Path file = Files.write(directory.resolve("segment.ts"), new byte[100]);
+		for (int i = 1; i <= 10; i++) {
+			cache.get("warm" + i, file);
+		}
+
+		assertNull(cache.get("new", file));
+		assertFalse(cache.contains("new"));
+		assertNull(cache.get("new", file));
+		assertTrue(cache.contains("new"));
+	}
+
+	@Test
+	void concurrentMissesLoadOnce(@TempDir Path directory) throws IOException {
+		Path file = Files.write(directory.resolve("segment.ts"), new byte[100]);
+		List<Runnable> loads = new ArrayList<>();
+		ReflectionTestUtils.setField(cache, "loader", (Executor) loads::add);
+
+		assertNull(cache.get("segment", file));
+		assertNull(cache.get("segment", file));
+		cache.prefetch("segment", file);
+		assertEquals(1, loads.size());
+
+		loads.get(0).run();
+		assertTrue(cache.contains("segment"));
+	}
+
+	@Test
+	void largeFilesAreNotCached(@TempDir Path directory) throws IOException {
+		Path file = Files.write(directory.resolve("stream_0.mp4"), new byte[600]);
+
+		assertNull(cache.get("large", file));
+		assertFalse(cache.contains("large"));
+	}
+
+	@Test
+	void sketchCountsAndAges() {
+		SegmentCache.FrequencySketch sketch = new SegmentCache.FrequencySketch(16);
+		for (int i = 0; i < 20; i++) {
+			sketch.increment("popular");
+		}
+		sketch.increment("rare");
+
+		assertEquals(15, sketch.frequency("popular"));
+		assertTrue(sketch.frequency("rare") >= 1);
+		for (int i = 0; i < 400; i++) {
+			sketch.increment("other" + i);
+		}
+		assertTrue(sketch.frequency("popular") < 15);
+	}
+
+}
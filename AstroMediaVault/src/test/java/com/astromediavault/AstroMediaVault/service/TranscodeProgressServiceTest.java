@@ -0,0 +1,109 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.astromediavault.AstroMediaVault.dto.MediaStatusResponse;
+import com.astromediavault.AstroMediaVault.dto.TranscodeProgressResponse;
+import com.astromediavault.AstroMediaVault.model.Media;
+import com.astromediavault.AstroMediaVault.repository.MediaRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TranscodeProgressServiceTest {
+
+	private final UUID mediaId = UUID.randomUUID();
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final MediaRepository mediaRepository = mock(MediaRepository.class);
+
+	private final TranscodeProgressService service = service();
+
+	private TranscodeProgressService service() {
+		TranscodeProgressService service = new TranscodeProgressService(mock(RabbitTemplate.class), objectMapper,
+				mediaRepository, new MediaMetrics(new SimpleMeterRegistry()));
+		ReflectionTestUtils.setField(service, "publishInterval", Duration.ofSeconds(1));
+		ReflectionTestUtils.setField(service, "sseTimeout", Duration.ofMinutes(30));
+		ReflectionTestUtils.setField(service, "expireAfter", Duration.ofMinutes(10));
+		return service;
+	}
+
+	@Test
+	void etaIsRemainingSourceTimeOverSpeed() {
+		TranscodeProgressResponse response = TranscodeProgressService.progressResponse(mediaId, 150, 600, 3);
+
+		assertEquals(25.0, response.getPercentComplete());
+		assertEquals(3.0, response.getSpeed());
+		assertEquals(150L, response.getEtaSeconds());
+	}
+
+	@Test
+	void etaIsUnknownUntilFfmpegReportsASpeed() {
+		TranscodeProgressResponse response = TranscodeProgressService.progressResponse(mediaId, 0, 600, 0);
+
+		assertEquals(0.0, response.getPercentComplete());
+		assertNull(response.getEtaSeconds());
+	}
+
+	@Test
+	void percentNeverExceedsOneHundred() {
+		TranscodeProgressResponse response = TranscodeProgressService.progressResponse(mediaId, 601.5, 600, 2);
+
+		assertEquals(100.0, response.getPercentComplete());
+		assertEquals(0L, response.getEtaSeconds());
+	}
+
+	@Test
+	void streamEndsWhenTheMediaFinishedWhileSubscribing() {
+		when(mediaRepository.findStatusById(mediaId)).thenReturn(status(Media.ProcessingState.PROCESSING),
+				status(Media.ProcessingState.READY));
+
+		service.subscribe(mediaId);
+
+		assertTrue(subscribers().getOrDefault(mediaId, List.of()).isEmpty());
+	}
+
+	@Test
+	void progressOfMediaThatStoppedReportingExpires() throws Exception {
+		service.onSample(objectMapper.writeValueAsString(
+				new TranscodeProgressService.Sample(mediaId, -1, 10, 100, 2, null)));
+		service.expire();
+		assertTrue(progress().containsKey(mediaId));
+
+		ReflectionTestUtils.setField(service, "expireAfter", Duration.ZERO);
+		Thread.sleep(2);
+		service.expire();
+		assertFalse(progress().containsKey(mediaId));
+	}
+
+	private Optional<MediaStatusResponse> status(Media.ProcessingState state) {
+		return Optional.of(new MediaStatusResponse(mediaId, Media.FileType.VIDEO, state, null, Instant.now()));
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<UUID, List<?>> subscribers() {
+		return (Map<UUID, List<?>>) ReflectionTestUtils.getField(service, "subscribers");
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<UUID, ?> progress() {
+		return (Map<UUID, ?>) ReflectionTestUtils.getField(service, "progress");
+	}
+}
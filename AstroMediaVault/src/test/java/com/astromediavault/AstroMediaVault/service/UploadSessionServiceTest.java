@@ -0,0 +1,146 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.astromediavault.AstroMediaVault.dto.ApiResponse;
+import com.astromediavault.AstroMediaVault.dto.UploadSessionResponse;
+import com.astromediavault.AstroMediaVault.exception.InvalidUploadException;
+import com.astromediavault.AstroMediaVault.model.Media;
+import com.astromediavault.AstroMediaVault.model.UploadChunk;
+import com.astromediavault.AstroMediaVault.model.UploadSession;
+import com.astromediavault.AstroMediaVault.model.User;
+import com.astromediavault.AstroMediaVault.repository.UploadChunkRepository;
+import com.astromediavault.AstroMediaVault.repository.UploadSessionRepository;
+import com.astromediavault.AstroMediaVault.repository.UserRepository;
+
+class UploadSessionServiceTest {
+
+	@TempDir
+	Path storage;
+
+	private final UploadSessionRepository uploadSessionRepository = mock(UploadSessionRepository.class);
+
+	private final UploadChunkRepository uploadChunkRepository = mock(UploadChunkRepository.class);
+
+	private final MediaService mediaService = mock(MediaService.class);
+
+	/** Chunk rows saved so far, in arrival order */
+	private final List<UploadChunk> chunks = new ArrayList<>();
+
+	private final UploadSession session = new UploadSession();
+
+	private UploadSessionService uploadSessionService;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		MediaStorageService mediaStorageService = new MediaStorageService();
+		ReflectionTestUtils.setField(mediaStorageService, "localStoragePath", storage.toString());
+		ReflectionTestUtils.setField(mediaStorageService, "maxUploadSize", 1024L);
+		uploadSessionService = new UploadSessionService(uploadSessionRepository, uploadChunkRepository,
+				mock(UserRepository.class), mediaStorageService, mediaService);
+		ReflectionTestUtils.setField(uploadSessionService, "sessionTtl", Duration.ofHours(1));
+
+		User user = new User();
+		user.setId(UUID.randomUUID());
+		session.setId(UUID.randomUUID());
+		session.setUser(user);
+		session.setOriginalFileName("clip.mp4");
+		session.setFileType(Media.FileType.VIDEO);
+		session.setTotalSize(10);
+		session.setChunkSize(4);
+		session.setPartPath("upload.part");
+		session.setExpiresAt(Instant.now().plusSeconds(3600));
+		Files.createFile(storage.resolve("upload.part"));
+
+		when(uploadSessionRepository.findById(session.getId())).thenReturn(Optional.of(session));
+		when(uploadSessionRepository.transition(eq(session.getId()), any(), any())).thenReturn(1);
+		when(uploadChunkRepository.save(any())).thenAnswer(invocation -> {
+			chunks.add(invocation.getArgument(0));
+			return invocation.getArgument(0);
+		});
+		when(uploadChunkRepository.existsBySessionIdAndChunkIndex(eq(session.getId()), anyInt()))
+				.thenAnswer(invocation -> chunks.stream()
+						.anyMatch(chunk -> chunk.getChunkIndex() == (int) invocation.getArgument(1)));
+		when(uploadChunkRepository.countBySessionId(session.getId())).thenAnswer(invocation -> (long) chunks.size());
+		when(uploadChunkRepository.findBySessionIdOrderByChunkIndex(session.getId())).thenAnswer(invocation -> chunks);
+	}
+
+	@Test
+	void chunksArrivingOutOfOrderAreAssembledInPlace() throws IOException {
+		uploadSessionService.writeChunk(session.getId(), 2, bytes("ij"));
+		UploadSessionResponse partial = uploadSessionService.writeChunk(session.getId(), 0, bytes("abcd"));
+		assertEquals(List.of(1), partial.getMissingChunks());
+		assertEquals(6, partial.getReceivedBytes());
+
+		// A chunk re-sent after a dropped connection is written again but recorded once
+		uploadSessionService.writeChunk(session.getId(), 0, bytes("abcd"));
+		uploadSessionService.writeChunk(session.getId(), 1, bytes("efgh"));
+		assertEquals(3, chunks.size());
+
+		AtomicReference<String> assembled = new AtomicReference<>();
+		when(mediaService.uploadMediaFromFile(any(), eq(session.getUser().getId()), eq("clip.mp4"), any()))
+				.thenAnswer(invocation -> {
+					assembled.set(Files.readString(invocation.getArgument(3)));
+					return ApiResponse.success("Stored", "media");
+				});
+		uploadSessionService.completeSession(session.getId());
+
+		assertEquals("abcdefghij", assembled.get());
+		verify(uploadChunkRepository).deleteBySessionId(session.getId());
+	}
+
+	@Test
+	void incompleteChunksAreRejected() {
+		assertThrows(InvalidUploadException.class,
+				() -> uploadSessionService.writeChunk(session.getId(), 1, bytes("ef")));
+		assertThrows(InvalidUploadException.class,
+				() -> uploadSessionService.writeChunk(session.getId(), 3, bytes("k")));
+		assertThrows(InvalidUploadException.class, () -> uploadSessionService.completeSession(session.getId()));
+	}
+
+	@Test
+	void expiredSessionsTakeNoChunksAndAreAborted() {
+		session.setExpiresAt(Instant.now().minusSeconds(1));
+		when(uploadSessionRepository.findByStatusAndExpiresAtBefore(eq(UploadSession.Status.OPEN), any()))
+				.thenReturn(List.of(session));
+
+		assertThrows(InvalidUploadException.class,
+				() -> uploadSessionService.writeChunk(session.getId(), 0, bytes("abcd")));
+		uploadSessionService.abortExpiredSessions();
+
+		verify(uploadSessionRepository).transition(session.getId(), UploadSession.Status.OPEN,
+				UploadSession.Status.ABORTED);
+		verify(uploadChunkRepository).deleteBySessionId(session.getId());
+		assertFalse(Files.exists(storage.resolve("upload.part")));
+	}
+
+	private static ByteArrayInputStream bytes(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+}
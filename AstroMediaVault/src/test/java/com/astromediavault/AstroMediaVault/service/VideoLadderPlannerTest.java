@@ -0,0 +1,68 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.astromediavault.AstroMediaVault.config.VideoLadderProperties;
+
+class VideoLadderPlannerTest {
+
+	private final VideoLadderPlanner planner = new VideoLadderPlanner(new VideoLadderProperties());
+
+	@Test
+	void neverUpscalesAPhoneClip() {
+		List<VideoLadderPlanner.Rendition> renditions = planner.plan(854, 480, 30, 2500);
+
+		assertEquals(List.of("640x360", "854x480"),
+				renditions.stream().map(VideoLadderPlanner.Rendition::getResolution).toList());
+	}
+
+	@Test
+	void keepsPortraitAspectRatio() {
+		List<VideoLadderPlanner.Rendition> renditions = planner.plan(1080, 1920, 30, 8000);
+
+		VideoLadderPlanner.Rendition top = renditions.get(renditions.size() - 1);
+		assertEquals("1080x1920", top.getResolution());
+		assertEquals("360x640", renditions.get(0).getResolution());
+	}
+
+	@Test
+	void addsNativeRenditionBetweenRungs() {
+		List<VideoLadderPlanner.Rendition> renditions = planner.plan(1440, 900, 30, 6000);
+
+		VideoLadderPlanner.Rendition top = renditions.get(renditions.size() - 1);
+		assertEquals("900p", top.getName());
+		assertEquals("1440x900", top.getResolution());
+	}
+
+	@Test
+	void capsFrameRateAndBitrateToTheSource() {
+		List<VideoLadderPlanner.Rendition> renditions = planner.plan(1280, 720, 60, 1000);
+
+		assertEquals(30, renditions.get(0).getFrameRate(), 0.001);
+		assertEquals(60, renditions.get(2).getFrameRate(), 0.001);
+		assertTrue(renditions.get(2).getBitrateKbps() <= 1100);
+	}
+
+	@Test
+	void perTitleLadderScalesBitratesByComplexity() {
+		List<VideoLadderPlanner.Rendition> simple = planner.plan(1920, 1080, 30, 0, 0.5);
+		List<VideoLadderPlanner.Rendition> complex = planner.plan(1920, 1080, 30, 0, 1.5);
+
+		assertEquals(1400, simple.get(3).getBitrateKbps());
+		assertEquals(4200, complex.get(3).getBitrateKbps());
+		assertEquals(23, complex.get(3).getCrf());
+		assertEquals(0, planner.plan(1920, 1080, 30, 0).get(3).getCrf());
+	}
+
+	@Test
+	void parsesFractionalFrameRates() {
+		assertEquals(29.97, VideoLadderPlanner.parseFrameRate("30000/1001"), 0.01);
+		assertEquals(30, VideoLadderPlanner.parseFrameRate("0/0"), 0.001);
+	}
+
+}
@@ -0,0 +1,84 @@
+package com.astromediavault.AstroMediaVault.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.astromediavault.AstroMediaVault.model.TranscodedVideo;
+
+class VideoTranscodeServiceTest {
+
+	private final HlsPlaylistService hlsPlaylistService = new HlsPlaylistService();
+
+	private final VideoTranscodeService videoTranscodeService = new VideoTranscodeService(null, null,
+			hlsPlaylistService, null, null, null, null);
+
+	private final List<String> playlists = List.of("stream_0", "stream_audio_0");
+
+	@Test
+	void resumesAfterTheLastSegmentEveryPlaylistWrote(@TempDir Path directory) throws IOException {
+		writeSegments(directory, "stream_0", 6.006f, 6.006f, 6.006f);
+		writeSegments(directory, "stream_audio_0", 6.0f, 6.0f);
+
+		assertEquals(12.0, videoTranscodeService.resumePoint(directory, playlists, TranscodedVideo.Container.TS),
+				0.001);
+	}
+
+	@Test
+	void startsOverWithoutAFullSegmentOrWithFmp4(@TempDir Path directory) throws IOException {
+		writeSegments(directory, "stream_0", 6.006f, 6.006f);
+		assertEquals(0, videoTranscodeService.resumePoint(directory, playlists, TranscodedVideo.Container.TS));
+
+		writeSegments(directory, "stream_audio_0", 4.0f);
+		assertEquals(0, videoTranscodeService.resumePoint(directory, playlists, TranscodedVideo.Container.TS));
+
+		writeSegments(directory, "stream_audio_0", 6.0f, 6.0f);
+		assertEquals(0, videoTranscodeService.resumePoint(directory, playlists, TranscodedVideo.Container.FMP4));
+	}
+
+	@Test
+	void appendsResumedSegmentsAfterTheKeptOnes(@TempDir Path directory) throws IOException {
+		writeSegments(directory, "stream_0", 6.006f, 6.006f, 6.006f);
+		writeSegments(directory, "stream_audio_0", 6.0f, 6.0f);
+		Path resume = Files.createDirectories(directory.resolve(VideoTranscodeService.RESUME_DIRECTORY));
+		writeSegments(resume, "stream_0", 6.0f, 2.5f);
+		writeSegments(resume, "stream_audio_0", 6.0f, 2.5f);
+
+		videoTranscodeService.appendResumed(directory, playlists, 12.0);
+
+		List<HlsPlaylistService.Segment> video = hlsPlaylistService.parse(directory.resolve("stream_0.m3u8"));
+		assertEquals(List.of("stream_0_000.ts", "stream_0_001.ts", "stream_0_002.ts", "stream_0_003.ts"),
+				video.stream().map(HlsPlaylistService.Segment::getUri).toList());
+		assertEquals("resumed stream_0_000.ts", Files.readString(directory.resolve("stream_0_002.ts")));
+		assertEquals(4, hlsPlaylistService.parse(directory.resolve("stream_audio_0.m3u8")).size());
+		assertFalse(Files.exists(resume));
+	}
+
+	@Test
+	void encodesOnlyAudioForChunkedVideos() {
+		List<String> output = videoTranscodeService.audioOutput("/hls", List.of(
+				new VideoLadderPlanner.AudioTrack(0, "eng", 128), new VideoLadderPlanner.AudioTrack(1, "fra", 96)));
+
+		assertFalse(output.contains("-preset"));
+		assertEquals("a:0,name:audio_0 a:1,name:audio_1", output.get(output.indexOf("-var_stream_map") + 1));
+		assertEquals(List.of(), videoTranscodeService.audioOutput("/hls", List.of()));
+	}
+
+	private void writeSegments(Path directory, String playlist, float... durations) throws IOException {
+		boolean resumed = directory.getFileName().toString().equals(VideoTranscodeService.RESUME_DIRECTORY);
+		StringBuilder content = new StringBuilder("#EXTM3U\n#EXT-X-PLAYLIST-TYPE:EVENT\n");
+		for (int i = 0; i < durations.length; i++) {
+			String segment = String.format("%s_%03d.ts", playlist, i);
+			Files.writeString(directory.resolve(segment), (resumed ? "resumed " : "") + segment);
+			content.append("#EXTINF:").append(durations[i]).append(",\n").append(segment).append('\n');
+		}
+		Files.writeString(directory.resolve(playlist + ".m3u8"), content);
+	}
+}